@@ -0,0 +1,75 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How benchmark threads pick the accounts they touch.
+ */
+public enum AccessPattern {
+
+  /** Every account is equally likely. */
+  UNIFORM,
+
+  /** A few hot accounts receive most of the traffic (Zipf distribution, exponent 1). */
+  ZIPF,
+
+  /** All threads move money back and forth between the first two accounts. */
+  PINGPONG;
+
+  private static final double ZIPF_EXPONENT = 1.0;
+
+  public Picker picker(int accounts) {
+    if (accounts < 2) {
+      throw new IllegalArgumentException("At least two accounts are required");
+    }
+    switch (this) {
+      case UNIFORM:
+        return new Picker(accounts, null);
+      case ZIPF:
+        return new Picker(accounts, zipfDistribution(accounts));
+      default:
+        return new Picker(2, null);
+    }
+  }
+
+  private static double[] zipfDistribution(int accounts) {
+    double[] cumulative = new double[accounts];
+    double sum = 0;
+    for (int i = 0; i < accounts; i++) {
+      sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < accounts; i++) {
+      cumulative[i] /= sum;
+    }
+    return cumulative;
+  }
+
+  public static final class Picker {
+
+    private final int accounts;
+
+    private final double[] cumulative;
+
+    private Picker(int accounts, double[] cumulative) {
+      this.accounts = accounts;
+      this.cumulative = cumulative;
+    }
+
+    public int next() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (cumulative == null) {
+        return random.nextInt(accounts);
+      }
+      int index = Arrays.binarySearch(cumulative, random.nextDouble());
+      return index >= 0 ? index : Math.min(-index - 1, accounts - 1);
+    }
+
+    /** Picks an account different from {@code other}. */
+    public int nextOtherThan(int other) {
+      int index = next();
+      return index != other ? index : (index + 1) % accounts;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the fixed-point CAS balance with the former synchronized {@code BigDecimal} one.
+ * Run with {@code -PjmhProfilers=gc} to see the allocation rate of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountBenchmark {
+
+  private static final long AMOUNT = 1;
+
+  private static final BigDecimal DECIMAL_AMOUNT = new BigDecimal("0.01");
+
+  @Param({"UNIFORM", "ZIPF", "PINGPONG"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private Account[] accountsByIndex;
+
+  private DecimalAccount[] decimalAccountsByIndex;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    accountsByIndex = new Account[accounts];
+    decimalAccountsByIndex = new DecimalAccount[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountsByIndex[i] = new Account(BenchmarkAccounts.accountId(i),
+          BenchmarkAccounts.INITIAL_BALANCE);
+      decimalAccountsByIndex[i] = new DecimalAccount(BenchmarkAccounts.INITIAL_BALANCE);
+    }
+    picker = pattern.picker(accounts);
+  }
+
+  @Benchmark
+  public boolean withdraw() {
+    return accountsByIndex[picker.next()].withdraw(AMOUNT);
+  }
+
+  @Benchmark
+  public boolean deposit() {
+    return accountsByIndex[picker.next()].deposit(AMOUNT);
+  }
+
+  @Benchmark
+  public boolean decimalWithdraw() {
+    return decimalAccountsByIndex[picker.next()].withdraw(DECIMAL_AMOUNT);
+  }
+
+  @Benchmark
+  public boolean decimalDeposit() {
+    return decimalAccountsByIndex[picker.next()].deposit(DECIMAL_AMOUNT);
+  }
+
+  /** The balance handling {@link Account} used before balances moved to minor units. */
+  static final class DecimalAccount {
+
+    private volatile BigDecimal balance;
+
+    DecimalAccount(BigDecimal balance) {
+      this.balance = balance;
+    }
+
+    synchronized boolean withdraw(BigDecimal amount) {
+      if (this.balance.compareTo(amount) < 0) {
+        return false;
+      }
+      this.balance = this.balance.subtract(amount);
+      return true;
+    }
+
+    synchronized boolean deposit(BigDecimal amount) {
+      this.balance = this.balance.add(amount);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.PrimitiveAccountsRepository;
+import com.db.awmd.challenge.repository.TransferHistory;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AsyncTransferExecutor;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import com.db.awmd.challenge.web.AccountStreamFormat;
+import com.db.awmd.challenge.web.AccountStreams;
+import com.db.awmd.challenge.web.response.AccountImportResult;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time to bulk-import accounts through {@link AccountStreams}. The upload is generated while it
+ * is read, so only the store holds the accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AccountImportBenchmark {
+
+  @Param({"10000000"})
+  public int accounts;
+
+  @Param({"NDJSON", "CSV"})
+  public AccountStreamFormat format;
+
+  @Param({"map", "primitive"})
+  public String store;
+
+  @Param({"10000"})
+  public int chunkSize;
+
+  private AccountsRepository repository;
+
+  private AccountStreams accountStreams;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    repository = "primitive".equals(store)
+      ? new PrimitiveAccountsRepository() : new AccountsRepositoryInMemory();
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 1);
+    AccountsService accountsService = new AccountsService(repository,
+      new EmailNotificationService(), new OrderedLockingTransferEngine(lockManager, repository,
+        snapshots),
+      lockManager, new AccountsMetrics(new CompositeMeterRegistry(), repository, lockManager, 16),
+      new AsyncTransferExecutor(1, 0, false), new TransferHistory(false, 0), snapshots);
+    accountStreams = new AccountStreams(accountsService, chunkSize);
+  }
+
+  @Setup(Level.Iteration)
+  public void clear() {
+    repository.clearAccounts();
+  }
+
+  @Benchmark
+  public AccountImportResult importAccounts() throws IOException {
+    return accountStreams.importAccounts(format, new Upload(format, accounts));
+  }
+
+  /** Generates one row per account on demand. */
+  private static final class Upload extends InputStream {
+
+    private final AccountStreamFormat format;
+
+    private final int accounts;
+
+    private int next;
+
+    private byte[] row;
+
+    private int position;
+
+    private Upload(AccountStreamFormat format, int accounts) {
+      this.format = format;
+      this.accounts = accounts;
+      this.row = format == AccountStreamFormat.CSV
+        ? "accountId,balance\n".getBytes(StandardCharsets.US_ASCII) : new byte[0];
+    }
+
+    @Override
+    public int read() {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      int read = 0;
+      while (read < length) {
+        if (position == row.length) {
+          if (next == accounts) {
+            break;
+          }
+          row = nextRow();
+          position = 0;
+        }
+        int count = Math.min(length - read, row.length - position);
+        System.arraycopy(row, position, buffer, offset + read, count);
+        position += count;
+        read += count;
+      }
+      return read == 0 && length > 0 ? -1 : read;
+    }
+
+    private byte[] nextRow() {
+      String accountId = BenchmarkAccounts.accountId(next++);
+      String row = format == AccountStreamFormat.CSV
+        ? accountId + ",1000.00\n"
+        : "{\"accountId\":\"" + accountId + "\",\"balance\":1000.00}\n";
+      return row.getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsRepositoryBenchmark {
+
+  @Param({"UNIFORM", "ZIPF", "PINGPONG"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private AccountsRepositoryInMemory repository;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  private final AtomicLong createdAccounts = new AtomicLong();
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    repository = new AccountsRepositoryInMemory();
+    accountIds = BenchmarkAccounts.seed(repository, accounts);
+    picker = pattern.picker(accounts);
+    createdAccounts.set(accounts);
+  }
+
+  @Benchmark
+  public Account getAccount() {
+    return repository.getAccount(accountIds[picker.next()]);
+  }
+
+  @Benchmark
+  public void createAccount() {
+    repository.createAccount(
+        new Account(BenchmarkAccounts.accountId((int) createdAccounts.getAndIncrement())));
+  }
+}
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferHistory;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AdmissionProperties;
+import com.db.awmd.challenge.service.AsyncTransferExecutor;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import com.db.awmd.challenge.service.TransferAdmission;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Six threads flood transfers out of one hot account while two others transfer between
+ * accounts picked uniformly, with and without admission control in front of the service as the
+ * controller applies it. With admission the flood is mostly turned away at its bucket, and the
+ * {@code others} score shows how much of their throughput that gives back.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdmissionBenchmark {
+
+  private static final long AMOUNT = 1;
+
+  @Param({"false", "true"})
+  public boolean admission;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private AccountsService accountsService;
+
+  private TransferAdmission transferAdmission;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 1);
+    accountsService = new AccountsService(repository, new EmailNotificationService(),
+        new OrderedLockingTransferEngine(lockManager, repository, snapshots), lockManager,
+        new AccountsMetrics(new CompositeMeterRegistry(), repository, lockManager, 16),
+        new AsyncTransferExecutor(1, 0, false), new TransferHistory(false, 0), snapshots);
+    AdmissionProperties properties = new AdmissionProperties();
+    properties.setEnabled(admission);
+    transferAdmission = new TransferAdmission(properties, new CompositeMeterRegistry());
+    accountIds = BenchmarkAccounts.seed(repository, accounts);
+    picker = AccessPattern.UNIFORM.picker(accounts);
+  }
+
+  @Benchmark
+  @Group("flood")
+  @GroupThreads(6)
+  public TransferOutcome hot() {
+    return transfer(0, picker.nextOtherThan(0));
+  }
+
+  @Benchmark
+  @Group("flood")
+  @GroupThreads(2)
+  public TransferOutcome others() {
+    int source = picker.next();
+    return transfer(source, picker.nextOtherThan(source));
+  }
+
+  private TransferOutcome transfer(int source, int target) {
+    try (TransferAdmission.Permit permit = transferAdmission.admit(accountIds[source])) {
+      if (!permit.isAdmitted()) {
+        return null;
+      }
+      return accountsService.tryTransfer(accountIds[source], accountIds[target], AMOUNT);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceSummary;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.PrimitiveAccountsRepository;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Time to summarize all balances of the map and primitive stores over a number of fork-join
+ * threads, optionally while background threads keep transferring between random accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BalanceSummaryBenchmark {
+
+  private static final long[] BOUNDS = {0, 10_000, 100_000, 1_000_000, 10_000_000};
+
+  @Param({"map", "primitive"})
+  public String store;
+
+  @Param({"1000000", "10000000"})
+  public int accounts;
+
+  @Param({"1", "4", "0"})
+  public int parallelism;
+
+  @Param({"0", "4"})
+  public int transferThreads;
+
+  private BalanceSnapshots snapshots;
+
+  private final List<Thread> transferrers = new ArrayList<>();
+
+  private volatile boolean running;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepository repository = "primitive".equals(store)
+      ? new PrimitiveAccountsRepository() : new AccountsRepositoryInMemory();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkAccounts.accountId(i), 1_000_000));
+    }
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    snapshots = new BalanceSnapshots(repository, lockManager, "locking", parallelism);
+    OrderedLockingTransferEngine engine =
+      new OrderedLockingTransferEngine(lockManager, repository, snapshots);
+
+    running = true;
+    for (int t = 0; t < transferThreads; t++) {
+      Thread thread = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+          int source = random.nextInt(accounts);
+          int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+          engine.transfer(repository.getAccount(BenchmarkAccounts.accountId(source)),
+            repository.getAccount(BenchmarkAccounts.accountId(target)), 1);
+        }
+      }, "background-transfer-" + t);
+      thread.setDaemon(true);
+      thread.start();
+      transferrers.add(thread);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    running = false;
+    for (Thread thread : transferrers) {
+      thread.join();
+    }
+    snapshots.shutdown();
+  }
+
+  @Benchmark
+  public BalanceSummary summarize() {
+    return snapshots.summarize(BOUNDS);
+  }
+}
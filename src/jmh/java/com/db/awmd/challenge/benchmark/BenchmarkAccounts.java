@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import java.math.BigDecimal;
+
+final class BenchmarkAccounts {
+
+  static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+  private BenchmarkAccounts() {
+  }
+
+  static String accountId(int index) {
+    return "ACC-" + index;
+  }
+
+  static String[] seed(AccountsRepository repository, int accounts) {
+    repository.clearAccounts();
+    String[] ids = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      ids[i] = accountId(i);
+      repository.createAccount(new Account(ids[i], INITIAL_BALANCE));
+    }
+    return ids;
+  }
+}
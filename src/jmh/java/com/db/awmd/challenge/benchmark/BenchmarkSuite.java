@@ -0,0 +1,174 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Statistics;
+
+/**
+ * Runs the benchmarks once per thread count, writes a single report and compares it with a
+ * stored baseline report when one is given.
+ *
+ * <p>Arguments: {@code include=<regex> threads=1,2,4,8 report=<file> baseline=<file>}, plus
+ * {@code forks}, {@code warmups}, {@code iterations}, {@code seconds} per iteration and
+ * {@code profilers=gc}.
+ */
+public class BenchmarkSuite {
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    Map<String, String> arguments = parseArguments(args);
+    String include = arguments.getOrDefault("include", BenchmarkSuite.class.getPackage().getName());
+    File report = new File(arguments.getOrDefault("report", "build/reports/jmh/suite.json"));
+
+    List<Measurement> measurements = new ArrayList<>();
+    for (int threads : threadCounts(arguments.get("threads"))) {
+      ChainedOptionsBuilder builder = new OptionsBuilder();
+      if ("gc".equals(arguments.get("profilers"))) {
+        builder = builder.addProfiler(GCProfiler.class);
+      }
+      Options options = builder
+          .include(include)
+          .threads(threads)
+          .forks(intArgument(arguments, "forks", 1))
+          .warmupIterations(intArgument(arguments, "warmups", 3))
+          .measurementIterations(intArgument(arguments, "iterations", 5))
+          .warmupTime(TimeValue.seconds(intArgument(arguments, "seconds", 10)))
+          .measurementTime(TimeValue.seconds(intArgument(arguments, "seconds", 10)))
+          .build();
+      measurements.addAll(toMeasurements(new Runner(options).run(), threads));
+    }
+
+    report.getAbsoluteFile().getParentFile().mkdirs();
+    MAPPER.writeValue(report, measurements);
+    System.out.println("Benchmark report written to " + report.getAbsolutePath());
+
+    String baseline = arguments.get("baseline");
+    if (baseline != null && new File(baseline).isFile()) {
+      compare(Arrays.asList(MAPPER.readValue(new File(baseline), Measurement[].class)),
+          measurements);
+    }
+  }
+
+  private static Map<String, String> parseArguments(String[] args) {
+    Map<String, String> arguments = new LinkedHashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator > 0 && separator < arg.length() - 1) {
+        arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+      }
+    }
+    return arguments;
+  }
+
+  private static int intArgument(Map<String, String> arguments, String name, int defaultValue) {
+    String value = arguments.get(name);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  private static List<Integer> threadCounts(String threads) {
+    List<Integer> counts = new ArrayList<>();
+    if (threads != null) {
+      for (String count : threads.split(",")) {
+        counts.add(Integer.parseInt(count.trim()));
+      }
+      return counts;
+    }
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int count = 1; count < processors; count *= 2) {
+      counts.add(count);
+    }
+    counts.add(processors);
+    return counts;
+  }
+
+  private static List<Measurement> toMeasurements(Collection<RunResult> results, int threads) {
+    List<Measurement> measurements = new ArrayList<>();
+    for (RunResult result : results) {
+      Result primary = result.getPrimaryResult();
+      Measurement measurement = new Measurement();
+      measurement.setBenchmark(result.getParams().getBenchmark());
+      measurement.setMode(result.getParams().getMode().shortLabel());
+      measurement.setThreads(threads);
+      Map<String, String> params = new LinkedHashMap<>();
+      for (String key : result.getParams().getParamsKeys()) {
+        params.put(key, result.getParams().getParam(key));
+      }
+      measurement.setParams(params);
+      measurement.setScore(primary.getScore());
+      measurement.setError(primary.getScoreError());
+      measurement.setUnit(primary.getScoreUnit());
+      Statistics statistics = primary.getStatistics();
+      if (statistics.getN() > 1 && "sample".equals(measurement.getMode())) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+          percentiles.put("p" + percentile, statistics.getPercentile(percentile));
+        }
+        measurement.setPercentiles(percentiles);
+      }
+      measurements.add(measurement);
+    }
+    return measurements;
+  }
+
+  private static void compare(List<Measurement> baseline, List<Measurement> current) {
+    Map<String, Measurement> byKey = new LinkedHashMap<>();
+    for (Measurement measurement : baseline) {
+      byKey.put(measurement.key(), measurement);
+    }
+    System.out.println("Change against baseline:");
+    for (Measurement measurement : current) {
+      Measurement previous = byKey.get(measurement.key());
+      if (previous != null && previous.getScore() != 0) {
+        double change = (measurement.getScore() - previous.getScore()) / previous.getScore() * 100;
+        System.out.printf("  %-90s %12.3f -> %12.3f %s (%+.1f%%)%n", measurement.key(),
+            previous.getScore(), measurement.getScore(), measurement.getUnit(), change);
+      }
+    }
+  }
+
+  @Data
+  public static class Measurement {
+
+    private String benchmark;
+
+    private String mode;
+
+    private int threads;
+
+    private Map<String, String> params;
+
+    private double score;
+
+    private double error;
+
+    private String unit;
+
+    private Map<String, Double> percentiles;
+
+    String key() {
+      return benchmark + params + " " + mode + " x" + threads;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.cluster.AccountPartitions;
+import com.db.awmd.challenge.cluster.LocalCluster;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Transfers between uniformly chosen accounts over HTTP against a {@link LocalCluster} of
+ * {@code nodes} nodes. With {@code any} routing each request goes to a random node, which
+ * forwards it or coordinates it with the owners; with {@code owner} routing the client sends
+ * it to the owner of the source account, as a routing client library would. Most transfers
+ * span two partitions as soon as there is more than one node. All nodes share the cores of
+ * this machine, so compare node counts with {@code -PjmhThreads} high enough to load them:
+ * {@code ./gradlew jmhSuite -PjmhInclude=ClusterBenchmark -PjmhThreads=16,64}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClusterBenchmark {
+
+  @Param({"1", "2", "4"})
+  public int nodes;
+
+  @Param({"any", "owner"})
+  public String routing;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private LocalCluster cluster;
+
+  private AccountPartitions partitions;
+
+  private URL[] transferUrls;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    cluster = LocalCluster.start(nodes, "server.tomcat.max-connections=100000",
+      "logging.level.com.db.awmd.challenge=WARN");
+    partitions = cluster.node(0).getBean(AccountPartitions.class);
+    transferUrls = new URL[nodes];
+    for (int node = 0; node < nodes; node++) {
+      transferUrls[node] = new URL(cluster.url(node) + "/v1/accounts/transfer");
+    }
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = BenchmarkAccounts.accountId(i);
+      cluster.node(partitions.ownerOf(accountIds[i])).getBean(AccountsService.class)
+        .createAccount(new Account(accountIds[i], BenchmarkAccounts.INITIAL_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cluster.close();
+  }
+
+  @Benchmark
+  public int transfer() throws IOException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int source = random.nextInt(accounts);
+    int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+    int node = "owner".equals(routing) ? partitions.ownerOf(accountIds[source]) : random.nextInt(nodes);
+    byte[] body = ("{\"sourceAccountId\":\"" + accountIds[source] + "\","
+      + "\"targetAccountId\":\"" + accountIds[target] + "\",\"amount\":0.01}")
+      .getBytes(StandardCharsets.UTF_8);
+
+    HttpURLConnection connection = (HttpURLConnection) transferUrls[node].openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    connection.setFixedLengthStreamingMode(body.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    int status = connection.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      throw new IllegalStateException("Transfer answered " + status);
+    }
+    // Drain the response so that the keep-alive connection is reused.
+    try (InputStream in = connection.getInputStream()) {
+      while (in.read() >= 0) {
+        // Empty body.
+      }
+    }
+    return status;
+  }
+}
@@ -0,0 +1,116 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.CachingAccountsRepository;
+import com.db.awmd.challenge.repository.JdbcAccountsRepository;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.JdbcTransferEngine;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import com.db.awmd.challenge.service.TransferEngine;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Compares the in-memory store with the JDBC store on embedded H2, with and without the
+ * balance cache in front of it, including the transfer engine each of them runs with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JdbcRepositoryBenchmark {
+
+  @Param({"map", "jdbc", "jdbc-cached"})
+  public String store;
+
+  @Param({"UNIFORM", "PINGPONG"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private HikariDataSource dataSource;
+
+  private AccountsRepository repository;
+
+  private JdbcAccountsRepository jdbcRepository;
+
+  private TransferEngine transferEngine;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if (store.startsWith("jdbc")) {
+      dataSource = new HikariDataSource();
+      dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+      dataSource.setMaximumPoolSize(16);
+      dataSource.setMinimumIdle(16);
+      new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+      jdbcRepository = new JdbcAccountsRepository(new JdbcTemplate(dataSource), "jdbc");
+      repository = "jdbc-cached".equals(store)
+        ? new CachingAccountsRepository(jdbcRepository, 100_000, false) : jdbcRepository;
+      transferEngine = new JdbcTransferEngine(jdbcRepository,
+        new DataSourceTransactionManager(dataSource));
+    } else {
+      repository = new AccountsRepositoryInMemory();
+      StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+      transferEngine = new OrderedLockingTransferEngine(lockManager, repository,
+        new BalanceSnapshots(repository, lockManager, "locking", 1));
+    }
+
+    repository.clearAccounts();
+    accountIds = new String[accounts];
+    List<Account> batch = new ArrayList<>(accounts);
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = BenchmarkAccounts.accountId(i);
+      batch.add(new Account(accountIds[i], BenchmarkAccounts.INITIAL_BALANCE));
+    }
+    if (transferEngine instanceof JdbcTransferEngine) {
+      jdbcRepository.createAccounts(batch, accountId -> { });
+    } else {
+      batch.forEach(repository::createAccount);
+    }
+    picker = pattern.picker(accounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (dataSource != null) {
+      dataSource.close();
+    }
+  }
+
+  @Benchmark
+  public Account getAccount() {
+    return repository.getAccount(accountIds[picker.next()]);
+  }
+
+  @Benchmark
+  public boolean transfer() {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    return transferEngine.transfer(repository.getAccount(accountIds[source]),
+      repository.getAccount(accountIds[target]), 1);
+  }
+}
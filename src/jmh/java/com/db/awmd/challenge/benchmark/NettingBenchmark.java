@@ -0,0 +1,87 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.NettingTransferEngine;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import com.db.awmd.challenge.service.TransferEngine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Trades latency for throughput: every transfer waits for its netting window, while each
+ * window locks its accounts once. Only pays off with many threads transferring between few
+ * accounts, so run it with {@code -PjmhThreads=8} or more and compare the windows with
+ * {@code off}, which locks both accounts per transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NettingBenchmark {
+
+  private static final long AMOUNT = 1;
+
+  @Param({"PINGPONG", "ZIPF"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  /** off, or the netting window in microseconds. */
+  @Param({"off", "0", "50", "500"})
+  public String window;
+
+  @Param({"256"})
+  public int maxBatch;
+
+  private TransferEngine transferEngine;
+
+  private NettingTransferEngine nettingEngine;
+
+  private Account[] accountsByIndex;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    transferEngine = new OrderedLockingTransferEngine(lockManager, repository,
+      new BalanceSnapshots(repository, lockManager, "locking", 1));
+    if (!"off".equals(window)) {
+      nettingEngine = new NettingTransferEngine(transferEngine, Long.parseLong(window), maxBatch, 1);
+      transferEngine = nettingEngine;
+    }
+    String[] accountIds = BenchmarkAccounts.seed(repository, accounts);
+    accountsByIndex = new Account[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountsByIndex[i] = repository.getAccount(accountIds[i]);
+    }
+    picker = pattern.picker(accounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    if (nettingEngine != null) {
+      nettingEngine.shutdown();
+    }
+  }
+
+  @Benchmark
+  public boolean transfer() {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    return transferEngine.transfer(accountsByIndex[source], accountsByIndex[target], AMOUNT);
+  }
+}
@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.JournalProperties;
+import com.db.awmd.challenge.repository.JournalingAccountsRepository;
+import com.db.awmd.challenge.repository.TransferJournal.Durability;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Startup recovery time of the journaled repository, from the journal alone or from a
+ * snapshot plus the transfers journaled after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecoveryBenchmark {
+
+  @Param({"10000000"})
+  public int accounts;
+
+  @Param({"100000"})
+  public int transfersAfterSnapshot;
+
+  @Param({"snapshot", "journal"})
+  public String recovery;
+
+  private Path directory;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("recovery-benchmark");
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    JournalingAccountsRepository repository = open(lockManager);
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkAccounts.accountId(i), 1_000_000));
+    }
+    if ("snapshot".equals(recovery)) {
+      repository.takeSnapshot();
+    }
+    OrderedLockingTransferEngine transferEngine =
+      new OrderedLockingTransferEngine(lockManager, repository,
+        new BalanceSnapshots(repository, lockManager, "locking", 1));
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < transfersAfterSnapshot; i++) {
+      int source = random.nextInt(accounts);
+      int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+      transferEngine.transfer(repository.getAccount(BenchmarkAccounts.accountId(source)),
+        repository.getAccount(BenchmarkAccounts.accountId(target)), 1);
+    }
+    repository.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public Account recover() {
+    JournalingAccountsRepository repository = open(new StripedAccountLockManager(1024));
+    Account account = repository.getAccount(BenchmarkAccounts.accountId(accounts - 1));
+    repository.close();
+    return account;
+  }
+
+  private JournalingAccountsRepository open(StripedAccountLockManager lockManager) {
+    JournalProperties properties = new JournalProperties();
+    properties.setEnabled(true);
+    properties.setDirectory(directory.toString());
+    properties.setDurability(Durability.ASYNC);
+    properties.setSnapshotIntervalSeconds(0);
+    return new JournalingAccountsRepository(new AccountsRepositoryInMemory(), lockManager,
+      properties, "locking");
+  }
+}
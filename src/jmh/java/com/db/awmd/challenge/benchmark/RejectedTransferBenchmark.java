@@ -0,0 +1,81 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.TransferMoneyException;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferHistory;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AsyncTransferExecutor;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rejects every transfer for insufficient funds, once returning the outcome and once throwing
+ * it as the controller used to see it. Run with {@code -PjmhProfilers=gc} to compare the
+ * allocation of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RejectedTransferBenchmark {
+
+  private static final long AMOUNT = Long.MAX_VALUE;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private AccountsService accountsService;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 1);
+    accountsService = new AccountsService(repository, new EmailNotificationService(),
+        new OrderedLockingTransferEngine(lockManager, repository, snapshots), lockManager,
+        new AccountsMetrics(new CompositeMeterRegistry(), repository, lockManager, 16),
+        new AsyncTransferExecutor(1, 0, false), new TransferHistory(false, 0), snapshots);
+    accountIds = BenchmarkAccounts.seed(repository, accounts);
+    picker = pattern.picker(accounts);
+  }
+
+  @Benchmark
+  public TransferOutcome tryTransfer() {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    return accountsService.tryTransfer(accountIds[source], accountIds[target], AMOUNT);
+  }
+
+  @Benchmark
+  public String transferThrowing() {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    try {
+      accountsService.transfer(accountIds[source], accountIds[target], AMOUNT);
+      return null;
+    } catch (TransferMoneyException ex) {
+      return ex.getMessage();
+    }
+  }
+}
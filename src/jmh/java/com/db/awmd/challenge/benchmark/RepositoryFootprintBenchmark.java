@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.PrimitiveAccountsRepository;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Heap retained per account and {@code getAccount} latency of the map and primitive stores.
+ * The retained heap is printed when the trial is set up; the 50M map trial needs about 12 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RepositoryFootprintBenchmark {
+
+  private static final int PROBES = 1 << 16;
+
+  @Param({"map", "primitive"})
+  public String store;
+
+  @Param({"1000000", "10000000", "50000000"})
+  public int accounts;
+
+  private AccountsRepository repository;
+
+  private String[] probes;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long before = usedHeapAfterGc(memory);
+    repository = "primitive".equals(store)
+      ? new PrimitiveAccountsRepository() : new AccountsRepositoryInMemory();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account(BenchmarkAccounts.accountId(i), 1_000_000));
+    }
+    long retained = usedHeapAfterGc(memory) - before;
+    System.out.printf("%n%s store retains %,d bytes for %,d accounts, %d bytes per account%n",
+      store, retained, accounts, retained / accounts);
+
+    probes = new String[PROBES];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < PROBES; i++) {
+      probes[i] = BenchmarkAccounts.accountId(random.nextInt(accounts));
+    }
+  }
+
+  @Benchmark
+  public Account getAccount() {
+    next = (next + 1) & (PROBES - 1);
+    return repository.getAccount(probes[next]);
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,123 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import com.db.awmd.challenge.service.AccountsService;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Transfers over HTTP with the per-request INFO logs on, written to the console:
+ * {@code sync-every} logs every request on the request thread, as Boot's default
+ * configuration does; {@code async-every} logs every request through the async appender;
+ * {@code async-sampled} also applies the default request log sampling. The console is
+ * redirected to {@code build/jmh-console.log} so the log lines cost a write each without
+ * flooding the benchmark output. Compare them under concurrency with
+ * {@code ./gradlew jmhSuite -PjmhInclude=RequestLoggingBenchmark -PjmhThreads=1,16,64}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestLoggingBenchmark {
+
+  @Param({"sync-every", "async-every", "async-sampled"})
+  public String logging;
+
+  @Param({"UNIFORM"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private PrintStream console;
+
+  private PrintStream redirected;
+
+  private ConfigurableApplicationContext context;
+
+  private URL transferUrl;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    console = System.out;
+    redirected = new PrintStream(new FileOutputStream(new File("build", "jmh-console.log")), true);
+    System.setOut(redirected);
+
+    boolean sampled = "async-sampled".equals(logging);
+    SpringApplicationBuilder application = new SpringApplicationBuilder(DevChallengeApplication.class);
+    if ("sync-every".equals(logging)) {
+      application.profiles("sync-logging");
+    }
+    context = application
+      .properties("server.port=0",
+        "server.tomcat.max-connections=100000",
+        "accounts.request-log.max-per-second=" + (sampled ? 1000 : 0),
+        "logging.level.com.db.awmd.challenge=INFO")
+      .run();
+    int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+    transferUrl = new URL("http://localhost:" + port + "/v1/accounts/transfer");
+    accountIds = BenchmarkAccounts.seed(
+      context.getBean(AccountsService.class).getAccountsRepository(), accounts);
+    picker = pattern.picker(accounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+    System.setOut(console);
+    redirected.close();
+  }
+
+  @Benchmark
+  public int transfer() throws IOException {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    byte[] body = ("{\"sourceAccountId\":\"" + accountIds[source] + "\","
+      + "\"targetAccountId\":\"" + accountIds[target] + "\",\"amount\":0.01}")
+      .getBytes(StandardCharsets.UTF_8);
+
+    HttpURLConnection connection = (HttpURLConnection) transferUrl.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    connection.setFixedLengthStreamingMode(body.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    int status = connection.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      throw new IllegalStateException("Transfer answered " + status);
+    }
+    // Drain the response so that the keep-alive connection is reused.
+    try (InputStream in = connection.getInputStream()) {
+      while (in.read() >= 0) {
+        // Empty body.
+      }
+    }
+    return status;
+  }
+}
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferHistory;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AsyncTransferExecutor;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.ShardedTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import com.db.awmd.challenge.service.TransferEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferBenchmark {
+
+  private static final long AMOUNT = 1;
+
+  @Param({"UNIFORM", "ZIPF", "PINGPONG"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  @Param({"locking", "sharded"})
+  public String mode;
+
+  @Param({"4"})
+  public int shards;
+
+  /** none: meters that record nothing; prometheus: what the application publishes. */
+  @Param({"none", "prometheus"})
+  public String metrics;
+
+  private AccountsService accountsService;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  private ShardedTransferEngine shardedEngine;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1024);
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, mode, 1);
+    TransferEngine transferEngine;
+    if ("sharded".equals(mode)) {
+      shardedEngine = new ShardedTransferEngine(shards);
+      transferEngine = shardedEngine;
+    } else {
+      transferEngine = new OrderedLockingTransferEngine(lockManager, repository, snapshots);
+    }
+    MeterRegistry meterRegistry = "prometheus".equals(metrics)
+      ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) : new CompositeMeterRegistry();
+    accountsService = new AccountsService(repository, new EmailNotificationService(),
+        transferEngine, lockManager, new AccountsMetrics(meterRegistry, repository, lockManager, 16),
+        new AsyncTransferExecutor(1, 0, false), new TransferHistory(false, 0), snapshots);
+    accountIds = BenchmarkAccounts.seed(repository, accounts);
+    picker = pattern.picker(accounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    if (shardedEngine != null) {
+      shardedEngine.shutdown();
+    }
+  }
+
+  @Benchmark
+  public void transfer() {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    accountsService.transfer(accountIds[source], accountIds[target], AMOUNT);
+  }
+}
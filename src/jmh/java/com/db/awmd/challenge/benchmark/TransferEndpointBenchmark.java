@@ -0,0 +1,115 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import com.db.awmd.challenge.service.AccountsService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of the blocking and the asynchronous transfer endpoints over HTTP against the
+ * running application. Every benchmark thread keeps one request in flight, so
+ * {@code -PjmhThreads} is the number of concurrent requests; compare the p99 of both
+ * endpoints with {@code ./gradlew jmhSuite -PjmhInclude=TransferEndpointBenchmark
+ * -PjmhThreads=16,64,256}. With few Tomcat threads the blocking endpoint queues requests in
+ * the connector, while the asynchronous one releases each request thread as soon as the
+ * transfer is handed off; the jdbc store puts database round trips into the path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferEndpointBenchmark {
+
+  @Param({"blocking", "async"})
+  public String endpoint;
+
+  @Param({"map", "jdbc"})
+  public String store;
+
+  @Param({"16"})
+  public int tomcatThreads;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public AccessPattern pattern;
+
+  @Param({"10000"})
+  public int accounts;
+
+  private ConfigurableApplicationContext context;
+
+  private URL transferUrl;
+
+  private String[] accountIds;
+
+  private AccessPattern.Picker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    boolean jdbc = "jdbc".equals(store);
+    context = new SpringApplicationBuilder(DevChallengeApplication.class)
+      .properties("server.port=0",
+        "server.tomcat.max-threads=" + tomcatThreads,
+        "server.tomcat.max-connections=100000",
+        "accounts.repository.store=" + store,
+        "accounts.transfer.mode=" + (jdbc ? "jdbc" : "locking"),
+        "logging.level.com.db.awmd.challenge=WARN")
+      .run();
+    int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+    transferUrl = new URL("http://localhost:" + port + "/v1/accounts/transfer"
+      + ("async".equals(endpoint) ? "/async" : ""));
+    accountIds = BenchmarkAccounts.seed(
+      context.getBean(AccountsService.class).getAccountsRepository(), accounts);
+    picker = pattern.picker(accounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int transfer() throws IOException {
+    int source = picker.next();
+    int target = picker.nextOtherThan(source);
+    byte[] body = ("{\"sourceAccountId\":\"" + accountIds[source] + "\","
+      + "\"targetAccountId\":\"" + accountIds[target] + "\",\"amount\":0.01}")
+      .getBytes(StandardCharsets.UTF_8);
+
+    HttpURLConnection connection = (HttpURLConnection) transferUrl.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    connection.setFixedLengthStreamingMode(body.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    int status = connection.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      throw new IllegalStateException("Transfer answered " + status);
+    }
+    // Drain the response so that the keep-alive connection is reused.
+    try (InputStream in = connection.getInputStream()) {
+      while (in.read() >= 0) {
+        // Empty body.
+      }
+    }
+    return status;
+  }
+}
@@ -0,0 +1,77 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.web.AccountsJsonModule;
+import com.db.awmd.challenge.web.request.TransferMoneyRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parses and validates a transfer request and writes an account, as the transfer and balance
+ * endpoints do, once with bean binding and the {@link Validator} and once with
+ * {@link AccountsJsonModule} and {@link TransferMoneyRequest#findViolation()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferRequestJsonBenchmark {
+
+  private static final byte[] REQUEST = ("{\"sourceAccountId\":\"Id-123456\","
+    + "\"targetAccountId\":\"Id-654321\",\"amount\":150.55}").getBytes(StandardCharsets.UTF_8);
+
+  private final Account account = new Account("Id-123456", 1_234_567);
+
+  private ObjectReader beanReader;
+
+  private ObjectWriter beanWriter;
+
+  private Validator validator;
+
+  private ObjectReader moduleReader;
+
+  private ObjectWriter moduleWriter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ObjectMapper beanMapper = new ObjectMapper();
+    beanReader = beanMapper.readerFor(TransferMoneyRequest.class);
+    beanWriter = beanMapper.writerFor(Account.class);
+    validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    ObjectMapper moduleMapper = new ObjectMapper().registerModule(new AccountsJsonModule());
+    moduleReader = moduleMapper.readerFor(TransferMoneyRequest.class);
+    moduleWriter = moduleMapper.writerFor(Account.class);
+  }
+
+  @Benchmark
+  public byte[] beanBinding() throws IOException {
+    TransferMoneyRequest request = beanReader.readValue(REQUEST);
+    if (!validator.validate(request).isEmpty()) {
+      throw new IllegalStateException("Benchmark request is invalid");
+    }
+    return beanWriter.writeValueAsBytes(account);
+  }
+
+  @Benchmark
+  public byte[] jsonModule() throws IOException {
+    TransferMoneyRequest request = moduleReader.readValue(REQUEST);
+    if (request.findViolation() != null) {
+      throw new IllegalStateException("Benchmark request is invalid");
+    }
+    return moduleWriter.writeValueAsBytes(account);
+  }
+}
@@ -0,0 +1,191 @@
+package com.db.awmd.challenge.load;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application, seeds accounts through the import endpoint and drives an open-loop
+ * mix of creates, reads, transfers and failing transfers at it over HTTP, then writes a JSON
+ * report of the latency percentiles and statuses per operation. Run it with
+ * {@code ./gradlew loadTest -PloadArgs="rate=5000 server.tomcat.max-threads=50"} and compare
+ * the reports of runs that differ in one setting.
+ *
+ * <p>Arguments: {@code accounts}, {@code rate} per second, {@code seconds} measured after
+ * {@code warmup} seconds, {@code workers} (requests in flight at most), {@code mix} as
+ * {@code create=5,get=40,transfer=45,failing=10}, {@code timeoutMillis} and {@code report}.
+ * Arguments whose name contains a dot are application properties, such as
+ * {@code server.tomcat.max-threads}. With {@code url} the load goes to an application that is
+ * already running instead, which keeps the load generator off the server's cores.
+ */
+public class LoadTest {
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private static final String SEEDED_BALANCE = "1000000";
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Map<String, String> arguments = new LinkedHashMap<>();
+    Map<String, String> properties = new LinkedHashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator > 0) {
+        String name = arg.substring(0, separator);
+        (name.contains(".") ? properties : arguments).put(name, arg.substring(separator + 1));
+      }
+    }
+    int accounts = intArgument(arguments, "accounts", 10_000);
+    double rate = Double.parseDouble(arguments.getOrDefault("rate", "1000"));
+    int warmup = intArgument(arguments, "warmup", 10);
+    int seconds = intArgument(arguments, "seconds", 30);
+    int workers = intArgument(arguments, "workers", 256);
+    int timeoutMillis = intArgument(arguments, "timeoutMillis", 10_000);
+    String mix = arguments.getOrDefault("mix", "create=5,get=40,transfer=45,failing=10");
+    File report = new File(arguments.getOrDefault("report", "build/reports/load/report.json"));
+    if (accounts < 2 || rate <= 0 || workers < 1) {
+      throw new IllegalArgumentException("At least two accounts, a positive rate and a worker "
+        + "are required");
+    }
+    // Keeps one idle connection per worker instead of the default five.
+    System.setProperty("http.maxConnections", Integer.toString(workers));
+
+    ConfigurableApplicationContext context = null;
+    String baseUrl = arguments.get("url");
+    if (baseUrl == null) {
+      context = new SpringApplicationBuilder(DevChallengeApplication.class)
+        .properties(toPropertyArray(properties))
+        .run();
+      int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+      baseUrl = "http://localhost:" + port;
+    }
+    try {
+      String runId = Long.toString(System.currentTimeMillis(), 36);
+      String[] accountIds = seed(baseUrl, "LOAD-" + runId + "-", accounts);
+      OpenLoopDriver driver = new OpenLoopDriver(baseUrl, accountIds, "LOAD-" + runId + "-new-",
+          parseMix(mix), workers, timeoutMillis);
+      String startedAt = Instant.now().toString();
+      System.out.printf("Sending %.0f requests per second to %s for %d + %d seconds%n", rate,
+          baseUrl, warmup, seconds);
+      driver.run(rate, warmup, seconds);
+
+      Map<String, Object> settings = new LinkedHashMap<>();
+      settings.put("url", baseUrl);
+      settings.put("accounts", accounts);
+      settings.put("rate", rate);
+      settings.put("warmupSeconds", warmup);
+      settings.put("seconds", seconds);
+      settings.put("workers", workers);
+      settings.put("mix", mix);
+      settings.put("properties", properties);
+      writeReport(report, startedAt, settings, driver, seconds);
+    } finally {
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  /** Creates the accounts with one streamed import request and returns their ids. */
+  private static String[] seed(String baseUrl, String prefix, int accounts) throws IOException {
+    String[] ids = new String[accounts];
+    HttpURLConnection connection =
+        (HttpURLConnection) new URL(baseUrl + "/v1/accounts/import").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/x-ndjson");
+    connection.setChunkedStreamingMode(1 << 16);
+    try (OutputStream out = connection.getOutputStream();
+         Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < accounts; i++) {
+        ids[i] = prefix + i;
+        writer.write("{\"accountId\":\"" + ids[i] + "\",\"balance\":" + SEEDED_BALANCE + "}\n");
+      }
+    }
+    int status = connection.getResponseCode();
+    if (status != HttpURLConnection.HTTP_OK) {
+      throw new IllegalStateException("Seeding the accounts was answered " + status);
+    }
+    connection.getInputStream().close();
+    return ids;
+  }
+
+  /** Spreads the operations over 100 slots in proportion to their weights. */
+  private static Operation[] parseMix(String mix) {
+    List<Operation> slots = new ArrayList<>();
+    for (String part : mix.split(",")) {
+      String[] weight = part.trim().split("=");
+      if (weight.length != 2) {
+        throw new IllegalArgumentException("The mix must look like create=5,get=40,...");
+      }
+      Operation operation = Operation.forKey(weight[0].trim());
+      for (int i = Integer.parseInt(weight[1].trim()); i > 0; i--) {
+        slots.add(operation);
+      }
+    }
+    if (slots.isEmpty()) {
+      throw new IllegalArgumentException("The mix must contain at least one operation");
+    }
+    return slots.toArray(new Operation[0]);
+  }
+
+  private static void writeReport(File report, String startedAt, Map<String, Object> settings,
+                                  OpenLoopDriver driver, int seconds) throws IOException {
+    OperationStats all = new OperationStats(0);
+    Map<String, Object> operations = new LinkedHashMap<>();
+    driver.stats().forEach((operation, stats) -> {
+      if (stats.count() > 0) {
+        operations.put(operation.key(), stats.toReport());
+        all.add(stats);
+      }
+    });
+    long unexpected = 0;
+    for (OperationStats stats : driver.stats().values()) {
+      unexpected += stats.unexpected();
+    }
+
+    Map<String, Object> content = new LinkedHashMap<>();
+    content.put("startedAt", startedAt);
+    content.put("settings", settings);
+    content.put("requests", all.count());
+    content.put("achievedRate", (double) all.count() / seconds);
+    content.put("unexpectedStatus", unexpected);
+    content.put("maxBacklog", driver.maxBacklog());
+    Map<String, Object> latency = all.toReport();
+    content.put("latencyMicros", latency.get("latencyMicros"));
+    content.put("serviceTimeMicros", latency.get("serviceTimeMicros"));
+    content.put("operations", operations);
+
+    report.getAbsoluteFile().getParentFile().mkdirs();
+    MAPPER.writeValue(report, content);
+    System.out.println(MAPPER.writeValueAsString(content));
+    System.out.println("Load report written to " + report.getAbsolutePath());
+  }
+
+  private static String[] toPropertyArray(Map<String, String> properties) {
+    List<String> pairs = new ArrayList<>();
+    properties.forEach((name, value) -> pairs.add(name + "=" + value));
+    return pairs.toArray(new String[0]);
+  }
+
+  private static int intArgument(Map<String, String> arguments, String name, int defaultValue) {
+    String value = arguments.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+}
@@ -0,0 +1,180 @@
+package com.db.awmd.challenge.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on a fixed schedule, whether or not earlier ones have been answered, so a
+ * slow server cannot slow down its own load. The schedule hands each request to a pool of
+ * worker threads that reuse keep-alive connections; requests wait in the pool's queue while
+ * every worker is busy, and that wait counts towards their latency.
+ */
+final class OpenLoopDriver {
+
+  /**
+   * More than a seeded account ever holds, yet within the nine integer digits a transfer amount
+   * may have, so that the transfer is refused for its funds rather than as invalid.
+   */
+  private static final String FAILING_AMOUNT = "999999999";
+
+  private final String baseUrl;
+
+  private final String[] accountIds;
+
+  private final String newAccountPrefix;
+
+  private final Operation[] mix;
+
+  private final int timeoutMillis;
+
+  private final ThreadPoolExecutor workers;
+
+  private final AtomicLong created = new AtomicLong();
+
+  private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+  private boolean measuring;
+
+  private int maxBacklog;
+
+  /**
+   * @param mix operations in proportion to their share of the workload, picked at random
+   */
+  OpenLoopDriver(String baseUrl, String[] accountIds, String newAccountPrefix, Operation[] mix,
+                 int workers, int timeoutMillis) {
+    this.baseUrl = baseUrl;
+    this.accountIds = accountIds;
+    this.newAccountPrefix = newAccountPrefix;
+    this.mix = mix;
+    this.timeoutMillis = timeoutMillis;
+    this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "load-worker");
+          thread.setDaemon(true);
+          return thread;
+        });
+    for (Operation operation : Operation.values()) {
+      stats.put(operation, new OperationStats(operation.expectedStatus()));
+    }
+  }
+
+  /**
+   * Sends {@code ratePerSecond} requests per second for {@code warmupSeconds}, unrecorded,
+   * then for {@code seconds}, and waits for the last answers.
+   */
+  void run(double ratePerSecond, int warmupSeconds, int seconds) throws InterruptedException {
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    long start = System.nanoTime();
+    long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+    long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (long i = 0; ; i++) {
+      long intended = start + i * interval;
+      if (intended - end >= 0) {
+        break;
+      }
+      long wait = intended - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      if (!measuring && intended - measureFrom >= 0) {
+        measuring = true;
+        maxBacklog = 0;
+      }
+      Operation operation = mix[random.nextInt(mix.length)];
+      boolean recorded = measuring;
+      workers.execute(() -> send(operation, intended, recorded));
+      maxBacklog = Math.max(maxBacklog, workers.getQueue().size());
+    }
+    workers.shutdown();
+    if (!workers.awaitTermination(timeoutMillis + 60_000L, TimeUnit.MILLISECONDS)) {
+      workers.shutdownNow();
+    }
+  }
+
+  Map<Operation, OperationStats> stats() {
+    return stats;
+  }
+
+  /** Most requests that waited for a worker at once while measuring. */
+  int maxBacklog() {
+    return maxBacklog;
+  }
+
+  private void send(Operation operation, long intended, boolean recorded) {
+    long sent = System.nanoTime();
+    int status;
+    try {
+      status = execute(operation);
+    } catch (IOException ex) {
+      status = OperationStats.NO_RESPONSE;
+    }
+    if (recorded) {
+      stats.get(operation).record(intended, sent, System.nanoTime(), status);
+    }
+  }
+
+  private int execute(Operation operation) throws IOException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    switch (operation) {
+      case CREATE:
+        return request("POST", "/v1/accounts", "{\"accountId\":\"" + newAccountPrefix
+            + created.incrementAndGet() + "\",\"balance\":100}");
+      case GET:
+        return request("GET", "/v1/accounts/" + accountIds[random.nextInt(accountIds.length)],
+            null);
+      case TRANSFER:
+        return transfer(random, "0.01");
+      default:
+        return transfer(random, FAILING_AMOUNT);
+    }
+  }
+
+  private int transfer(ThreadLocalRandom random, String amount) throws IOException {
+    int source = random.nextInt(accountIds.length);
+    int target = (source + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+    return request("POST", "/v1/accounts/transfer", "{\"sourceAccountId\":\""
+        + accountIds[source] + "\",\"targetAccountId\":\"" + accountIds[target]
+        + "\",\"amount\":" + amount + "}");
+  }
+
+  /** Sends one request and drains the answer, so that the connection is kept alive. */
+  private int request(String method, String path, String body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    connection.setConnectTimeout(timeoutMillis);
+    connection.setReadTimeout(timeoutMillis);
+    if (body != null) {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      connection.setFixedLengthStreamingMode(bytes.length);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(bytes);
+      }
+    }
+    int status = connection.getResponseCode();
+    InputStream answer = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    if (answer != null) {
+      try (InputStream in = answer) {
+        byte[] buffer = new byte[512];
+        while (in.read(buffer) >= 0) {
+          // Only the status matters.
+        }
+      }
+    }
+    return status;
+  }
+}
@@ -0,0 +1,44 @@
+package com.db.awmd.challenge.load;
+
+/** The requests of the workload, each with the status it is expected to be answered with. */
+enum Operation {
+
+  /** Creates a new account. */
+  CREATE("create", 201),
+
+  /** Reads a seeded account. */
+  GET("get", 200),
+
+  /** Moves one cent between two seeded accounts. */
+  TRANSFER("transfer", 200),
+
+  /** Tries to move more than a seeded account holds. */
+  FAILING_TRANSFER("failing", 406);
+
+  private final String key;
+
+  private final int expectedStatus;
+
+  Operation(String key, int expectedStatus) {
+    this.key = key;
+    this.expectedStatus = expectedStatus;
+  }
+
+  /** The name of the operation in the {@code mix} argument and the report. */
+  String key() {
+    return key;
+  }
+
+  int expectedStatus() {
+    return expectedStatus;
+  }
+
+  static Operation forKey(String key) {
+    for (Operation operation : values()) {
+      if (operation.key.equals(key)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown operation " + key + " in the mix");
+  }
+}
@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and statuses of one operation. The latency of a request runs from the moment the
+ * schedule meant to send it, so a request that waited behind slow ones is charged for the
+ * wait; the service time runs from the moment it was actually sent.
+ */
+final class OperationStats {
+
+  /** Status recorded for a request that failed without a response. */
+  static final int NO_RESPONSE = -1;
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+  private final int expectedStatus;
+
+  private final Histogram latency = new ConcurrentHistogram(3);
+
+  private final Histogram serviceTime = new ConcurrentHistogram(3);
+
+  private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+  OperationStats(int expectedStatus) {
+    this.expectedStatus = expectedStatus;
+  }
+
+  void record(long intendedNanos, long sentNanos, long doneNanos, int status) {
+    latency.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - intendedNanos));
+    serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - sentNanos));
+    statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+  }
+
+  long count() {
+    return latency.getTotalCount();
+  }
+
+  long unexpected() {
+    long unexpected = 0;
+    for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+      if (entry.getKey() != expectedStatus) {
+        unexpected += entry.getValue().sum();
+      }
+    }
+    return unexpected;
+  }
+
+  /** Adds the requests of {@code other} to these, for the totals of all operations. */
+  void add(OperationStats other) {
+    latency.add(other.latency);
+    serviceTime.add(other.serviceTime);
+    other.statuses.forEach((status, count) ->
+        statuses.computeIfAbsent(status, key -> new LongAdder()).add(count.sum()));
+  }
+
+  Map<String, Object> toReport() {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("count", count());
+    report.put("unexpectedStatus", unexpected());
+    Map<String, Long> byStatus = new TreeMap<>();
+    statuses.forEach((status, count) ->
+        byStatus.put(status == NO_RESPONSE ? "none" : Integer.toString(status), count.sum()));
+    report.put("statuses", byStatus);
+    report.put("latencyMicros", percentiles(latency));
+    report.put("serviceTimeMicros", percentiles(serviceTime));
+    return report;
+  }
+
+  private static Map<String, Object> percentiles(Histogram histogram) {
+    Map<String, Object> percentiles = new LinkedHashMap<>();
+    percentiles.put("mean", Math.round(histogram.getMean()));
+    for (double percentile : PERCENTILES) {
+      percentiles.put("p" + (percentile == Math.rint(percentile)
+          ? Integer.toString((int) percentile) : Double.toString(percentile)),
+          histogram.getValueAtPercentile(percentile));
+    }
+    percentiles.put("max", histogram.getMaxValue());
+    return percentiles;
+  }
+}
@@ -2,8 +2,13 @@ package com.db.awmd.challenge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
 
-@SpringBootApplication
+// The datasource is imported by JdbcStoreConfiguration for the jdbc store only.
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class,
+  DataSourceTransactionManagerAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
 public class DevChallengeApplication {
 
   public static void main(String[] args) {
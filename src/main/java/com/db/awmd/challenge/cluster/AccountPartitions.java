@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.cluster;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which node owns which account. Without {@code accounts.cluster.enabled} this node owns
+ * every account.
+ *
+ * <p>Balances on this node are changed from outside the transfer engine while an amount is
+ * reserved or credited for another node, so the cluster only runs with the locking engine,
+ * whose locks those changes take as well, and with a store whose accounts are live objects.
+ */
+@Component
+public class AccountPartitions {
+
+  private final boolean enabled;
+
+  private final List<String> nodes;
+
+  private final int self;
+
+  private final PartitionRing ring;
+
+  @Autowired
+  public AccountPartitions(ClusterProperties properties,
+                           @Value("${accounts.repository.store:map}") String store,
+                           @Value("${accounts.transfer.mode:locking}") String transferMode,
+                           @Value("${accounts.journal.enabled:false}") boolean journalEnabled) {
+    this.enabled = properties.isEnabled();
+    this.nodes = properties.getNodes();
+    this.self = properties.getSelf();
+    if (!enabled) {
+      this.ring = null;
+      return;
+    }
+    if (self < 0 || self >= nodes.size()) {
+      throw new IllegalStateException("accounts.cluster.self must be the position of this node in "
+        + "accounts.cluster.nodes");
+    }
+    if (properties.getSecret() == null || properties.getSecret().isEmpty()) {
+      throw new IllegalStateException("The cluster requires accounts.cluster.secret, shared by "
+        + "all nodes");
+    }
+    if (!"locking".equals(transferMode) || "jdbc".equals(store) || journalEnabled) {
+      throw new IllegalStateException("The cluster requires accounts.transfer.mode=locking, "
+        + "the map or primitive store and no journal");
+    }
+    this.ring = new PartitionRing(nodes, properties.getVirtualNodes());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Whether this node owns {@code accountId}. */
+  public boolean isLocal(String accountId) {
+    return !enabled || ring.ownerOf(accountId) == self;
+  }
+
+  /** Position of the node that owns {@code accountId}. */
+  public int ownerOf(String accountId) {
+    return enabled ? ring.ownerOf(accountId) : self;
+  }
+
+  public int self() {
+    return self;
+  }
+
+  /** Base URL of the node at {@code node}. */
+  public String url(int node) {
+    return nodes.get(node);
+  }
+}
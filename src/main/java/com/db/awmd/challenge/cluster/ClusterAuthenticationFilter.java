@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.cluster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Lets only other nodes of the cluster call the internal endpoints or send requests marked as
+ * forwarded: such a request must carry the shared {@code accounts.cluster.secret} in
+ * {@link ClusterClient#SECRET_HEADER}, or it is answered 403. Without this check any client
+ * could credit an account from nothing, or store an account on a node that does not own it.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.cluster.enabled", havingValue = "true")
+public class ClusterAuthenticationFilter extends OncePerRequestFilter {
+
+  private final byte[] secret;
+
+  @Autowired
+  public ClusterAuthenticationFilter(ClusterProperties properties) {
+    this.secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    boolean fromNode = path.startsWith(ClusterClient.INTERNAL_PATH + "/")
+      || request.getHeader(ClusterClient.FORWARDED_HEADER) != null;
+    if (fromNode && !isSecret(request.getHeader(ClusterClient.SECRET_HEADER))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only nodes of the cluster may send "
+        + "this request");
+      return;
+    }
+    chain.doFilter(request, response);
+  }
+
+  private boolean isSecret(String presented) {
+    // Compares in constant time, so the secret cannot be guessed from response times.
+    return presented != null
+      && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,153 @@
+package com.db.awmd.challenge.cluster;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.PartitionUnavailableException;
+import com.db.awmd.challenge.web.request.PartitionRequest;
+import java.net.URI;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Calls other nodes of the cluster: forwards requests to the owner of an account, and runs the
+ * steps of transfers between partitions on the other node. A call that cannot reach the node
+ * or is not answered within the request timeout throws a {@link PartitionUnavailableException}.
+ */
+@Component
+public class ClusterClient {
+
+  /** Marks a request forwarded by another node, which the receiver must answer itself. */
+  public static final String FORWARDED_HEADER = "X-Accounts-Forwarded";
+
+  /** Carries the shared cluster secret on every call to another node. */
+  public static final String SECRET_HEADER = "X-Accounts-Cluster-Secret";
+
+  /** Path of the endpoints nodes call on each other. */
+  public static final String INTERNAL_PATH = "/internal/v1/cluster";
+
+  private final AccountPartitions partitions;
+
+  private final String secret;
+
+  private final RestTemplate restTemplate;
+
+  @Autowired
+  public ClusterClient(AccountPartitions partitions, ClusterProperties properties) {
+    this.partitions = partitions;
+    this.secret = properties.getSecret();
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(properties.getRequestTimeoutMillis());
+    requestFactory.setReadTimeout(properties.getRequestTimeoutMillis());
+    this.restTemplate = new RestTemplate(requestFactory);
+    // Statuses are passed on or checked by the callers.
+    this.restTemplate.setErrorHandler(new ResponseErrorHandler() {
+      @Override
+      public boolean hasError(ClientHttpResponse response) {
+        return false;
+      }
+
+      @Override
+      public void handleError(ClientHttpResponse response) {
+      }
+    });
+  }
+
+  /**
+   * Sends a request to {@code node} and returns its response as it is.
+   *
+   * @param pathAndQuery the path of the request, with its query string
+   * @param body the request body, or null
+   */
+  public ResponseEntity<Object> forward(int node, HttpMethod method, String pathAndQuery,
+                                        Object body) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(FORWARDED_HEADER, partitions.url(partitions.self()));
+    headers.set(SECRET_HEADER, secret);
+    if (body != null) {
+      headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+    ResponseEntity<String> response = exchange(node, method, pathAndQuery,
+      new HttpEntity<>(body, headers), String.class);
+    HttpHeaders responseHeaders = new HttpHeaders();
+    if (response.getHeaders().getContentType() != null) {
+      responseHeaders.setContentType(response.getHeaders().getContentType());
+    }
+    return new ResponseEntity<>(response.getBody(), responseHeaders, response.getStatusCode());
+  }
+
+  /** Runs a transfer between two accounts that {@code node} both owns. */
+  public TransferOutcome transfer(int node, String sourceAccountId, String targetAccountId,
+                                  long amount) {
+    return call(node, "/transfers", new PartitionRequest(null, sourceAccountId, targetAccountId, amount),
+      TransferOutcome.class);
+  }
+
+  /** The participant steps of {@code node}. */
+  public PartitionParticipant participant(int node) {
+    return new PartitionParticipant() {
+      @Override
+      public TransferOutcome reserve(String transferId, String sourceAccountId,
+                                     String targetAccountId, long amount) {
+        return call(node, "/reservations",
+          new PartitionRequest(transferId, sourceAccountId, targetAccountId, amount),
+          TransferOutcome.class);
+      }
+
+      @Override
+      public boolean commit(String transferId) {
+        return call(node, "/reservations/" + transferId + "/commit", null, Boolean.class);
+      }
+
+      @Override
+      public void cancel(String transferId) {
+        call(node, "/reservations/" + transferId + "/cancel", null, Void.class);
+      }
+
+      @Override
+      public TransferOutcome prepareCredit(String targetAccountId, long amount) {
+        return call(node, "/credits/prepare", new PartitionRequest(null, null, targetAccountId, amount),
+          TransferOutcome.class);
+      }
+
+      @Override
+      public TransferOutcome credit(String transferId, String sourceAccountId,
+                                    String targetAccountId, long amount) {
+        return call(node, "/credits",
+          new PartitionRequest(transferId, sourceAccountId, targetAccountId, amount),
+          TransferOutcome.class);
+      }
+    };
+  }
+
+  private <T> T call(int node, String path, PartitionRequest body, Class<T> responseType) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(SECRET_HEADER, secret);
+    ResponseEntity<T> response = exchange(node, HttpMethod.POST, INTERNAL_PATH + path,
+      new HttpEntity<>(body, headers), responseType);
+    if (!response.getStatusCode().is2xxSuccessful()) {
+      throw new PartitionUnavailableException("Node " + partitions.url(node) + " answered "
+        + response.getStatusCode() + " to " + path);
+    }
+    return response.getBody();
+  }
+
+  private <T> ResponseEntity<T> exchange(int node, HttpMethod method, String pathAndQuery,
+                                         HttpEntity<?> entity, Class<T> responseType) {
+    try {
+      return restTemplate.exchange(URI.create(partitions.url(node) + pathAndQuery), method, entity,
+        responseType);
+    } catch (RestClientException ex) {
+      throw new PartitionUnavailableException("Node " + partitions.url(node) + " is unavailable", ex);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "accounts.cluster")
+public class ClusterProperties {
+
+  private boolean enabled;
+
+  /** Base URL of every node, in the same order on all of them. */
+  private List<String> nodes = new ArrayList<>();
+
+  /**
+   * Shared by all nodes and sent with every call between them; requests to the internal
+   * endpoints or marked as forwarded without it are refused.
+   */
+  private String secret = "";
+
+  /** Position of this node in {@link #nodes}. */
+  private int self;
+
+  /** Points each node gets on the hash ring; more points spread accounts more evenly. */
+  private int virtualNodes = 256;
+
+  /** How long a reserved amount stays held before it goes back to the source account. */
+  private long reservationTimeoutMillis = 5_000;
+
+  /** Connect and read timeout of every call to another node. */
+  private int requestTimeoutMillis = 1_000;
+
+  /** Attempts at a call whose outcome the transfer cannot go on without. */
+  private int attempts = 3;
+}
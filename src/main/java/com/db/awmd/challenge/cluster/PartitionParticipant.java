@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.cluster;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+
+/**
+ * The steps a node takes for a transfer between one of its accounts and an account of another
+ * node. The source node reserves the amount and later commits or cancels the reservation; a
+ * reservation that is neither within the reservation timeout goes back to the source account
+ * by itself. The target node first checks that it can take the credit, then applies it.
+ * Commits and credits are idempotent per transfer id, so they can be retried.
+ */
+public interface PartitionParticipant {
+
+  /**
+   * Debits {@code amount} from the source account and holds it under {@code transferId}.
+   *
+   * @return {@link TransferOutcome#COMPLETED} once the amount is held, or why it is not
+   */
+  TransferOutcome reserve(String transferId, String sourceAccountId, String targetAccountId,
+                          long amount);
+
+  /**
+   * Makes the reservation final.
+   *
+   * @return {@code false} if the reservation timed out or was cancelled, in which case the
+   *     amount is back on the source account
+   */
+  boolean commit(String transferId);
+
+  /** Puts the reserved amount back on the source account, unless it was committed. */
+  void cancel(String transferId);
+
+  /** Checks that {@code targetAccountId} exists and can take {@code amount}. */
+  TransferOutcome prepareCredit(String targetAccountId, long amount);
+
+  /** Credits {@code amount} to the target account once per {@code transferId}. */
+  TransferOutcome credit(String transferId, String sourceAccountId, String targetAccountId,
+                         long amount);
+}
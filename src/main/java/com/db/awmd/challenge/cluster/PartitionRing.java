@@ -0,0 +1,75 @@
+package com.db.awmd.challenge.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring that maps account ids to nodes. Each node is hashed onto the ring at
+ * {@code virtualNodes} points derived from its name; an account belongs to the node of the
+ * first point at or after the hash of its id. Adding or removing a node therefore moves only
+ * the accounts of the ring segments it gains or loses.
+ *
+ * <p>The points are kept in a sorted array, so a lookup is one hash and a binary search.
+ */
+public final class PartitionRing {
+
+  private final long[] points;
+
+  private final int[] owners;
+
+  /**
+   * @param nodes names of the nodes; the position of each one is what {@link #ownerOf} returns
+   */
+  public PartitionRing(List<String> nodes, int virtualNodes) {
+    if (nodes.isEmpty() || virtualNodes < 1) {
+      throw new IllegalArgumentException("The ring needs at least one node and one point per node");
+    }
+    TreeMap<Long, Integer> ring = new TreeMap<>();
+    for (int node = 0; node < nodes.size(); node++) {
+      for (int point = 0; point < virtualNodes; point++) {
+        // A collision gives the point to the later node; either way both nodes agree.
+        ring.put(hash(nodes.get(node) + "#" + point), node);
+      }
+    }
+    this.points = new long[ring.size()];
+    this.owners = new int[ring.size()];
+    int i = 0;
+    for (Map.Entry<Long, Integer> entry : ring.entrySet()) {
+      points[i] = entry.getKey();
+      owners[i] = entry.getValue();
+      i++;
+    }
+  }
+
+  /** Position of the node that owns {@code accountId}. */
+  public int ownerOf(String accountId) {
+    long hash = hash(accountId);
+    int low = 0;
+    int high = points.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (points[middle] < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return owners[low == points.length ? 0 : low];
+  }
+
+  /** 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer. */
+  static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,262 @@
+package com.db.awmd.challenge.cluster;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.PartitionUnavailableException;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a transfer where its accounts live. A transfer between accounts of this node goes
+ * straight to the {@link AccountsService}, one between two accounts of another node is sent
+ * to that node, and one between two nodes is coordinated here:
+ *
+ * <ol>
+ *   <li>the source node reserves the amount, which it gives back by itself if it hears
+ *       nothing more within the reservation timeout;</li>
+ *   <li>the target node checks that it can take the credit; if not, the reservation is
+ *       cancelled;</li>
+ *   <li>the source node commits the reservation, which decides the transfer;</li>
+ *   <li>the target node applies the credit. A credit that cannot be delivered now is retried
+ *       in the background; one that the target node rejects goes back to the source.</li>
+ * </ol>
+ *
+ * While the credit is on its way the amount is on neither account, as between the shards of
+ * the sharded engine.
+ */
+@Slf4j
+@Component
+public class PartitionedTransfers {
+
+  /** Background attempts at finishing a transfer before it is left for reconciliation. */
+  private static final int MAX_BACKGROUND_ATTEMPTS = 100;
+
+  private final AccountsService accountsService;
+
+  private final AccountPartitions partitions;
+
+  private final ReservationLedger ledger;
+
+  private final ClusterClient client;
+
+  private final AccountsMetrics metrics;
+
+  private final int attempts;
+
+  private final long firstRetryMillis;
+
+  private final long lastRetryMillis;
+
+  /** Null unless the cluster is enabled. */
+  private final ScheduledExecutorService retries;
+
+  @Autowired
+  public PartitionedTransfers(AccountsService accountsService, AccountPartitions partitions,
+                              ReservationLedger ledger, ClusterClient client,
+                              AccountsMetrics metrics, ClusterProperties properties) {
+    if (properties.getAttempts() < 1) {
+      throw new IllegalArgumentException("At least one attempt is required");
+    }
+    this.accountsService = accountsService;
+    this.partitions = partitions;
+    this.ledger = ledger;
+    this.client = client;
+    this.metrics = metrics;
+    this.attempts = properties.getAttempts();
+    this.firstRetryMillis = Math.max(1, properties.getRequestTimeoutMillis());
+    this.lastRetryMillis = Math.max(firstRetryMillis, properties.getReservationTimeoutMillis());
+    this.retries = partitions.isEnabled() ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "partition-retry");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (retries != null) {
+      retries.shutdownNow();
+    }
+  }
+
+  /**
+   * Same as {@link AccountsService#tryTransfer}, wherever the accounts live.
+   *
+   * @throws PartitionUnavailableException if another node needed for the transfer could not
+   *     be reached and the transfer was not applied, or it is not known yet whether it was
+   */
+  public TransferOutcome tryTransfer(String sourceAccountId, String targetAccountId, long amount) {
+    if (!partitions.isEnabled() || sourceAccountId.equals(targetAccountId)) {
+      return accountsService.tryTransfer(sourceAccountId, targetAccountId, amount);
+    }
+    int sourceNode = partitions.ownerOf(sourceAccountId);
+    int targetNode = partitions.ownerOf(targetAccountId);
+    if (sourceNode == targetNode) {
+      return sourceNode == partitions.self()
+        ? accountsService.tryTransfer(sourceAccountId, targetAccountId, amount)
+        : client.transfer(sourceNode, sourceAccountId, targetAccountId, amount);
+    }
+
+    long start = metrics.startTransfer();
+    TransferOutcome outcome = null;
+    try {
+      outcome = transferAcross(sourceAccountId, sourceNode, targetAccountId, targetNode, amount);
+      return outcome;
+    } finally {
+      metrics.endTransfer(start, outcome);
+    }
+  }
+
+  /**
+   * Same as {@link AccountsService#tryTransferAsync}, wherever the accounts live.
+   *
+   * @throws RejectedExecutionException if the executor already holds as many transfers as it
+   *     admits
+   */
+  public CompletableFuture<TransferOutcome> tryTransferAsync(String sourceAccountId,
+                                                             String targetAccountId, long amount) {
+    if (partitions.isLocal(sourceAccountId) && partitions.isLocal(targetAccountId)) {
+      return accountsService.tryTransferAsync(sourceAccountId, targetAccountId, amount);
+    }
+    return accountsService.supplyAsync(() -> tryTransfer(sourceAccountId, targetAccountId, amount));
+  }
+
+  private TransferOutcome transferAcross(String sourceAccountId, int sourceNode,
+                                         String targetAccountId, int targetNode, long amount) {
+    String transferId = UUID.randomUUID().toString();
+    PartitionParticipant source = participant(sourceNode);
+    PartitionParticipant target = participant(targetNode);
+
+    TransferOutcome prepared;
+    try {
+      prepared = source.reserve(transferId, sourceAccountId, targetAccountId, amount);
+      if (prepared == TransferOutcome.COMPLETED) {
+        prepared = target.prepareCredit(targetAccountId, amount);
+        if (prepared != TransferOutcome.COMPLETED) {
+          cancelQuietly(source, transferId);
+        }
+      }
+    } catch (PartitionUnavailableException ex) {
+      // The reservation may have been made; if the cancel does not get through, it times out.
+      cancelQuietly(source, transferId);
+      throw ex;
+    }
+    if (prepared != TransferOutcome.COMPLETED) {
+      return prepared;
+    }
+
+    Boolean committed = commit(source, transferId);
+    if (committed == null) {
+      retryLater(transferId, () -> {
+        if (source.commit(transferId)) {
+          deliverCredit(transferId, source, target, sourceAccountId, targetAccountId, amount);
+        }
+        return true;
+      });
+      throw new PartitionUnavailableException("Transfer " + transferId + " could not be confirmed "
+        + "by node " + partitions.url(sourceNode) + "; it is applied only if that node committed it");
+    }
+    if (!committed) {
+      throw new PartitionUnavailableException("Transfer " + transferId + " timed out before it "
+        + "was committed and was not applied");
+    }
+    return deliverCredit(transferId, source, target, sourceAccountId, targetAccountId, amount);
+  }
+
+  /** Returns whether the reservation was committed, or null if no attempt got an answer. */
+  private Boolean commit(PartitionParticipant source, String transferId) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return source.commit(transferId);
+      } catch (PartitionUnavailableException ex) {
+        if (attempt == attempts) {
+          log.warn("Commit of transfer {} failed {} times", transferId, attempts, ex);
+          return null;
+        }
+      }
+    }
+  }
+
+  private TransferOutcome deliverCredit(String transferId, PartitionParticipant source,
+                                        PartitionParticipant target, String sourceAccountId,
+                                        String targetAccountId, long amount) {
+    TransferOutcome credited;
+    try {
+      credited = target.credit(transferId, sourceAccountId, targetAccountId, amount);
+    } catch (PartitionUnavailableException ex) {
+      log.warn("Credit of transfer {} is retried in the background", transferId, ex);
+      retryLater(transferId, () -> {
+        TransferOutcome later = target.credit(transferId, sourceAccountId, targetAccountId, amount);
+        if (later != TransferOutcome.COMPLETED) {
+          refund(transferId, source, sourceAccountId, targetAccountId, amount);
+        }
+        return true;
+      });
+      return TransferOutcome.COMPLETED;
+    }
+    if (credited != TransferOutcome.COMPLETED) {
+      refund(transferId, source, sourceAccountId, targetAccountId, amount);
+    }
+    return credited;
+  }
+
+  /** Gives a committed amount that the target node rejected back to the source account. */
+  private void refund(String transferId, PartitionParticipant source, String sourceAccountId,
+                      String targetAccountId, long amount) {
+    log.warn("Credit of transfer {} to {} was rejected; refunding {}", transferId, targetAccountId,
+      sourceAccountId);
+    retryLater(transferId, () -> source.credit(transferId + ":refund", targetAccountId, sourceAccountId,
+      amount) == TransferOutcome.COMPLETED);
+  }
+
+  private void cancelQuietly(PartitionParticipant source, String transferId) {
+    try {
+      source.cancel(transferId);
+    } catch (PartitionUnavailableException ex) {
+      log.warn("Cancel of transfer {} failed; its reservation will time out", transferId, ex);
+    }
+  }
+
+  private PartitionParticipant participant(int node) {
+    return node == partitions.self() ? ledger : client.participant(node);
+  }
+
+  /**
+   * Runs {@code step} on the retry thread until it returns true, backing off from the request
+   * timeout to the reservation timeout between attempts, at most
+   * {@value #MAX_BACKGROUND_ATTEMPTS} times.
+   */
+  private void retryLater(String transferId, BooleanSupplier step) {
+    retryLater(transferId, step, firstRetryMillis, 1);
+  }
+
+  private void retryLater(String transferId, BooleanSupplier step, long delayMillis, int attempt) {
+    retries.schedule(() -> {
+      try {
+        if (step.getAsBoolean()) {
+          return;
+        }
+      } catch (PartitionUnavailableException ex) {
+        log.warn("Attempt {} to finish transfer {} failed", attempt, transferId, ex);
+      } catch (RuntimeException ex) {
+        log.error("Transfer {} could not be finished and must be reconciled", transferId, ex);
+        return;
+      }
+      if (attempt == MAX_BACKGROUND_ATTEMPTS) {
+        log.error("Transfer {} could not be finished and must be reconciled", transferId);
+        return;
+      }
+      retryLater(transferId, step, Math.min(delayMillis * 2, lastRetryMillis), attempt + 1);
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+}
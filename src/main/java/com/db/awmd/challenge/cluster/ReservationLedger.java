@@ -0,0 +1,220 @@
+package com.db.awmd.challenge.cluster;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferHistory;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.NotificationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This node's side of the transfers that span partitions. Reserved amounts are held in memory
+ * by transfer id; whoever removes a reservation first, commit, cancel or expiry, decides what
+ * becomes of it. Committed and credited transfer ids are remembered for ten reservation
+ * timeouts so that retries of either are answered without applying them again.
+ *
+ * <p>Reservations do not survive a restart of the node; the amounts they held stay debited.
+ */
+@Slf4j
+@Component
+public class ReservationLedger implements PartitionParticipant {
+
+  /** How much longer than a reservation the ids of finished transfers are remembered. */
+  private static final int REMEMBERED_TIMEOUTS = 10;
+
+  private final AccountsRepository accountsRepository;
+
+  private final AccountLockManager lockManager;
+
+  private final TransferHistory transferHistory;
+
+  private final NotificationService notificationService;
+
+  private final BalanceSnapshots balanceSnapshots;
+
+  private final long timeoutNanos;
+
+  private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+  private final Cache<String, Boolean> committed;
+
+  private final Cache<String, Boolean> credited;
+
+  /** Null unless the cluster is enabled. */
+  private final ScheduledExecutorService expiry;
+
+  @Autowired
+  public ReservationLedger(AccountsRepository accountsRepository, AccountLockManager lockManager,
+                           TransferHistory transferHistory, NotificationService notificationService,
+                           BalanceSnapshots balanceSnapshots, ClusterProperties properties) {
+    if (properties.getReservationTimeoutMillis() < 1) {
+      throw new IllegalArgumentException("The reservation timeout must be positive");
+    }
+    this.accountsRepository = accountsRepository;
+    this.lockManager = lockManager;
+    this.transferHistory = transferHistory;
+    this.notificationService = notificationService;
+    this.balanceSnapshots = balanceSnapshots;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getReservationTimeoutMillis());
+    this.committed = Caffeine.newBuilder().executor(Runnable::run)
+      .expireAfterWrite(REMEMBERED_TIMEOUTS * timeoutNanos, TimeUnit.NANOSECONDS).build();
+    this.credited = Caffeine.newBuilder().executor(Runnable::run)
+      .expireAfterWrite(REMEMBERED_TIMEOUTS * timeoutNanos, TimeUnit.NANOSECONDS).build();
+    if (properties.isEnabled()) {
+      long period = Math.max(1, properties.getReservationTimeoutMillis() / 4);
+      this.expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-expiry");
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.expiry.scheduleWithFixedDelay(this::expire, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      this.expiry = null;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (expiry != null) {
+      expiry.shutdownNow();
+    }
+  }
+
+  @Override
+  public TransferOutcome reserve(String transferId, String sourceAccountId, String targetAccountId,
+                                 long amount) {
+    if (reservations.containsKey(transferId) || committed.getIfPresent(transferId) != null) {
+      return TransferOutcome.COMPLETED;
+    }
+    Account source = accountsRepository.getAccount(sourceAccountId);
+    if (source == null) {
+      return TransferOutcome.SOURCE_NOT_FOUND;
+    }
+    try (AccountLockManager.Locks ignored = lockManager.lockAll(Collections.singleton(sourceAccountId))) {
+      balanceSnapshots.beforeChange(source);
+      if (!source.withdraw(amount)) {
+        return TransferOutcome.INSUFFICIENT_FUNDS;
+      }
+    }
+    reservations.put(transferId, new Reservation(source, targetAccountId, amount,
+      System.nanoTime() + timeoutNanos));
+    return TransferOutcome.COMPLETED;
+  }
+
+  @Override
+  public boolean commit(String transferId) {
+    Reservation reservation = reservations.remove(transferId);
+    if (reservation == null) {
+      return committed.getIfPresent(transferId) != null;
+    }
+    committed.put(transferId, Boolean.TRUE);
+    transferHistory.record(reservation.source.getAccountId(), reservation.targetAccountId,
+      reservation.amount);
+    notificationService.notifyAboutTransfer(reservation.source,
+      "Withdrawing " + MinorUnits.toDecimal(reservation.amount) + " from the account");
+    return true;
+  }
+
+  @Override
+  public void cancel(String transferId) {
+    Reservation reservation = reservations.remove(transferId);
+    if (reservation != null) {
+      release(transferId, reservation);
+    }
+  }
+
+  @Override
+  public TransferOutcome prepareCredit(String targetAccountId, long amount) {
+    Account target = accountsRepository.getAccount(targetAccountId);
+    if (target == null) {
+      return TransferOutcome.TARGET_NOT_FOUND;
+    }
+    return target.canDeposit(amount) ? TransferOutcome.COMPLETED : TransferOutcome.INSUFFICIENT_FUNDS;
+  }
+
+  @Override
+  public TransferOutcome credit(String transferId, String sourceAccountId, String targetAccountId,
+                                long amount) {
+    if (credited.asMap().putIfAbsent(transferId, Boolean.TRUE) != null) {
+      return TransferOutcome.COMPLETED;
+    }
+    Account target = accountsRepository.getAccount(targetAccountId);
+    boolean deposited = false;
+    if (target != null) {
+      try (AccountLockManager.Locks ignored = lockManager.lockAll(Collections.singleton(targetAccountId))) {
+        balanceSnapshots.beforeChange(target);
+        deposited = target.deposit(amount);
+      }
+    }
+    if (!deposited) {
+      credited.invalidate(transferId);
+      return target == null ? TransferOutcome.TARGET_NOT_FOUND : TransferOutcome.INSUFFICIENT_FUNDS;
+    }
+    transferHistory.record(sourceAccountId, targetAccountId, amount);
+    notificationService.notifyAboutTransfer(target,
+      "Depositing " + MinorUnits.toDecimal(amount) + " to the account");
+    return TransferOutcome.COMPLETED;
+  }
+
+  /** Number of amounts currently held. */
+  public int reservations() {
+    return reservations.size();
+  }
+
+  void expire() {
+    long now = System.nanoTime();
+    for (Map.Entry<String, Reservation> entry : reservations.entrySet()) {
+      Reservation reservation = entry.getValue();
+      if (now - reservation.deadline >= 0 && reservations.remove(entry.getKey(), reservation)) {
+        log.warn("Reservation of transfer {} timed out", entry.getKey());
+        release(entry.getKey(), reservation);
+      }
+    }
+  }
+
+  private void release(String transferId, Reservation reservation) {
+    Account source = reservation.source;
+    boolean deposited;
+    try (AccountLockManager.Locks ignored =
+           lockManager.lockAll(Collections.singleton(source.getAccountId()))) {
+      balanceSnapshots.beforeChange(source);
+      deposited = source.deposit(reservation.amount);
+    }
+    if (!deposited) {
+      log.error("Reservation of transfer {} could not be released: {} minor units would overflow "
+        + "account {}", transferId, reservation.amount, source.getAccountId());
+    }
+  }
+
+  private static final class Reservation {
+
+    private final Account source;
+
+    private final String targetAccountId;
+
+    private final long amount;
+
+    private final long deadline;
+
+    private Reservation(Account source, String targetAccountId, long amount, long deadline) {
+      this.source = source;
+      this.targetAccountId = targetAccountId;
+      this.amount = amount;
+      this.deadline = deadline;
+    }
+  }
+}
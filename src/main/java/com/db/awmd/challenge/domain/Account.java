@@ -1,46 +1,101 @@
 package com.db.awmd.challenge.domain;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.hibernate.validator.constraints.NotEmpty;
 
 @Data
 public class Account {
 
+  private static final AtomicLongFieldUpdater<Account> BALANCE =
+    AtomicLongFieldUpdater.newUpdater(Account.class, "balanceInMinorUnits");
+
   @NotNull
   @NotEmpty
   private final String accountId;
 
-  @NotNull
-  @Min(value = 0, message = "Initial balance must be positive.")
-  private volatile BigDecimal balance;
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private volatile long balanceInMinorUnits;
 
   public Account(String accountId) {
     this.accountId = accountId;
-    this.balance = BigDecimal.ZERO;
+  }
+
+  public Account(String accountId, long balanceInMinorUnits) {
+    this.accountId = accountId;
+    this.balanceInMinorUnits = balanceInMinorUnits;
   }
 
   @JsonCreator
   public Account(@JsonProperty("accountId") String accountId,
                  @JsonProperty("balance") BigDecimal balance) {
-    this.accountId = accountId;
-    this.balance = balance;
+    this(accountId, MinorUnits.fromDecimal(balance));
+  }
+
+  @NotNull
+  @Min(value = 0, message = "Initial balance must be positive.")
+  public BigDecimal getBalance() {
+    return MinorUnits.toDecimal(loadBalance());
   }
 
-  public synchronized boolean withdraw(BigDecimal amount) {
-    if (this.balance.compareTo(amount) < 0) {
-      return false;
-    }
-    this.balance = this.balance.subtract(amount);
+  public void setBalance(BigDecimal balance) {
+    storeBalance(MinorUnits.fromDecimal(balance));
+  }
+
+  @JsonIgnore
+  public long getBalanceInMinorUnits() {
+    return loadBalance();
+  }
+
+  public boolean withdraw(long amount) {
+    long current;
+    do {
+      current = loadBalance();
+      if (current < amount) {
+        return false;
+      }
+    } while (!compareAndSetBalance(current, current - amount));
     return true;
   }
 
-  public synchronized boolean deposit(BigDecimal amount) {
-    this.balance = this.balance.add(amount);
+  public boolean deposit(long amount) {
+    long current;
+    do {
+      current = loadBalance();
+      if (current > Long.MAX_VALUE - amount) {
+        return false;
+      }
+    } while (!compareAndSetBalance(current, current + amount));
     return true;
   }
+
+  public boolean canDeposit(long amount) {
+    return loadBalance() <= Long.MAX_VALUE - amount;
+  }
+
+  /**
+   * The balance is only ever accessed through this and the next two methods, so a repository
+   * that keeps balances outside of account objects can hand out accounts that override them.
+   */
+  protected long loadBalance() {
+    return this.balanceInMinorUnits;
+  }
+
+  protected void storeBalance(long balanceInMinorUnits) {
+    this.balanceInMinorUnits = balanceInMinorUnits;
+  }
+
+  protected boolean compareAndSetBalance(long expected, long updated) {
+    return BALANCE.compareAndSet(this, expected, updated);
+  }
 }
@@ -0,0 +1,33 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.Value;
+
+/** Aggregates of all balances as of a single point in time. */
+@Value
+public class BalanceSummary {
+
+  /** When the balances were cut, in milliseconds since the epoch. */
+  private final long timestamp;
+
+  private final long accounts;
+
+  private final BigDecimal total;
+
+  /** Ascending by upper bound; the last bucket has none. */
+  private final List<Bucket> buckets;
+
+  @Value
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public static class Bucket {
+
+    /** The largest balance in the bucket, which starts above the bound of the previous one. */
+    private final BigDecimal upperBound;
+
+    private final long accounts;
+
+    private final BigDecimal total;
+  }
+}
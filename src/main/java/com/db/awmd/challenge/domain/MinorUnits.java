@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts between decimal amounts used by the REST API and the minor units (cents) that
+ * balances are kept in internally.
+ */
+public final class MinorUnits {
+
+  public static final int SCALE = 2;
+
+  private MinorUnits() {
+  }
+
+  public static long fromDecimal(BigDecimal amount) {
+    if (amount == null) {
+      throw new IllegalArgumentException("Amount must not be null");
+    }
+    try {
+      return amount.setScale(SCALE).unscaledValue().longValueExact();
+    } catch (ArithmeticException ex) {
+      throw new IllegalArgumentException(
+        "Amount " + amount + " cannot be represented with " + SCALE + " fraction digits", ex);
+    }
+  }
+
+  public static BigDecimal toDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+
+  /** Same as {@code toDecimal(minorUnits).toPlainString()}, without the {@code BigDecimal}. */
+  public static String toPlainString(long minorUnits) {
+    long whole = minorUnits / 100;
+    int fraction = (int) Math.abs(minorUnits % 100);
+    StringBuilder text = new StringBuilder(24);
+    if (minorUnits < 0 && whole == 0) {
+      text.append('-');
+    }
+    text.append(whole).append('.');
+    if (fraction < 10) {
+      text.append('0');
+    }
+    return text.append(fraction).toString();
+  }
+}
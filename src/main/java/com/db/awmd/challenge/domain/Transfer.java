@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Value;
+
+@Value
+public class Transfer {
+
+  private final String sourceAccountId;
+
+  private final String targetAccountId;
+
+  private final long amount;
+}
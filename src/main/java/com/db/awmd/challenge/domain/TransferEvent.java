@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+import lombok.Value;
+
+/** A committed transfer as recorded in the transfer history. */
+@Value
+public class TransferEvent {
+
+  /** Position of the transfer among all transfers recorded since startup. */
+  private final long sequence;
+
+  /** When the transfer was recorded, in milliseconds since the epoch. */
+  private final long timestamp;
+
+  private final String sourceAccountId;
+
+  private final String targetAccountId;
+
+  @JsonIgnore
+  private final long amountInMinorUnits;
+
+  public BigDecimal getAmount() {
+    return MinorUnits.toDecimal(amountInMinorUnits);
+  }
+}
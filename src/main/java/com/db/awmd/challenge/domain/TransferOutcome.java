@@ -0,0 +1,45 @@
+package com.db.awmd.challenge.domain;
+
+/**
+ * What became of a single transfer. Rejections are returned rather than thrown, so rejecting
+ * a transfer allocates nothing; {@link #describe} builds the message only when one is needed.
+ */
+public enum TransferOutcome {
+
+  COMPLETED(TransferStatus.COMPLETED),
+
+  SAME_ACCOUNT(TransferStatus.SAME_ACCOUNT),
+
+  SOURCE_NOT_FOUND(TransferStatus.ACCOUNT_NOT_FOUND),
+
+  TARGET_NOT_FOUND(TransferStatus.ACCOUNT_NOT_FOUND),
+
+  INSUFFICIENT_FUNDS(TransferStatus.INSUFFICIENT_FUNDS);
+
+  private final TransferStatus status;
+
+  TransferOutcome(TransferStatus status) {
+    this.status = status;
+  }
+
+  public TransferStatus getStatus() {
+    return status;
+  }
+
+  public String describe(String sourceAccountId, String targetAccountId) {
+    switch (this) {
+      case SAME_ACCOUNT:
+        return "Accounts for transferring money must be different: "
+          + "sourceAccountId = " + sourceAccountId + ", targetAccountId = " + targetAccountId;
+      case SOURCE_NOT_FOUND:
+        return "Account id = " + sourceAccountId + " not found!";
+      case TARGET_NOT_FOUND:
+        return "Account id = " + targetAccountId + " not found!";
+      case INSUFFICIENT_FUNDS:
+        return "Failed to transfer money between accounts: "
+          + "sourceAccountId = " + sourceAccountId + ", targetAccountId = " + targetAccountId;
+      default:
+        return "Transferred money from " + sourceAccountId + " to " + targetAccountId;
+    }
+  }
+}
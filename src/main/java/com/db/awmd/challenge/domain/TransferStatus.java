@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.domain;
+
+public enum TransferStatus {
+
+  COMPLETED,
+
+  INVALID_REQUEST,
+
+  SAME_ACCOUNT,
+
+  ACCOUNT_NOT_FOUND,
+
+  INSUFFICIENT_FUNDS,
+
+  /** Not applied because another transfer of an all-or-nothing batch failed. */
+  NOT_APPLIED
+}
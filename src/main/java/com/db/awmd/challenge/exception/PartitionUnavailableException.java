@@ -0,0 +1,12 @@
+package com.db.awmd.challenge.exception;
+
+public class PartitionUnavailableException extends RuntimeException {
+
+  public PartitionUnavailableException(String message) {
+    super(message);
+  }
+
+  public PartitionUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -1,8 +1,18 @@
 package com.db.awmd.challenge.exception;
 
+import com.db.awmd.challenge.domain.TransferStatus;
+
 public class TransferMoneyException extends RuntimeException {
 
-    public TransferMoneyException(String message) {
+    private final TransferStatus status;
+
+    public TransferMoneyException(String message, TransferStatus status) {
         super(message);
+        this.status = status;
+    }
+
+    /** Why the transfer failed. */
+    public TransferStatus getStatus() {
+        return status;
     }
 }
@@ -0,0 +1,160 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads and writes compact binary snapshots of all account balances.
+ *
+ * <p>A snapshot is {@code [int magic][int version][long journal position][int count]}, the
+ * account ids in ascending order as {@code [short length][UTF-8 bytes]}, the balances in the
+ * same order as longs, and a CRC32 of everything before it. Files are written under a temporary
+ * name and renamed into place, so a crash never leaves a half-written snapshot behind.
+ */
+@Slf4j
+final class AccountSnapshots {
+
+  static final String PREFIX = "snapshot-";
+
+  static final String SUFFIX = ".snap";
+
+  private static final int MAGIC = 0x41434353;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 20;
+
+  private AccountSnapshots() {
+  }
+
+  /** Writes the given balances as of {@code journalPosition} and returns the snapshot file. */
+  static Path write(Path directory, long journalPosition, List<Account> accounts) {
+    accounts.sort(Comparator.comparing(Account::getAccountId));
+    Path file = directory.resolve(String.format("%s%020d%s", PREFIX, journalPosition, SUFFIX));
+    Path temporary = directory.resolve(file.getFileName() + ".tmp");
+    try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+      CRC32 crc = new CRC32();
+      DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, crc), 1 << 16));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeLong(journalPosition);
+      output.writeInt(accounts.size());
+      for (Account account : accounts) {
+        byte[] id = account.getAccountId().getBytes(StandardCharsets.UTF_8);
+        output.writeShort(id.length);
+        output.write(id);
+      }
+      for (Account account : accounts) {
+        output.writeLong(account.getBalanceInMinorUnits());
+      }
+      output.flush();
+      new DataOutputStream(stream).writeInt((int) crc.getValue());
+      stream.getChannel().force(true);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to write snapshot " + file, ex);
+    }
+    try {
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to publish snapshot " + file, ex);
+    }
+    return file;
+  }
+
+  /**
+   * Feeds the accounts of the newest intact snapshot in {@code directory} to {@code consumer}
+   * and returns the journal position it was cut at, or {@code 0} if there is none.
+   */
+  static long loadLatest(Path directory, ObjLongConsumer<String> consumer) {
+    List<Path> snapshots = list(directory);
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      try {
+        return load(snapshots.get(i), consumer);
+      } catch (IOException ex) {
+        log.error("Snapshot {} is damaged, falling back to an older one", snapshots.get(i), ex);
+      }
+    }
+    return 0;
+  }
+
+  /** Returns the snapshot files in {@code directory}, oldest first. */
+  static List<Path> list(Path directory) {
+    List<Path> snapshots = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return snapshots;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+      for (Path path : stream) {
+        snapshots.add(path);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to list snapshots in " + directory, ex);
+    }
+    Collections.sort(snapshots);
+    return snapshots;
+  }
+
+  static long journalPosition(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  private static long load(Path snapshot, ObjLongConsumer<String> consumer) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_SIZE + Integer.BYTES) {
+        throw new IOException("Unexpected snapshot size " + channel.size());
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    int end = buffer.limit() - Integer.BYTES;
+    CRC32 crc = new CRC32();
+    ByteBuffer content = buffer.duplicate();
+    content.limit(end);
+    crc.update(content);
+    if ((int) crc.getValue() != buffer.getInt(end)) {
+      throw new IOException("Snapshot checksum does not match");
+    }
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException("Not a version " + VERSION + " snapshot");
+    }
+    long journalPosition = buffer.getLong();
+    int count = buffer.getInt();
+
+    ByteBuffer balances = buffer.duplicate();
+    balances.position(end - count * Long.BYTES);
+    byte[] id = new byte[64];
+    for (int i = 0; i < count; i++) {
+      int length = buffer.getShort() & 0xFFFF;
+      if (id.length < length) {
+        id = new byte[length];
+      }
+      buffer.get(id, 0, length);
+      consumer.accept(new String(id, 0, length, StandardCharsets.UTF_8), balances.getLong());
+    }
+    return journalPosition;
+  }
+}
@@ -2,12 +2,73 @@ package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 public interface AccountsRepository {
 
+  /** Qualifies the repository that actually stores accounts, as opposed to decorators of it. */
+  String STORE = "accountsStore";
+
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  /**
+   * Creates {@code accounts} in order. The id of each account that already exists goes to
+   * {@code duplicates} instead of failing the others.
+   */
+  default void createAccounts(List<Account> accounts, Consumer<String> duplicates) {
+    for (Account account : accounts) {
+      try {
+        createAccount(account);
+      } catch (DuplicateAccountIdException ex) {
+        duplicates.accept(account.getAccountId());
+      }
+    }
+  }
+
   Account getAccount(String accountId);
 
   void clearAccounts();
+
+  long countAccounts();
+
+  /**
+   * Passes every account to {@code action} without blocking writers. Accounts created while
+   * this runs may or may not be visited.
+   */
+  void forEachAccount(Consumer<Account> action);
+
+  /**
+   * Hands out every account for a scan split over several threads, with the same guarantees
+   * as {@link #forEachAccount}. By default the accounts are first collected into a list.
+   */
+  default Spliterator<Account> accountSpliterator() {
+    List<Account> accounts = new ArrayList<>();
+    forEachAccount(accounts::add);
+    return accounts.spliterator();
+  }
+
+  /**
+   * Registers {@code listener} to hear the id of every account whose balance changed, or
+   * {@code null} when all of them did. Only stores whose accounts are copies call it; accounts
+   * of the other stores are always current.
+   */
+  default void addChangeListener(Consumer<String> listener) {
+  }
+
+  /**
+   * Called by the transfer engine while both accounts are locked, once the transfer has been
+   * validated and right before the balances change.
+   *
+   * @return a position to pass to {@link #awaitDurable(long)} after the locks are released
+   */
+  default long beforeTransfer(Account source, Account target, long amount) {
+    return 0;
+  }
+
+  /** Blocks until every change recorded up to {@code position} is durable. */
+  default void awaitDurable(long position) {
+  }
 }
@@ -3,10 +3,16 @@ package com.db.awmd.challenge.repository;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import java.util.Map;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 @Repository
+@Qualifier(AccountsRepository.STORE)
+@ConditionalOnProperty(name = "accounts.repository.store", havingValue = "map", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
   private final Map<String, Account> accounts = new ConcurrentHashMap<>();
@@ -30,4 +36,19 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
     accounts.clear();
   }
 
+  @Override
+  public long countAccounts() {
+    return accounts.size();
+  }
+
+  @Override
+  public void forEachAccount(Consumer<Account> action) {
+    accounts.values().forEach(action);
+  }
+
+  @Override
+  public Spliterator<Account> accountSpliterator() {
+    return accounts.values().spliterator();
+  }
+
 }
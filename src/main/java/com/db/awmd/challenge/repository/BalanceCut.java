@@ -0,0 +1,47 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The balances of all accounts at one cut, read while transfers keep changing them.
+ *
+ * <p>Whoever takes the cut publishes a new instance while no balance can change and no account
+ * can be created. From then on, whoever changes a balance saves the balance it had at the cut
+ * through {@link #beforeChange}, and whoever creates an account marks it through
+ * {@link #accountCreated} before inserting it. A scan that reads each account through
+ * {@link #balanceAtCut} then sees the accounts as they were at the cut.
+ */
+public final class BalanceCut {
+
+  /** What {@link #balanceAtCut} returns for an account created after the cut. */
+  public static final long CREATED_AFTER_CUT = Long.MIN_VALUE;
+
+  /** Balances at the cut of accounts changed since, and marks of accounts created since. */
+  private final Map<String, Long> preImages = new ConcurrentHashMap<>();
+
+  /** Called right before the account with {@code accountId} is inserted. */
+  public void accountCreated(String accountId) {
+    preImages.put(accountId, CREATED_AFTER_CUT);
+  }
+
+  /** Called while holding the lock of {@code account}, right before its balance changes. */
+  public void beforeChange(Account account) {
+    preImages.putIfAbsent(account.getAccountId(), account.getBalanceInMinorUnits());
+  }
+
+  /**
+   * The balance {@code account} had at the cut, or {@link #CREATED_AFTER_CUT} if it did not
+   * exist then.
+   */
+  public long balanceAtCut(Account account) {
+    // Read the balance before the side map: a writer saves the old balance before changing it.
+    long balance = account.getBalanceInMinorUnits();
+    if (preImages.isEmpty()) {
+      return balance;
+    }
+    Long before = preImages.get(account.getAccountId());
+    return before == null ? balance : before;
+  }
+}
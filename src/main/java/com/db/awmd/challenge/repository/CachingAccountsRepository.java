@@ -0,0 +1,131 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Serves {@link #getAccount} from a bounded in-process cache, so polling balances does not
+ * load the store behind it.
+ *
+ * <p>The cache evicts by W-TinyLFU, which keeps frequently polled accounts over ones read once.
+ * Concurrent misses on the same id wait for a single load, and the store's change notifications
+ * drop an entry once its new balance has been committed; the next read loads it again. A load
+ * that races with a change cannot leave the old balance behind, because the drop waits for a
+ * load in progress on the same id.
+ *
+ * <p>As a {@link MeterBinder} it publishes the cache's size, hits, misses, loads and evictions
+ * to the meter registry as the {@code accounts.cache} cache.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "accounts.cache.enabled", havingValue = "true")
+public class CachingAccountsRepository implements AccountsRepository, MeterBinder {
+
+  private final AccountsRepository delegate;
+
+  private final Cache<String, Account> cache;
+
+  @Autowired
+  public CachingAccountsRepository(@Qualifier(AccountsRepository.STORE) AccountsRepository delegate,
+                                   @Value("${accounts.cache.maximum-size:100000}") long maximumSize,
+                                   @Value("${accounts.journal.enabled:false}") boolean journalEnabled) {
+    if (journalEnabled) {
+      throw new IllegalStateException("The balance cache cannot be combined with the journal");
+    }
+    this.delegate = delegate;
+    // Evict on the calling threads rather than the common pool, which may be busy or starved.
+    this.cache = Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run)
+      .recordStats().build();
+    delegate.addChangeListener(this::invalidate);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "accounts.cache");
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    delegate.createAccount(account);
+    cache.invalidate(account.getAccountId());
+  }
+
+  @Override
+  public void createAccounts(List<Account> accounts, Consumer<String> duplicates) {
+    delegate.createAccounts(accounts, duplicates);
+    accounts.forEach(account -> cache.invalidate(account.getAccountId()));
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    return cache.get(accountId, delegate::getAccount);
+  }
+
+  @Override
+  public void clearAccounts() {
+    delegate.clearAccounts();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public long countAccounts() {
+    return delegate.countAccounts();
+  }
+
+  @Override
+  public void forEachAccount(Consumer<Account> action) {
+    delegate.forEachAccount(action);
+  }
+
+  @Override
+  public Spliterator<Account> accountSpliterator() {
+    return delegate.accountSpliterator();
+  }
+
+  @Override
+  public void addChangeListener(Consumer<String> listener) {
+    delegate.addChangeListener(listener);
+  }
+
+  @Override
+  public long beforeTransfer(Account source, Account target, long amount) {
+    return delegate.beforeTransfer(source, target, amount);
+  }
+
+  @Override
+  public void awaitDurable(long position) {
+    delegate.awaitDurable(position);
+  }
+
+  /** Hits, misses, loads and evictions since startup. */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public long getSize() {
+    return cache.estimatedSize();
+  }
+
+  private void invalidate(String accountId) {
+    if (accountId == null) {
+      cache.invalidateAll();
+    } else {
+      cache.invalidate(accountId);
+    }
+  }
+}
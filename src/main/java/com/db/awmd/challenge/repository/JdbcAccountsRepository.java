@@ -0,0 +1,200 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps accounts in the {@code account} table, so several instances can share them.
+ *
+ * <p>Accounts returned by this repository are detached copies of a row; balances change only
+ * through the conditional updates below, which the {@code jdbc} transfer engine runs inside a
+ * transaction. Rows are always locked in ascending account id order, so concurrent transfers
+ * and batches cannot deadlock.
+ *
+ * <p>Change listeners hear about an account once the transaction that changed it has ended.
+ * They only see the writes of this instance.
+ */
+@Repository
+@Qualifier(AccountsRepository.STORE)
+@ConditionalOnProperty(name = "accounts.repository.store", havingValue = "jdbc")
+public class JdbcAccountsRepository implements AccountsRepository {
+
+  private static final String INSERT = "INSERT INTO account (account_id, balance) VALUES (?, ?)";
+
+  private static final String INSERT_IF_ABSENT = "INSERT INTO account (account_id, balance) "
+    + "SELECT ?, ? FROM (VALUES (0)) WHERE NOT EXISTS (SELECT 1 FROM account WHERE account_id = ?)";
+
+  private static final String SELECT = "SELECT balance FROM account WHERE account_id = ?";
+
+  private static final String DEBIT =
+    "UPDATE account SET balance = balance - ? WHERE account_id = ? AND balance >= ?";
+
+  private static final String CREDIT =
+    "UPDATE account SET balance = balance + ? WHERE account_id = ? AND balance <= ?";
+
+  private static final String UPDATE = "UPDATE account SET balance = ? WHERE account_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+  @Autowired
+  public JdbcAccountsRepository(JdbcTemplate jdbcTemplate,
+                                @Value("${accounts.transfer.mode:locking}") String transferMode) {
+    if (!"jdbc".equals(transferMode)) {
+      throw new IllegalStateException("The jdbc store requires accounts.transfer.mode=jdbc");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    try {
+      jdbcTemplate.update(INSERT, account.getAccountId(), account.getBalanceInMinorUnits());
+    } catch (DuplicateKeyException ex) {
+      throw new DuplicateAccountIdException(
+        "Account id " + account.getAccountId() + " already exists!");
+    }
+  }
+
+  /**
+   * Inserts the accounts whose id is not taken yet with one JDBC batch. An account inserted
+   * concurrently under the same id fails the batch with {@link DuplicateAccountIdException}.
+   */
+  @Override
+  public void createAccounts(List<Account> accounts, Consumer<String> duplicates) {
+    List<Object[]> rows = new ArrayList<>(accounts.size());
+    for (Account account : accounts) {
+      rows.add(new Object[] {account.getAccountId(), account.getBalanceInMinorUnits(),
+        account.getAccountId()});
+    }
+    int[] inserted;
+    try {
+      inserted = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, rows);
+    } catch (DuplicateKeyException ex) {
+      throw new DuplicateAccountIdException("A batch of " + accounts.size()
+        + " accounts contains an id that was inserted concurrently");
+    }
+    for (int i = 0; i < inserted.length; i++) {
+      if (inserted[i] == 0) {
+        duplicates.accept(accounts.get(i).getAccountId());
+      }
+    }
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    List<Long> balance = jdbcTemplate.queryForList(SELECT, Long.class, accountId);
+    return balance.isEmpty() ? null : new Account(accountId, balance.get(0));
+  }
+
+  @Override
+  public void clearAccounts() {
+    jdbcTemplate.update("DELETE FROM account");
+    changed(null);
+  }
+
+  @Override
+  public long countAccounts() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account", Long.class);
+  }
+
+  @Override
+  public void addChangeListener(Consumer<String> listener) {
+    changeListeners.add(listener);
+  }
+
+  @Override
+  public void forEachAccount(Consumer<Account> action) {
+    jdbcTemplate.query("SELECT account_id, balance FROM account",
+      resultSet -> {
+        action.accept(new Account(resultSet.getString(1), resultSet.getLong(2)));
+      });
+  }
+
+  /** Takes {@code amount} from the account if it holds at least that much; locks its row. */
+  public boolean debit(String accountId, long amount) {
+    boolean debited = jdbcTemplate.update(DEBIT, amount, accountId, amount) == 1;
+    changed(Collections.singleton(accountId));
+    return debited;
+  }
+
+  /** Adds {@code amount} to the account unless its balance would overflow; locks its row. */
+  public boolean credit(String accountId, long amount) {
+    boolean credited = jdbcTemplate.update(CREDIT, amount, accountId, Long.MAX_VALUE - amount) == 1;
+    changed(Collections.singleton(accountId));
+    return credited;
+  }
+
+  /**
+   * Locks the rows of {@code accountIds} in ascending id order and returns detached copies of
+   * them. Must run inside a transaction, which holds the locks until it ends.
+   */
+  public List<Account> lockAccounts(Collection<String> accountIds) {
+    List<String> sorted = new ArrayList<>(accountIds);
+    Collections.sort(sorted);
+    List<Account> accounts = new ArrayList<>(sorted.size());
+    for (String accountId : sorted) {
+      List<Long> balance = jdbcTemplate.queryForList(SELECT + " FOR UPDATE", Long.class, accountId);
+      if (!balance.isEmpty()) {
+        accounts.add(new Account(accountId, balance.get(0)));
+      }
+    }
+    return accounts;
+  }
+
+  /** Writes the balances of {@code accounts} with one JDBC batch, in ascending id order. */
+  public void updateBalances(List<Account> accounts) {
+    List<Account> sorted = new ArrayList<>(accounts);
+    sorted.sort((first, second) -> first.getAccountId().compareTo(second.getAccountId()));
+    List<Object[]> rows = new ArrayList<>(sorted.size());
+    List<String> accountIds = new ArrayList<>(sorted.size());
+    for (Account account : sorted) {
+      rows.add(new Object[] {account.getBalanceInMinorUnits(), account.getAccountId()});
+      accountIds.add(account.getAccountId());
+    }
+    jdbcTemplate.batchUpdate(UPDATE, rows);
+    changed(accountIds);
+  }
+
+  /** Tells the listeners about {@code accountIds}, or all accounts, once the change is committed. */
+  private void changed(Collection<String> accountIds) {
+    if (changeListeners.isEmpty()) {
+      return;
+    }
+    Runnable notification = () -> {
+      for (Consumer<String> listener : changeListeners) {
+        if (accountIds == null) {
+          listener.accept(null);
+        } else {
+          accountIds.forEach(listener);
+        }
+      }
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          notification.run();
+        }
+      });
+    } else {
+      notification.run();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Starts the datasource, its schema, the {@code JdbcTemplate} and the transaction manager for
+ * the jdbc store only. The application excludes their auto-configuration, so the other stores
+ * open no database and no connection pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.repository.store", havingValue = "jdbc")
+@Import({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+  JdbcTemplateAutoConfiguration.class})
+public class JdbcStoreConfiguration {
+}
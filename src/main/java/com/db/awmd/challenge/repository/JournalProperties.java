@@ -0,0 +1,26 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.repository.TransferJournal.Durability;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "accounts.journal")
+public class JournalProperties {
+
+  private boolean enabled;
+
+  private String directory = "data/journal";
+
+  private int segmentSize = 64 * 1024 * 1024;
+
+  private Durability durability = Durability.PER_BATCH;
+
+  /** How long the flusher sleeps when idle, and between flushes in {@code async} mode. */
+  private long flushIntervalMillis = 1;
+
+  /** How often a snapshot is written so startup replays less of the journal; 0 disables it. */
+  private long snapshotIntervalSeconds = 300;
+}
@@ -0,0 +1,267 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.service.AccountLockManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Makes the in-memory repository durable: account creations and transfers are appended to a
+ * {@link TransferJournal}, which is replayed into the in-memory repository on startup.
+ *
+ * <p>Transfers are appended while their accounts are locked, so the journal holds the changes
+ * of every single account in the order they were applied. The transfer thread waits for
+ * durability only after the locks are released, which lets one flush cover many transfers.
+ *
+ * <p>Snapshots bound the replay on startup. A snapshot is cut while holding every account lock
+ * just long enough to note the journal position and start a {@link BalanceCut}, which the
+ * snapshot scan reads the state at the cut from while transfers keep running. Startup loads the
+ * newest snapshot and replays only the journal written after it.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "true")
+public class JournalingAccountsRepository implements AccountsRepository {
+
+  private static final int RETAINED_SNAPSHOTS = 2;
+
+  private final AccountsRepository delegate;
+
+  private final AccountLockManager lockManager;
+
+  private final Path directory;
+
+  private final TransferJournal journal;
+
+  private final ScheduledExecutorService snapshotScheduler;
+
+  /** The cut of the snapshot being taken, if any. */
+  private volatile BalanceCut cut;
+
+  private volatile long clears;
+
+  @Autowired
+  public JournalingAccountsRepository(@Qualifier(AccountsRepository.STORE) AccountsRepository delegate,
+                                      AccountLockManager lockManager,
+                                      JournalProperties properties,
+                                      @Value("${accounts.transfer.mode:locking}") String transferMode) {
+    if (!"locking".equals(transferMode)) {
+      throw new IllegalStateException("The journal requires accounts.transfer.mode=locking");
+    }
+    this.delegate = delegate;
+    this.lockManager = lockManager;
+    this.directory = Paths.get(properties.getDirectory());
+    long started = System.nanoTime();
+    long[] snapshotAccounts = new long[1];
+    long snapshotPosition = AccountSnapshots.loadLatest(directory, (accountId, balance) -> {
+      delegate.createAccount(new Account(accountId, balance));
+      snapshotAccounts[0]++;
+    });
+    long loaded = System.nanoTime();
+    this.journal = TransferJournal.open(directory, properties.getSegmentSize(),
+      properties.getDurability(), properties.getFlushIntervalMillis(), snapshotPosition,
+      new Replay(delegate));
+    log.info("Recovered in {} ms: {} accounts from snapshot in {} ms, journal {} to {} in {} ms",
+      (System.nanoTime() - started) / 1_000_000, snapshotAccounts[0],
+      (loaded - started) / 1_000_000, snapshotPosition, journal.getAppendedPosition(),
+      (System.nanoTime() - loaded) / 1_000_000);
+
+    if (properties.getSnapshotIntervalSeconds() > 0) {
+      this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+      });
+      snapshotScheduler.scheduleWithFixedDelay(this::takeScheduledSnapshot,
+        properties.getSnapshotIntervalSeconds(), properties.getSnapshotIntervalSeconds(),
+        TimeUnit.SECONDS);
+    } else {
+      this.snapshotScheduler = null;
+    }
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    String accountId = account.getAccountId();
+    long position;
+    // Holds the account's lock from insert to append, so that no transfer reaches the account
+    // before its CREATE record is in the journal, and the record has the balance it started with.
+    try (AccountLockManager.Locks locks = lockManager.lock(accountId, accountId)) {
+      if (delegate.getAccount(accountId) != null) {
+        throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+      }
+      BalanceCut current = cut;
+      if (current != null) {
+        current.accountCreated(accountId);
+      }
+      delegate.createAccount(account);
+      position = journal.appendCreate(accountId, account.getBalanceInMinorUnits());
+    }
+    awaitDurable(position);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    return delegate.getAccount(accountId);
+  }
+
+  @Override
+  public void clearAccounts() {
+    long position;
+    try (AccountLockManager.Locks locks = lockManager.lockEverything()) {
+      delegate.clearAccounts();
+      clears++;
+      position = journal.appendClear();
+    }
+    awaitDurable(position);
+  }
+
+  @Override
+  public long countAccounts() {
+    return delegate.countAccounts();
+  }
+
+  @Override
+  public void forEachAccount(Consumer<Account> action) {
+    delegate.forEachAccount(action);
+  }
+
+  @Override
+  public Spliterator<Account> accountSpliterator() {
+    return delegate.accountSpliterator();
+  }
+
+  @Override
+  public long beforeTransfer(Account source, Account target, long amount) {
+    BalanceCut current = cut;
+    if (current != null) {
+      current.beforeChange(source);
+      current.beforeChange(target);
+    }
+    return journal.appendTransfer(source.getAccountId(), target.getAccountId(), amount);
+  }
+
+  @Override
+  public void awaitDurable(long position) {
+    journal.awaitDurable(position);
+  }
+
+  /**
+   * Writes a snapshot of all balances without stopping transfers, then drops the snapshots and
+   * journal segments that are no longer needed. Returns the journal position of the snapshot,
+   * or {@code -1} if the accounts were cleared while it was taken.
+   */
+  public synchronized long takeSnapshot() {
+    long started = System.nanoTime();
+    BalanceCut current = new BalanceCut();
+    long position;
+    long clearsAtCut;
+    try (AccountLockManager.Locks locks = lockManager.lockEverything()) {
+      position = journal.getAppendedPosition();
+      clearsAtCut = clears;
+      cut = current;
+    }
+
+    List<Account> accounts = new ArrayList<>();
+    try {
+      delegate.forEachAccount(account -> {
+        long balance = current.balanceAtCut(account);
+        if (balance != BalanceCut.CREATED_AFTER_CUT) {
+          accounts.add(new Account(account.getAccountId(), balance));
+        }
+      });
+    } finally {
+      cut = null;
+    }
+    if (clears != clearsAtCut) {
+      log.warn("Accounts were cleared while taking a snapshot, discarding it");
+      return -1;
+    }
+
+    Path snapshot = AccountSnapshots.write(directory, position, accounts);
+    List<Path> snapshots = AccountSnapshots.list(directory);
+    int obsolete = Math.max(0, snapshots.size() - RETAINED_SNAPSHOTS);
+    try {
+      for (Path old : snapshots.subList(0, obsolete)) {
+        Files.delete(old);
+      }
+    } catch (IOException ex) {
+      log.warn("Failed to delete an old snapshot in {}", directory, ex);
+    }
+    journal.deleteSegmentsBefore(AccountSnapshots.journalPosition(snapshots.get(obsolete)));
+    log.info("Wrote snapshot {} of {} accounts in {} ms", snapshot, accounts.size(),
+      (System.nanoTime() - started) / 1_000_000);
+    return position;
+  }
+
+  @PreDestroy
+  public void close() {
+    if (snapshotScheduler != null) {
+      snapshotScheduler.shutdown();
+      try {
+        snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    journal.close();
+  }
+
+  private void takeScheduledSnapshot() {
+    try {
+      takeSnapshot();
+    } catch (RuntimeException ex) {
+      log.error("Failed to take a snapshot", ex);
+    }
+  }
+
+  /** Applies journal records to the wrapped repository without checking or journaling them. */
+  static final class Replay implements TransferJournal.Visitor {
+
+    private final AccountsRepository target;
+
+    Replay(AccountsRepository target) {
+      this.target = target;
+    }
+
+    @Override
+    public void accountCreated(String accountId, long balance) {
+      target.createAccount(new Account(accountId, balance));
+    }
+
+    @Override
+    public void transferred(String sourceAccountId, String targetAccountId, long amount) {
+      Account source = target.getAccount(sourceAccountId);
+      Account destination = target.getAccount(targetAccountId);
+      if (source == null || destination == null || !source.withdraw(amount)
+        || !destination.deposit(amount)) {
+        throw new IllegalStateException("Journal transfer of " + amount + " from "
+          + sourceAccountId + " to " + targetAccountId + " does not match the replayed balances");
+      }
+    }
+
+    @Override
+    public void cleared() {
+      target.clearAccounts();
+    }
+  }
+}
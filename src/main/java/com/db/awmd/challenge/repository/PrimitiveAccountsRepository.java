@@ -0,0 +1,325 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores accounts without an object per account, for tens of millions of accounts.
+ *
+ * <p>Every account id is interned into a dense index by an open-addressing hash table whose
+ * slots hold the id hash next to the index. Balances live in pages of an {@link AtomicLongArray}
+ * and ids are packed into pages of Latin-1 bytes, falling back to UTF-16 for ids that need it.
+ * The GC sees a few hundred large primitive arrays instead of millions of small objects.
+ *
+ * <p>{@link #getAccount(String)} hands out a lightweight account whose balance methods read
+ * and compare-and-set the stored balance directly. Lookups never lock: creations are
+ * serialized, and each one publishes its slot with a volatile write after its data is in place.
+ */
+@Repository
+@Qualifier(AccountsRepository.STORE)
+@ConditionalOnProperty(name = "accounts.repository.store", havingValue = "primitive")
+public class PrimitiveAccountsRepository implements AccountsRepository {
+
+  private static final int PAGE_BITS = 16;
+
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+  private static final int ID_PAGE_SIZE = 1 << 20;
+
+  private static final int MAX_ID_LENGTH = 0xFFFF;
+
+  private static final long UTF16 = 1L << 16;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private volatile Store store = new Store();
+
+  @Override
+  public synchronized void createAccount(Account account) throws DuplicateAccountIdException {
+    String accountId = account.getAccountId();
+    if (accountId.length() > MAX_ID_LENGTH) {
+      throw new IllegalArgumentException("Account id is too long");
+    }
+    Store current = store;
+    int hash = hash(accountId);
+    if (current.indexOf(accountId, hash) >= 0) {
+      throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+    }
+    current.add(accountId, hash, account.getBalanceInMinorUnits());
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    Store current = store;
+    int index = current.indexOf(accountId, hash(accountId));
+    if (index < 0) {
+      return null;
+    }
+    return new StoredAccount(accountId, current.records[index >>> PAGE_BITS], offset(index));
+  }
+
+  @Override
+  public synchronized void clearAccounts() {
+    store = new Store();
+  }
+
+  @Override
+  public void forEachAccount(Consumer<Account> action) {
+    Store current = store;
+    int count = current.size;
+    AtomicLongArray[] pages = current.records;
+    for (int index = 0; index < count; index++) {
+      AtomicLongArray page = pages[index >>> PAGE_BITS];
+      int offset = offset(index);
+      action.accept(new StoredAccount(current.loadId(page.get(offset + 1)), page, offset));
+    }
+  }
+
+  @Override
+  public Spliterator<Account> accountSpliterator() {
+    Store current = store;
+    return new StoredAccounts(current, 0, current.size);
+  }
+
+  @Override
+  public long countAccounts() {
+    return store.size;
+  }
+
+  private static int offset(int index) {
+    return (index & (PAGE_SIZE - 1)) * 2;
+  }
+
+  private static int hash(String accountId) {
+    int hash = accountId.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Everything stored, replaced as a whole when the accounts are cleared so lookups never mix
+   * old and new arrays. Only the thread holding the repository lock modifies it.
+   */
+  private static final class Store {
+
+    /** Open-addressing table; a slot is {@code hash << 32 | index + 1}, or 0 when empty. */
+    private volatile AtomicLongArray slots = new AtomicLongArray(INITIAL_CAPACITY);
+
+    /** Per account, the balance followed by where its id is stored. */
+    private volatile AtomicLongArray[] records = new AtomicLongArray[0];
+
+    private volatile byte[][] ids = {new byte[ID_PAGE_SIZE]};
+
+    private volatile int size;
+
+    private int idPage;
+
+    private int idOffset;
+
+    private int indexOf(String accountId, int hash) {
+      AtomicLongArray table = slots;
+      int mask = table.length() - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        long slot = table.get(i);
+        if (slot == 0) {
+          return -1;
+        }
+        if ((int) (slot >>> 32) == hash) {
+          int index = (int) slot - 1;
+          if (idEquals(records[index >>> PAGE_BITS].get(offset(index) + 1), accountId)) {
+            return index;
+          }
+        }
+      }
+    }
+
+    private void add(String accountId, int hash, long balance) {
+      int index = size;
+      int page = index >>> PAGE_BITS;
+      if (page == records.length) {
+        AtomicLongArray[] grown = Arrays.copyOf(records, page + 1);
+        grown[page] = new AtomicLongArray(PAGE_SIZE * 2);
+        records = grown;
+      }
+      records[page].set(offset(index), balance);
+      records[page].set(offset(index) + 1, storeId(accountId));
+
+      AtomicLongArray table = slots;
+      if ((index + 1L) * 4 > table.length() * 3L) {
+        AtomicLongArray larger = new AtomicLongArray(table.length() * 2);
+        for (int i = 0; i < table.length(); i++) {
+          long slot = table.get(i);
+          if (slot != 0) {
+            insert(larger, slot);
+          }
+        }
+        slots = larger;
+        table = larger;
+      }
+      // Publishing the slot last makes the balance and id visible to lookups that find it.
+      insert(table, (long) hash << 32 | (index + 1));
+      size = index + 1;
+    }
+
+    private static void insert(AtomicLongArray table, long slot) {
+      int mask = table.length() - 1;
+      int i = (int) (slot >>> 32) & mask;
+      while (table.get(i) != 0) {
+        i = (i + 1) & mask;
+      }
+      table.set(i, slot);
+    }
+
+    /**
+     * Copies the id into the id pages and returns where it went:
+     * {@code position << 17 | utf16 flag << 16 | length in chars}.
+     */
+    private long storeId(String accountId) {
+      int length = accountId.length();
+      boolean latin1 = true;
+      for (int i = 0; i < length && latin1; i++) {
+        latin1 = accountId.charAt(i) <= 0xFF;
+      }
+      int bytes = latin1 ? length : length * 2;
+      if (idOffset + bytes > ID_PAGE_SIZE) {
+        byte[][] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[grown.length - 1] = new byte[ID_PAGE_SIZE];
+        ids = grown;
+        idPage++;
+        idOffset = 0;
+      }
+      byte[] page = ids[idPage];
+      for (int i = 0; i < length; i++) {
+        char c = accountId.charAt(i);
+        if (latin1) {
+          page[idOffset + i] = (byte) c;
+        } else {
+          page[idOffset + 2 * i] = (byte) (c >>> 8);
+          page[idOffset + 2 * i + 1] = (byte) c;
+        }
+      }
+      long position = (long) idPage * ID_PAGE_SIZE + idOffset;
+      idOffset += bytes;
+      return position << 17 | (latin1 ? 0 : UTF16) | length;
+    }
+
+    private boolean idEquals(long idRef, String accountId) {
+      int length = (int) (idRef & 0xFFFF);
+      if (length != accountId.length()) {
+        return false;
+      }
+      long position = idRef >>> 17;
+      byte[] page = ids[(int) (position / ID_PAGE_SIZE)];
+      int offset = (int) (position % ID_PAGE_SIZE);
+      if ((idRef & UTF16) == 0) {
+        for (int i = 0; i < length; i++) {
+          if ((page[offset + i] & 0xFF) != accountId.charAt(i)) {
+            return false;
+          }
+        }
+      } else {
+        for (int i = 0; i < length; i++) {
+          char c = (char) ((page[offset + 2 * i] & 0xFF) << 8 | (page[offset + 2 * i + 1] & 0xFF));
+          if (c != accountId.charAt(i)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private String loadId(long idRef) {
+      int length = (int) (idRef & 0xFFFF);
+      long position = idRef >>> 17;
+      byte[] page = ids[(int) (position / ID_PAGE_SIZE)];
+      int offset = (int) (position % ID_PAGE_SIZE);
+      return (idRef & UTF16) == 0
+        ? new String(page, offset, length, StandardCharsets.ISO_8859_1)
+        : new String(page, offset, length * 2, StandardCharsets.UTF_16BE);
+    }
+  }
+
+  /** Hands out the accounts of an index range, split in halves. */
+  private static final class StoredAccounts implements Spliterator<Account> {
+
+    private final Store store;
+
+    private int index;
+
+    private final int end;
+
+    private StoredAccounts(Store store, int index, int end) {
+      this.store = store;
+      this.index = index;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Account> action) {
+      if (index >= end) {
+        return false;
+      }
+      AtomicLongArray page = store.records[index >>> PAGE_BITS];
+      int offset = offset(index++);
+      action.accept(new StoredAccount(store.loadId(page.get(offset + 1)), page, offset));
+      return true;
+    }
+
+    @Override
+    public Spliterator<Account> trySplit() {
+      int middle = (index + end) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      StoredAccounts prefix = new StoredAccounts(store, index, middle);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+  }
+
+  /** An account whose balance is a slot in one of the balance pages. */
+  private static final class StoredAccount extends Account {
+
+    private final AtomicLongArray page;
+
+    private final int offset;
+
+    private StoredAccount(String accountId, AtomicLongArray page, int offset) {
+      super(accountId);
+      this.page = page;
+      this.offset = offset;
+    }
+
+    @Override
+    protected long loadBalance() {
+      return page.get(offset);
+    }
+
+    @Override
+    protected void storeBalance(long balanceInMinorUnits) {
+      page.set(offset, balanceInMinorUnits);
+    }
+
+    @Override
+    protected boolean compareAndSetBalance(long expected, long updated) {
+      return page.compareAndSet(offset, expected, updated);
+    }
+  }
+}
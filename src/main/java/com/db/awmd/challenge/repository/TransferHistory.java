@@ -0,0 +1,236 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.TransferEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process, append-only record of every committed transfer, with an index of the transfers
+ * of each account.
+ *
+ * <p>Events live in fixed-size chunks of primitive arrays addressed by their sequence number;
+ * accounts are stored as numbers into a table of ids. Each account keeps the sequence numbers
+ * of its transfers in chunks that double in size, so a quiet account costs a few dozen bytes.
+ * Recording takes no lock: a writer claims its slots with an atomic increment, fills them and
+ * publishes each index slot with an ordered write, which also publishes the event behind it.
+ * A reader walks an account's index from a position downwards and touches only the entries of
+ * the page it returns.
+ *
+ * <p>The history is bounded by {@code max-events}; transfers beyond it are not recorded. Memory
+ * is never given back: each transfer costs 24 bytes of event and an 8-byte index entry for
+ * each of its two accounts, so about 40 bytes, and up to twice the index share while the
+ * newest index chunk of an account is still filling up.
+ */
+@Slf4j
+@Component
+public class TransferHistory {
+
+  private static final int CHUNK_BITS = 12;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** Size of the first chunk of an account index; chunk {@code k} holds {@code 16 << k}. */
+  private static final int INDEX_BASE_BITS = 4;
+
+  /** How long a reader waits for a claimed index slot to be filled before skipping it. */
+  private static final long AWAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final boolean enabled;
+
+  private final long maxEvents;
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final AtomicReferenceArray<EventChunk> events;
+
+  private final ConcurrentHashMap<String, AccountIndex> accounts = new ConcurrentHashMap<>();
+
+  private final AtomicInteger accountNumbers = new AtomicInteger();
+
+  private final AtomicReferenceArray<String[]> accountIds = new AtomicReferenceArray<>(1 << 16);
+
+  private final AtomicBoolean full = new AtomicBoolean();
+
+  @Autowired
+  public TransferHistory(@Value("${accounts.history.enabled:true}") boolean enabled,
+                         @Value("${accounts.history.max-events:5000000}") long maxEvents) {
+    if (maxEvents < 0) {
+      throw new IllegalArgumentException("The maximum number of events must not be negative");
+    }
+    this.enabled = enabled;
+    this.maxEvents = enabled ? maxEvents : 0;
+    this.events = new AtomicReferenceArray<>((int) ((this.maxEvents + CHUNK_MASK) >>> CHUNK_BITS));
+  }
+
+  /** Records a committed transfer. */
+  public void record(String sourceAccountId, String targetAccountId, long amount) {
+    if (!enabled) {
+      return;
+    }
+    long seq = sequence.getAndIncrement();
+    if (seq >= maxEvents) {
+      if (full.compareAndSet(false, true)) {
+        log.warn("Transfer history is full at {} events; later transfers are not recorded", maxEvents);
+      }
+      return;
+    }
+    AccountIndex source = index(sourceAccountId);
+    AccountIndex target = index(targetAccountId);
+
+    EventChunk chunk = eventChunk((int) (seq >>> CHUNK_BITS));
+    int slot = (int) seq & CHUNK_MASK;
+    chunk.timestamps[slot] = System.currentTimeMillis();
+    chunk.amounts[slot] = amount;
+    chunk.sources[slot] = source.number;
+    chunk.targets[slot] = target.number;
+
+    source.append(seq);
+    target.append(seq);
+  }
+
+  /** Number of transfers recorded for the account. */
+  public long count(String accountId) {
+    AccountIndex index = accounts.get(accountId);
+    return index == null ? 0 : index.size.get();
+  }
+
+  /**
+   * Returns up to {@code limit} transfers of the account, newest first, starting right below
+   * position {@code end} of its index. Positions run from 0 for its oldest transfer up to
+   * {@link #count}. A transfer whose recording did not complete in time is skipped.
+   */
+  public List<TransferEvent> read(String accountId, long end, int limit) {
+    AccountIndex index = accounts.get(accountId);
+    if (index == null) {
+      return new ArrayList<>(0);
+    }
+    long position = Math.min(end, index.size.get());
+    List<TransferEvent> page = new ArrayList<>((int) Math.min(limit, Math.max(position, 0)));
+    while (position > 0 && page.size() < limit) {
+      position--;
+      long seq = index.await(position);
+      if (seq >= 0) {
+        page.add(event(seq));
+      }
+    }
+    return page;
+  }
+
+  private TransferEvent event(long seq) {
+    EventChunk chunk = events.get((int) (seq >>> CHUNK_BITS));
+    int slot = (int) seq & CHUNK_MASK;
+    return new TransferEvent(seq, chunk.timestamps[slot], accountId(chunk.sources[slot]),
+      accountId(chunk.targets[slot]), chunk.amounts[slot]);
+  }
+
+  private AccountIndex index(String accountId) {
+    AccountIndex index = accounts.get(accountId);
+    return index != null ? index : accounts.computeIfAbsent(accountId, this::newIndex);
+  }
+
+  private AccountIndex newIndex(String accountId) {
+    int number = accountNumbers.getAndIncrement();
+    String[] ids = accountIds.get(number >>> CHUNK_BITS);
+    if (ids == null) {
+      accountIds.compareAndSet(number >>> CHUNK_BITS, null, new String[CHUNK_SIZE]);
+      ids = accountIds.get(number >>> CHUNK_BITS);
+    }
+    // Published to readers by the map, which hands out the index only after this write.
+    ids[number & CHUNK_MASK] = accountId;
+    return new AccountIndex(number);
+  }
+
+  private String accountId(int number) {
+    return accountIds.get(number >>> CHUNK_BITS)[number & CHUNK_MASK];
+  }
+
+  private EventChunk eventChunk(int index) {
+    EventChunk chunk = events.get(index);
+    if (chunk == null) {
+      events.compareAndSet(index, null, new EventChunk());
+      chunk = events.get(index);
+    }
+    return chunk;
+  }
+
+  private static final class EventChunk {
+
+    private final long[] timestamps = new long[CHUNK_SIZE];
+
+    private final long[] amounts = new long[CHUNK_SIZE];
+
+    private final int[] sources = new int[CHUNK_SIZE];
+
+    private final int[] targets = new int[CHUNK_SIZE];
+  }
+
+  /** Sequence numbers of the transfers of one account, stored plus one so 0 means unwritten. */
+  private static final class AccountIndex {
+
+    private final int number;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicReferenceArray<AtomicLongArray> chunks =
+      new AtomicReferenceArray<>(Long.SIZE - INDEX_BASE_BITS);
+
+    private AccountIndex(int number) {
+      this.number = number;
+    }
+
+    void append(long seq) {
+      long position = size.getAndIncrement();
+      int chunk = chunkOf(position);
+      AtomicLongArray entries = chunks.get(chunk);
+      if (entries == null) {
+        chunks.compareAndSet(chunk, null, new AtomicLongArray(1 << (chunk + INDEX_BASE_BITS)));
+        entries = chunks.get(chunk);
+      }
+      entries.lazySet(offsetOf(position, chunk), seq + 1);
+    }
+
+    /**
+     * Waits for a writer that has claimed {@code position} but not yet filled it. Returns -1 if
+     * the slot is still empty after {@link #AWAIT_NANOS}, as when the writer failed in between.
+     */
+    long await(long position) {
+      int chunk = chunkOf(position);
+      int offset = offsetOf(position, chunk);
+      long deadline = 0;
+      while (true) {
+        AtomicLongArray entries = chunks.get(chunk);
+        long entry = entries == null ? 0 : entries.get(offset);
+        if (entry != 0) {
+          return entry - 1;
+        }
+        if (deadline == 0) {
+          deadline = System.nanoTime() + AWAIT_NANOS;
+        } else if (System.nanoTime() - deadline >= 0) {
+          return -1;
+        }
+        Thread.yield();
+      }
+    }
+
+    private static int chunkOf(long position) {
+      return 63 - Long.numberOfLeadingZeros(position + (1 << INDEX_BASE_BITS)) - INDEX_BASE_BITS;
+    }
+
+    private static int offsetOf(long position, int chunk) {
+      return (int) (position + (1 << INDEX_BASE_BITS) - (1L << (chunk + INDEX_BASE_BITS)));
+    }
+  }
+}
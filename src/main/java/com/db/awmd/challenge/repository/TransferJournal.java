@@ -0,0 +1,452 @@
+package com.db.awmd.challenge.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only binary journal of account changes, written to memory-mapped segment files.
+ *
+ * <p>Every record is {@code [int length][int crc32][payload]}. A zero length marks the end of
+ * the written data and {@code -1} marks a segment that was closed early because the next
+ * record did not fit. Replay stops at the first record whose length or checksum does not add
+ * up, which is where a crash tore the last write, and appending resumes from there.
+ *
+ * <p>Positions handed out by the journal encode the segment index in the upper 32 bits and the
+ * offset within the segment in the lower ones, so they grow monotonically and a position alone
+ * is enough to resume replay after a snapshot.
+ */
+@Slf4j
+public class TransferJournal implements Closeable {
+
+  public enum Durability {
+    /** Every append forces the segment to disk before it returns. */
+    PER_OP,
+    /** A flusher thread forces many appends at once and writers wait for it (group commit). */
+    PER_BATCH,
+    /** A flusher thread forces the segment periodically and writers never wait. */
+    ASYNC
+  }
+
+  public interface Visitor {
+
+    void accountCreated(String accountId, long balance);
+
+    void transferred(String sourceAccountId, String targetAccountId, long amount);
+
+    void cleared();
+  }
+
+  static final String SEGMENT_PREFIX = "journal-";
+
+  static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final byte CREATE = 1;
+
+  private static final byte TRANSFER = 2;
+
+  private static final byte CLEAR = 3;
+
+  private static final int HEADER_SIZE = 8;
+
+  private static final int END_OF_SEGMENT = -1;
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final Durability durability;
+
+  private final long flushIntervalNanos;
+
+  private final CRC32 crc = new CRC32();
+
+  private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+  private MappedByteBuffer segment;
+
+  private ByteBuffer writer;
+
+  private long segmentIndex;
+
+  private volatile long appendedPosition;
+
+  private volatile long durablePosition;
+
+  private final Object durabilityMonitor = new Object();
+
+  private volatile boolean running = true;
+
+  private Thread flusher;
+
+  private TransferJournal(Path directory, int segmentSize, Durability durability,
+                          long flushIntervalMillis) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.durability = durability;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+  }
+
+  /**
+   * Replays every intact record of the journal in {@code directory} into {@code visitor} and
+   * returns the journal ready to append after the last one.
+   */
+  public static TransferJournal open(Path directory, int segmentSize, Durability durability,
+                                     long flushIntervalMillis, Visitor visitor) {
+    return open(directory, segmentSize, durability, flushIntervalMillis, 0, visitor);
+  }
+
+  /**
+   * Like {@link #open(Path, int, Durability, long, Visitor)}, but replays only the records
+   * appended at or after {@code startPosition}, typically the position a snapshot was cut at.
+   */
+  public static TransferJournal open(Path directory, int segmentSize, Durability durability,
+                                     long flushIntervalMillis, long startPosition, Visitor visitor) {
+    TransferJournal journal =
+      new TransferJournal(directory, segmentSize, durability, flushIntervalMillis);
+    try {
+      Files.createDirectories(directory);
+      journal.recover(visitor, startPosition);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to open journal in " + directory, ex);
+    }
+    if (durability != Durability.PER_OP) {
+      journal.flusher = new Thread(journal::flushLoop, "journal-flusher");
+      journal.flusher.setDaemon(true);
+      journal.flusher.start();
+    }
+    return journal;
+  }
+
+  public long appendCreate(String accountId, long balance) {
+    return append(CREATE, accountId, null, balance);
+  }
+
+  public long appendTransfer(String sourceAccountId, String targetAccountId, long amount) {
+    return append(TRANSFER, sourceAccountId, targetAccountId, amount);
+  }
+
+  public long appendClear() {
+    return append(CLEAR, null, null, 0);
+  }
+
+  /** Blocks until the journal is durable up to {@code position}, as far as the mode requires. */
+  public void awaitDurable(long position) {
+    if (durability != Durability.PER_BATCH || durablePosition >= position) {
+      return;
+    }
+    LockSupport.unpark(flusher);
+    synchronized (durabilityMonitor) {
+      boolean interrupted = false;
+      while (durablePosition < position && running) {
+        try {
+          durabilityMonitor.wait();
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public long getAppendedPosition() {
+    return appendedPosition;
+  }
+
+  public long getDurablePosition() {
+    return durablePosition;
+  }
+
+  /** Deletes the segments that hold nothing at or after {@code position}. */
+  public synchronized void deleteSegmentsBefore(long position) {
+    long keep = Math.min(segmentOf(position), segmentIndex);
+    try {
+      for (Path path : listSegments()) {
+        if (segmentIndex(path) < keep) {
+          Files.delete(path);
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to delete old journal segments in " + directory, ex);
+    }
+  }
+
+  static long position(long segmentIndex, int offset) {
+    return segmentIndex << 32 | offset;
+  }
+
+  static long segmentOf(long position) {
+    return position >>> 32;
+  }
+
+  static int offsetOf(long position) {
+    return (int) position;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    if (flusher != null) {
+      LockSupport.unpark(flusher);
+      try {
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+    synchronized (durabilityMonitor) {
+      durabilityMonitor.notifyAll();
+    }
+  }
+
+  private synchronized long append(byte type, String first, String second, long value) {
+    scratch.clear();
+    putByte(type);
+    if (type != CLEAR) {
+      putString(first);
+      if (second != null) {
+        putString(second);
+      }
+      putLong(value);
+    }
+    int length = scratch.position();
+    if (HEADER_SIZE + length + Integer.BYTES > segmentSize) {
+      throw new IllegalArgumentException("Journal record of " + length + " bytes exceeds the segment size");
+    }
+    if (writer.remaining() < HEADER_SIZE + length + Integer.BYTES) {
+      roll();
+    }
+
+    crc.reset();
+    crc.update(scratch.array(), 0, length);
+    writer.putInt(length).putInt((int) crc.getValue()).put(scratch.array(), 0, length);
+    long position = position(segmentIndex, writer.position());
+    appendedPosition = position;
+
+    if (durability == Durability.PER_OP) {
+      segment.force();
+      durablePosition = position;
+    }
+    return position;
+  }
+
+  private void roll() {
+    writer.putInt(END_OF_SEGMENT);
+    segment.force();
+    synchronized (durabilityMonitor) {
+      durablePosition = appendedPosition;
+      durabilityMonitor.notifyAll();
+    }
+    try {
+      mapSegment(segmentIndex + 1, segmentSize);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to create journal segment " + (segmentIndex + 1), ex);
+    }
+  }
+
+  private void flushLoop() {
+    while (running) {
+      if (appendedPosition == durablePosition) {
+        LockSupport.parkNanos(this, flushIntervalNanos);
+        continue;
+      }
+      flush();
+      if (durability == Durability.ASYNC) {
+        LockSupport.parkNanos(this, flushIntervalNanos);
+      }
+    }
+  }
+
+  private void flush() {
+    long position;
+    MappedByteBuffer current;
+    synchronized (this) {
+      position = appendedPosition;
+      current = segment;
+    }
+    if (current == null) {
+      return;
+    }
+    current.force();
+    synchronized (durabilityMonitor) {
+      if (position > durablePosition) {
+        durablePosition = position;
+      }
+      durabilityMonitor.notifyAll();
+    }
+  }
+
+  private void recover(Visitor visitor, long startPosition) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    for (Path path : listSegments()) {
+      if (segmentIndex(path) >= segmentOf(startPosition)) {
+        segments.add(path);
+      }
+    }
+    if (segments.isEmpty()) {
+      // Nothing was written after the start position; begin a fresh segment past it.
+      mapSegment(startPosition == 0 ? 0 : segmentOf(startPosition) + 1, segmentSize);
+      appendedPosition = position(segmentIndex, 0);
+      durablePosition = appendedPosition;
+      return;
+    }
+
+    for (int i = 0; i < segments.size(); i++) {
+      Path path = segments.get(i);
+      long index = segmentIndex(path);
+      int size = (int) Files.size(path);
+      mapSegment(index, size);
+      if (index == segmentOf(startPosition)) {
+        writer.position(offsetOf(startPosition));
+      }
+      boolean endMarker = replaySegment(visitor);
+      if (endMarker && i < segments.size() - 1) {
+        continue;
+      }
+      if (i < segments.size() - 1) {
+        log.error("Journal segment {} is damaged, dropping {} later segments", path,
+          segments.size() - 1 - i);
+        for (Path later : segments.subList(i + 1, segments.size())) {
+          Files.delete(later);
+        }
+      }
+      // Zero whatever a torn write left behind so it cannot be mistaken for records later.
+      for (int offset = writer.position(); offset < writer.limit(); offset++) {
+        writer.put(offset, (byte) 0);
+      }
+      if (endMarker) {
+        mapSegment(index + 1, segmentSize);
+      }
+      break;
+    }
+    appendedPosition = position(segmentIndex, writer.position());
+    durablePosition = appendedPosition;
+  }
+
+  /** Replays the records from the writer position on and tells whether the segment was closed. */
+  private boolean replaySegment(Visitor visitor) {
+    byte[] payload = new byte[256];
+    while (writer.remaining() >= Integer.BYTES) {
+      int start = writer.position();
+      int length = writer.getInt();
+      if (length == END_OF_SEGMENT) {
+        return true;
+      }
+      if (length <= 0 || writer.remaining() < Integer.BYTES + length) {
+        writer.position(start);
+        return false;
+      }
+      int checksum = writer.getInt();
+      if (payload.length < length) {
+        payload = new byte[length];
+      }
+      writer.get(payload, 0, length);
+      crc.reset();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        writer.position(start);
+        return false;
+      }
+      visit(ByteBuffer.wrap(payload, 0, length), visitor);
+    }
+    return false;
+  }
+
+  private static void visit(ByteBuffer record, Visitor visitor) {
+    byte type = record.get();
+    switch (type) {
+      case CREATE:
+        visitor.accountCreated(getString(record), record.getLong());
+        break;
+      case TRANSFER:
+        visitor.transferred(getString(record), getString(record), record.getLong());
+        break;
+      case CLEAR:
+        visitor.cleared();
+        break;
+      default:
+        throw new IllegalStateException("Unknown journal record type " + type);
+    }
+  }
+
+  private void mapSegment(long index, int size) throws IOException {
+    Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+    writer = segment.duplicate();
+    segmentIndex = index;
+  }
+
+  private List<Path> listSegments() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+           Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        segments.add(path);
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private static long segmentIndex(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private void putByte(byte value) {
+    ensureScratch(1);
+    scratch.put(value);
+  }
+
+  private void putLong(long value) {
+    ensureScratch(Long.BYTES);
+    scratch.putLong(value);
+  }
+
+  private void putString(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("Account id is too long for the journal");
+    }
+    ensureScratch(Short.BYTES + bytes.length);
+    scratch.putShort((short) bytes.length).put(bytes);
+  }
+
+  private static String getString(ByteBuffer record) {
+    int length = record.getShort() & 0xFFFF;
+    String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+      StandardCharsets.UTF_8);
+    record.position(record.position() + length);
+    return value;
+  }
+
+  private void ensureScratch(int bytes) {
+    if (scratch.remaining() < bytes) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+      scratch.flip();
+      larger.put(scratch);
+      scratch = larger;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.db.awmd.challenge.service;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Owns the locks that guard account balances, independently of how accounts are stored.
+ * Locks are not reentrant: a thread must release what it holds before locking again.
+ */
+public interface AccountLockManager {
+
+  /**
+   * Exclusively locks the given accounts in a global order, so concurrent callers can never
+   * deadlock, and blocks until all of them are held.
+   */
+  Locks lock(String firstAccountId, String secondAccountId);
+
+  Locks lockAll(Collection<String> accountIds);
+
+  /** Exclusively locks every account, including ones that do not exist yet. */
+  Locks lockEverything();
+
+  /**
+   * Runs {@code reader} without blocking writers and repeats it under a shared lock only if a
+   * writer got in the way.
+   */
+  <T> T readOptimistically(String accountId, Supplier<T> reader);
+
+  /** Number of acquisitions that found the lock already held, per stripe. */
+  long[] contentionHistogram();
+
+  /** Total time callers have spent blocked on a lock held by someone else. */
+  long waitNanos();
+
+  interface Locks extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
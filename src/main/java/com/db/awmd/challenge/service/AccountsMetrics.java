@@ -0,0 +1,104 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The meters of the account service: transfers by outcome, failures by cause, transfer
+ * latency, the number of accounts and the time spent waiting for account locks.
+ *
+ * <p>Outcomes and failures are counted exactly. Latency is timed for one transfer in
+ * {@code latency-sample-interval}, since reading the clock twice and updating the histogram
+ * costs about as much as an uncontended transfer; under load the sample still fills the
+ * histogram quickly. The gauges are read when metrics are scraped, never on the transfer path.
+ */
+@Component
+public class AccountsMetrics {
+
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  private final Counter completed;
+
+  private final Timer completedLatency;
+
+  private final Timer failedLatency;
+
+  private final Map<TransferStatus, Counter> failures = new EnumMap<>(TransferStatus.class);
+
+  private final int sampleInterval;
+
+  @Autowired
+  public AccountsMetrics(MeterRegistry registry, AccountsRepository accountsRepository,
+                         AccountLockManager lockManager,
+                         @Value("${accounts.metrics.latency-sample-interval:16}") int sampleInterval) {
+    this.completed = Counter.builder("accounts.transfers.completed")
+      .description("Transfers completed by AccountsService")
+      .register(registry);
+    for (TransferStatus cause : new TransferStatus[] {TransferStatus.SAME_ACCOUNT,
+      TransferStatus.ACCOUNT_NOT_FOUND, TransferStatus.INSUFFICIENT_FUNDS}) {
+      failures.put(cause, Counter.builder("accounts.transfer.failures")
+        .description("Transfers rejected by AccountsService, by cause")
+        .tag("cause", cause.name().toLowerCase(Locale.ROOT))
+        .register(registry));
+    }
+    this.completedLatency = latency(registry, "completed");
+    this.failedLatency = latency(registry, "failed");
+    this.sampleInterval = Math.max(sampleInterval, 1);
+
+    Gauge.builder("accounts.count", accountsRepository, AccountsRepository::countAccounts)
+      .description("Number of accounts in the store")
+      .register(registry);
+    FunctionTimer.builder("accounts.lock.wait", lockManager,
+        manager -> LongStream.of(manager.contentionHistogram()).sum(),
+        AccountLockManager::waitNanos, TimeUnit.NANOSECONDS)
+      .description("Account lock acquisitions that found the lock held, and the time they waited")
+      .register(registry);
+  }
+
+  /** Returns what to pass to {@link #endTransfer}; reads the clock only for sampled transfers. */
+  public long startTransfer() {
+    return sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0
+      ? System.nanoTime() : NOT_SAMPLED;
+  }
+
+  /** {@code outcome} is null when the transfer threw. */
+  public void endTransfer(long start, TransferOutcome outcome) {
+    boolean completed = outcome == TransferOutcome.COMPLETED;
+    if (completed) {
+      this.completed.increment();
+    } else if (outcome != null) {
+      transferFailed(outcome.getStatus());
+    }
+    if (start != NOT_SAMPLED) {
+      (completed ? completedLatency : failedLatency)
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  void transferFailed(TransferStatus cause) {
+    failures.get(cause).increment();
+  }
+
+  private static Timer latency(MeterRegistry registry, String outcome) {
+    return Timer.builder("accounts.transfer")
+      .description("Latency of a sample of the transfers run by AccountsService")
+      .tag("outcome", outcome)
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+}
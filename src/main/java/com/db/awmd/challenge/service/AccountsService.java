@@ -1,12 +1,28 @@
 package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
 import com.db.awmd.challenge.exception.TransferMoneyException;
 import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferHistory;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class AccountsService {
@@ -14,72 +30,213 @@ public class AccountsService {
   @Getter
   private final AccountsRepository accountsRepository;
 
-  private final EmailNotificationService notificationService;
+  private final NotificationService notificationService;
+
+  private final TransferEngine transferEngine;
+
+  private final AccountLockManager lockManager;
+
+  private final AccountsMetrics metrics;
+
+  private final Executor asyncExecutor;
+
+  private final TransferHistory transferHistory;
+
+  private final BalanceSnapshots balanceSnapshots;
 
   @Autowired
   public AccountsService(AccountsRepository accountsRepository,
-                         EmailNotificationService notificationService) {
+                         NotificationService notificationService,
+                         TransferEngine transferEngine,
+                         AccountLockManager lockManager,
+                         AccountsMetrics metrics,
+                         AsyncTransferExecutor asyncExecutor,
+                         TransferHistory transferHistory,
+                         BalanceSnapshots balanceSnapshots) {
     this.accountsRepository = accountsRepository;
     this.notificationService = notificationService;
+    this.transferEngine = transferEngine;
+    this.lockManager = lockManager;
+    this.metrics = metrics;
+    this.asyncExecutor = asyncExecutor;
+    this.transferHistory = transferHistory;
+    this.balanceSnapshots = balanceSnapshots;
   }
 
   public void createAccount(Account account) {
-    this.accountsRepository.createAccount(account);
+    balanceSnapshots.createAccounts(Collections.singletonList(account),
+      () -> this.accountsRepository.createAccount(account));
   }
 
+  /**
+   * Creates {@code accounts} in order; the id of each one that already exists goes to
+   * {@code duplicates}.
+   */
+  public void createAccounts(List<Account> accounts, Consumer<String> duplicates) {
+    balanceSnapshots.createAccounts(accounts,
+      () -> this.accountsRepository.createAccounts(accounts, duplicates));
+  }
+
+  /**
+   * Returns a copy of the account whose balance cannot change while it is being serialized.
+   */
   public Account getAccount(String accountId) {
-    return this.accountsRepository.getAccount(accountId);
+    Account account = this.accountsRepository.getAccount(accountId);
+    if (account == null) {
+      return null;
+    }
+    long balance = lockManager.readOptimistically(accountId, account::getBalanceInMinorUnits);
+    return new Account(account.getAccountId(), balance);
   }
 
   public void transfer(String sourceAccountId, String targetAccountId, BigDecimal amount) {
-    verifyAccountIds(sourceAccountId, targetAccountId);
+    transfer(sourceAccountId, targetAccountId, MinorUnits.fromDecimal(amount));
+  }
 
-    Account sourceAccount = getAccountById(sourceAccountId);
-    Account targetAccount = getAccountById(targetAccountId);
+  /**
+   * Same as {@link #tryTransfer}, but throws a {@link TransferMoneyException} when the transfer
+   * is rejected.
+   */
+  public void transfer(String sourceAccountId, String targetAccountId, long amount) {
+    TransferOutcome outcome = tryTransfer(sourceAccountId, targetAccountId, amount);
+    if (outcome != TransferOutcome.COMPLETED) {
+      throw new TransferMoneyException(outcome.describe(sourceAccountId, targetAccountId),
+        outcome.getStatus());
+    }
+  }
 
-    boolean sourceWithdraw = false;
-    boolean targetDeposit = false;
+  /**
+   * Moves {@code amount} between two accounts, or returns why it could not. A rejected transfer
+   * builds neither an exception nor a message.
+   */
+  public TransferOutcome tryTransfer(String sourceAccountId, String targetAccountId, long amount) {
+    long start = metrics.startTransfer();
+    TransferOutcome outcome = null;
     try {
-      if (sourceAccount.withdraw(amount)) {
-        sourceWithdraw = true;
-        if (targetAccount.deposit(amount)) {
-          targetDeposit = true;
-          notificationService.notifyAboutTransfer(sourceAccount, "Withdrawing " + amount + " from the account");
-          notificationService.notifyAboutTransfer(targetAccount, "Depositing " + amount + " to the account");
-        } else {
-          throwTransferException(sourceAccountId, targetAccountId);
-        }
+      outcome = runTransfer(sourceAccountId, targetAccountId, amount);
+      return outcome;
+    } finally {
+      metrics.endTransfer(start, outcome);
+    }
+  }
+
+  /**
+   * Runs {@link #tryTransfer} on the asynchronous transfer executor, so the calling thread is
+   * free while the transfer waits for locks or I/O.
+   *
+   * @throws RejectedExecutionException if the executor already holds as many transfers as it
+   *     admits
+   */
+  public CompletableFuture<TransferOutcome> tryTransferAsync(String sourceAccountId,
+                                                             String targetAccountId, long amount) {
+    return supplyAsync(() -> tryTransfer(sourceAccountId, targetAccountId, amount));
+  }
+
+  /**
+   * Runs {@code work} on the asynchronous transfer executor.
+   *
+   * @throws RejectedExecutionException if the executor already holds as many transfers as it
+   *     admits
+   */
+  public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+    return CompletableFuture.supplyAsync(work, asyncExecutor);
+  }
+
+  /**
+   * Runs {@code transfers} as one batch: every account is looked up and locked once.
+   *
+   * @param allOrNothing whether a single failing transfer leaves every balance untouched
+   * @return the status of each transfer, in request order
+   */
+  public List<TransferStatus> transferBatch(List<Transfer> transfers, boolean allOrNothing) {
+    TransferStatus[] statuses = new TransferStatus[transfers.size()];
+    Map<String, Account> accounts = new HashMap<>();
+    List<Transfer> executable = new ArrayList<>(transfers.size());
+    int[] positions = new int[transfers.size()];
+    boolean rejected = false;
+
+    for (int i = 0; i < transfers.size(); i++) {
+      Transfer transfer = transfers.get(i);
+      TransferStatus status = resolveAccounts(transfer, accounts);
+      if (status != null) {
+        statuses[i] = status;
+        rejected = true;
       } else {
-        throwTransferException(sourceAccountId, targetAccountId);
+        positions[executable.size()] = i;
+        executable.add(transfer);
       }
-    } finally {
-      if (sourceWithdraw && !targetDeposit) {
-        sourceAccount.deposit(amount);
+    }
+
+    if (rejected && allOrNothing) {
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i] == null) {
+          statuses[i] = TransferStatus.NOT_APPLIED;
+        }
       }
+      return Arrays.asList(statuses);
     }
+
+    TransferStatus[] results = transferEngine.transferBatch(executable, accounts, allOrNothing);
+    for (int i = 0; i < results.length; i++) {
+      statuses[positions[i]] = results[i];
+      if (results[i] == TransferStatus.COMPLETED) {
+        Transfer transfer = executable.get(i);
+        transferHistory.record(transfer.getSourceAccountId(), transfer.getTargetAccountId(),
+                transfer.getAmount());
+        notifyAboutTransfer(accounts.get(transfer.getSourceAccountId()),
+                accounts.get(transfer.getTargetAccountId()), transfer.getAmount());
+      }
+    }
+    return Arrays.asList(statuses);
   }
 
-  private void verifyAccountIds(String sourceAccountId, String targetAccountId) {
-    if (sourceAccountId.equals(targetAccountId)) {
-      throw new TransferMoneyException(
-              String.format("Accounts for transferring money must be different: " +
-                              "sourceAccountId = %s, targetAccountId = %s",
-                      sourceAccountId, targetAccountId));
+  private TransferStatus resolveAccounts(Transfer transfer, Map<String, Account> accounts) {
+    if (transfer.getSourceAccountId().equals(transfer.getTargetAccountId())) {
+      return TransferStatus.SAME_ACCOUNT;
+    }
+    if (resolveAccount(transfer.getSourceAccountId(), accounts) == null
+            || resolveAccount(transfer.getTargetAccountId(), accounts) == null) {
+      return TransferStatus.ACCOUNT_NOT_FOUND;
     }
+    return null;
   }
 
-  private Account getAccountById(String accountId) {
-    Account account = getAccount(accountId);
+  private Account resolveAccount(String accountId, Map<String, Account> accounts) {
+    Account account = accounts.get(accountId);
     if (account == null) {
-      throw new TransferMoneyException(String.format("Account id = %s not found!", accountId));
+      account = this.accountsRepository.getAccount(accountId);
+      if (account != null) {
+        accounts.put(accountId, account);
+      }
     }
     return account;
   }
 
-  private void throwTransferException(String sourceAccountId, String targetAccountId) {
-    throw new TransferMoneyException(
-            String.format("Failed to transfer money between accounts: " +
-                            "sourceAccountId = %s, targetAccountId = %s",
-                    sourceAccountId, targetAccountId));
+  private void notifyAboutTransfer(Account sourceAccount, Account targetAccount, long amount) {
+    BigDecimal decimalAmount = MinorUnits.toDecimal(amount);
+    notificationService.notifyAboutTransfer(sourceAccount, "Withdrawing " + decimalAmount + " from the account");
+    notificationService.notifyAboutTransfer(targetAccount, "Depositing " + decimalAmount + " to the account");
+  }
+
+  private TransferOutcome runTransfer(String sourceAccountId, String targetAccountId, long amount) {
+    if (sourceAccountId.equals(targetAccountId)) {
+      return TransferOutcome.SAME_ACCOUNT;
+    }
+    Account sourceAccount = this.accountsRepository.getAccount(sourceAccountId);
+    if (sourceAccount == null) {
+      return TransferOutcome.SOURCE_NOT_FOUND;
+    }
+    Account targetAccount = this.accountsRepository.getAccount(targetAccountId);
+    if (targetAccount == null) {
+      return TransferOutcome.TARGET_NOT_FOUND;
+    }
+
+    if (!transferEngine.transfer(sourceAccount, targetAccount, amount)) {
+      return TransferOutcome.INSUFFICIENT_FUNDS;
+    }
+
+    transferHistory.record(sourceAccountId, targetAccountId, amount);
+    notifyAboutTransfer(sourceAccount, targetAccount, amount);
+    return TransferOutcome.COMPLETED;
   }
 }
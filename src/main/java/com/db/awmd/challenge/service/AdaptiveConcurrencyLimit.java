@@ -0,0 +1,122 @@
+package com.db.awmd.challenge.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many transfers run at once, with a limit that follows their latency. The lowest
+ * average latency of a window stands for the latency without queueing. Once per window the
+ * limit is multiplied by how far the window's average stays within {@code tolerance} times
+ * that, between one half and one, and given the square root of itself as room to grow; the
+ * result is smoothed into the old limit. The limit only grows while at least half of it is in
+ * use, so an idle service does not drift to the maximum.
+ *
+ * <p>Acquiring and releasing are an atomic increment and decrement plus two adder updates; the
+ * thread that closes a window recomputes the limit.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+  private static final double SMOOTHING = 0.2;
+
+  /** How fast the latency without queueing follows a higher average: 1/64 per window. */
+  private static final int DRIFT_SHIFT = 6;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final double tolerance;
+
+  private final long windowNanos;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final LongAdder windowLatency = new LongAdder();
+
+  private final LongAdder windowSamples = new LongAdder();
+
+  private final AtomicLong windowStart;
+
+  private volatile int limit;
+
+  /** Most transfers in flight during the window; a racy maximum is good enough. */
+  private volatile int peak;
+
+  private volatile long noLoadLatency = Long.MAX_VALUE;
+
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                  long windowMillis, long nowNanos) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || tolerance < 1
+      || windowMillis < 1) {
+      throw new IllegalArgumentException("The limits must satisfy 1 <= min <= initial <= max, the "
+        + "tolerance must be at least 1 and the window positive");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.windowStart = new AtomicLong(nowNanos);
+    this.limit = initialLimit;
+  }
+
+  public boolean tryAcquire() {
+    int running = inFlight.incrementAndGet();
+    if (running > limit) {
+      inFlight.decrementAndGet();
+      return false;
+    }
+    if (running > peak) {
+      peak = running;
+    }
+    return true;
+  }
+
+  /** Releases a transfer that was acquired at {@code startNanos}. */
+  public void release(long startNanos, long nowNanos) {
+    inFlight.decrementAndGet();
+    windowLatency.add(nowNanos - startNanos);
+    windowSamples.increment();
+    long start = windowStart.get();
+    if (nowNanos - start >= windowNanos && windowStart.compareAndSet(start, nowNanos)) {
+      update();
+    }
+  }
+
+  /** Gives back a place that was acquired for a transfer that did not run, unmeasured. */
+  public void cancel() {
+    inFlight.decrementAndGet();
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /** Runs on one thread at a time: the one that won the window. */
+  private void update() {
+    long samples = windowSamples.sumThenReset();
+    long latency = windowLatency.sumThenReset();
+    int busiest = peak;
+    peak = 0;
+    if (samples == 0) {
+      return;
+    }
+    long average = Math.max(1, latency / samples);
+    noLoadLatency = noLoadLatency == Long.MAX_VALUE
+      ? average : Math.min(average, noLoadLatency + (noLoadLatency >> DRIFT_SHIFT) + 1);
+
+    int current = limit;
+    double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadLatency / average));
+    if (gradient == 1.0 && busiest < current / 2) {
+      return;
+    }
+    double target = current * gradient + Math.sqrt(current);
+    double smoothed = current * (1 - SMOOTHING) + target * SMOOTHING;
+    limit = (int) Math.max(minLimit, Math.min(maxLimit, Math.round(smoothed)));
+  }
+}
@@ -0,0 +1,47 @@
+package com.db.awmd.challenge.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "accounts.admission")
+public class AdmissionProperties {
+
+  private boolean enabled;
+
+  /** Sustained transfers per second from one source account. */
+  private double accountPerSecond = 100;
+
+  /** Transfers one source account may send at once after being idle. */
+  private int accountBurst = 200;
+
+  /** Source accounts whose rate is tracked at once; the least recently used are dropped. */
+  private long maxAccounts = 100_000;
+
+  /** How long the rate of an idle source account is kept. */
+  private long idleSeconds = 60;
+
+  /** Sustained transfers per second overall; 0 for no limit. */
+  private double globalPerSecond;
+
+  private int globalBurst = 1_000;
+
+  private Concurrency concurrency = new Concurrency();
+
+  @Data
+  public static class Concurrency {
+
+    private int initialLimit = 64;
+
+    private int minLimit = 8;
+
+    private int maxLimit = 1_024;
+
+    /** How many times the latency without queueing a window may take before the limit shrinks. */
+    private double tolerance = 2.0;
+
+    private long windowMillis = 100;
+  }
+}
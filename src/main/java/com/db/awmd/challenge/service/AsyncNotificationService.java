@@ -0,0 +1,243 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Hands notifications to a pool of dispatch workers so that the email backend never runs on
+ * the transfer thread. Workers drain the queue in batches and send one notification per
+ * account per batch, joining the descriptions of that account.
+ *
+ * <p>As a {@link MeterBinder} it publishes the queue depth, the lag of the last batch and the
+ * dispatched and dropped notifications to the meter registry.
+ */
+@Primary
+@Service
+@Slf4j
+public class AsyncNotificationService implements NotificationService, MeterBinder {
+
+  private static final long POLL_TIMEOUT_MILLIS = 100;
+
+  private final NotificationService delegate;
+
+  private final NotificationProperties properties;
+
+  private final BlockingQueue<PendingNotification> queue;
+
+  /** Notifications that came while the main queue was full; newer than all in the main queue. */
+  private final BlockingQueue<PendingNotification> spillQueue;
+
+  private final LongAdder dispatched = new LongAdder();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final AtomicLong lastLagMillis = new AtomicLong();
+
+  private final List<Thread> workers = new ArrayList<>();
+
+  private volatile boolean running;
+
+  @Autowired
+  public AsyncNotificationService(EmailNotificationService delegate,
+                                  NotificationProperties properties) {
+    this.delegate = delegate;
+    this.properties = properties;
+    this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    this.spillQueue = new LinkedBlockingQueue<>(properties.getSpillCapacity());
+  }
+
+  @PostConstruct
+  public synchronized void start() {
+    running = true;
+    for (int i = 0; i < properties.getWorkers(); i++) {
+      Thread worker = new Thread(this::dispatchLoop, "notification-dispatcher-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stop() throws InterruptedException {
+    running = false;
+    for (Thread worker : workers) {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    workers.clear();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("notifications.queue.depth", this, AsyncNotificationService::getQueueDepth)
+      .description("Notifications waiting for a dispatch worker, spilled ones included")
+      .register(registry);
+    Gauge.builder("notifications.lag", this, AsyncNotificationService::getLagMillis)
+      .description("Time the oldest notification of the last dispatched batch waited")
+      .baseUnit("milliseconds")
+      .register(registry);
+    FunctionCounter.builder("notifications.dispatched", this,
+        AsyncNotificationService::getDispatchedCount)
+      .description("Notifications handed to the email backend")
+      .register(registry);
+    FunctionCounter.builder("notifications.dropped", this, AsyncNotificationService::getDroppedCount)
+      .description("Notifications dropped because the queue, or the spill queue, was full")
+      .register(registry);
+  }
+
+  @Override
+  public void notifyAboutTransfer(Account account, String transferDescription) {
+    PendingNotification notification =
+      new PendingNotification(account, transferDescription, System.currentTimeMillis());
+    // While notifications are spilled, newer ones queue up behind them rather than overtake them.
+    boolean spilling = !spillQueue.isEmpty()
+      && properties.getOverflowPolicy() == NotificationProperties.OverflowPolicy.SPILL;
+    if (!spilling && queue.offer(notification)) {
+      return;
+    }
+    switch (properties.getOverflowPolicy()) {
+      case BLOCK:
+        try {
+          queue.put(notification);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          dropped.increment();
+        }
+        break;
+      case SPILL:
+        if (!spillQueue.offer(notification)) {
+          dropped.increment();
+        }
+        break;
+      default:
+        dropped.increment();
+    }
+  }
+
+  public int getQueueDepth() {
+    return queue.size() + spillQueue.size();
+  }
+
+  public long getDispatchedCount() {
+    return dispatched.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /** Time the oldest notification of the last dispatched batch spent waiting in the queue. */
+  public long getLagMillis() {
+    return lastLagMillis.get();
+  }
+
+  private void dispatchLoop() {
+    List<PendingNotification> batch = new ArrayList<>(properties.getBatchSize());
+    while (running || getQueueDepth() > 0) {
+      try {
+        if (!nextBatch(batch)) {
+          continue;
+        }
+        dispatch(batch);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException ex) {
+        log.error("Failed to dispatch {} notifications", batch.size(), ex);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private boolean nextBatch(List<PendingNotification> batch) throws InterruptedException {
+    // Spilled notifications are newer than the queued ones, so they follow them in the batch.
+    PendingNotification first = spillQueue.isEmpty()
+      ? queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) : queue.poll();
+    if (first != null) {
+      batch.add(first);
+      queue.drainTo(batch, properties.getBatchSize() - 1);
+    }
+    spillQueue.drainTo(batch, properties.getBatchSize() - batch.size());
+    return !batch.isEmpty();
+  }
+
+  private void dispatch(List<PendingNotification> batch) {
+    long now = System.currentTimeMillis();
+    long oldest = now;
+    Map<String, Coalesced> byAccount = new LinkedHashMap<>();
+    for (PendingNotification notification : batch) {
+      oldest = Math.min(oldest, notification.enqueuedAtMillis);
+      Coalesced coalesced = byAccount.get(notification.account.getAccountId());
+      if (coalesced == null) {
+        byAccount.put(notification.account.getAccountId(), new Coalesced(notification));
+      } else {
+        coalesced.append(notification.description);
+      }
+    }
+    lastLagMillis.set(now - oldest);
+
+    for (Coalesced coalesced : byAccount.values()) {
+      delegate.notifyAboutTransfer(coalesced.account, coalesced.description());
+    }
+    dispatched.add(batch.size());
+  }
+
+  private static final class PendingNotification {
+
+    private final Account account;
+
+    private final String description;
+
+    private final long enqueuedAtMillis;
+
+    private PendingNotification(Account account, String description, long enqueuedAtMillis) {
+      this.account = account;
+      this.description = description;
+      this.enqueuedAtMillis = enqueuedAtMillis;
+    }
+  }
+
+  private static final class Coalesced {
+
+    private final Account account;
+
+    private final String firstDescription;
+
+    private StringBuilder descriptions;
+
+    private Coalesced(PendingNotification notification) {
+      this.account = notification.account;
+      this.firstDescription = notification.description;
+    }
+
+    private void append(String description) {
+      if (descriptions == null) {
+        descriptions = new StringBuilder(firstDescription);
+      }
+      descriptions.append("; ").append(description);
+    }
+
+    private String description() {
+      return descriptions == null ? firstDescription : descriptions.toString();
+    }
+  }
+}
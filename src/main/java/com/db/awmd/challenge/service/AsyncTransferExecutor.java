@@ -0,0 +1,131 @@
+package com.db.awmd.challenge.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the transfers of the asynchronous API off the request threads. At most
+ * {@code max-concurrency} transfers run at once and at most {@code queue-capacity} more wait;
+ * anything beyond that is rejected with a {@link RejectedExecutionException}.
+ *
+ * <p>On a JVM with virtual threads each transfer gets its own virtual thread and the
+ * concurrency limit is a semaphore, so a transfer blocked on I/O holds no platform thread.
+ * Otherwise a fixed pool of {@code max-concurrency} platform threads runs them.
+ */
+@Slf4j
+@Component
+public class AsyncTransferExecutor implements Executor {
+
+  private final ExecutorService executor;
+
+  /** Null when the platform pool enforces the limits itself. */
+  private final Semaphore running;
+
+  private final Semaphore admitted;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  @Autowired
+  public AsyncTransferExecutor(@Value("${accounts.transfer.async.max-concurrency:64}") int maxConcurrency,
+                               @Value("${accounts.transfer.async.queue-capacity:10000}") int queueCapacity,
+                               @Value("${accounts.transfer.async.virtual-threads:true}") boolean virtualThreads) {
+    if (maxConcurrency < 1 || queueCapacity < 0) {
+      throw new IllegalArgumentException(
+        "The concurrency must be positive and the queue capacity must not be negative");
+    }
+    ExecutorService virtual = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+    if (virtual != null) {
+      this.executor = virtual;
+      this.running = new Semaphore(maxConcurrency);
+      this.admitted = new Semaphore(maxConcurrency + queueCapacity);
+    } else {
+      AtomicInteger threads = new AtomicInteger();
+      this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+        queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "transfer-async-" + threads.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        });
+      this.running = null;
+      this.admitted = null;
+    }
+    log.info("Asynchronous transfers run on {} threads, at most {} at once",
+      virtual != null ? "virtual" : "platform", maxConcurrency);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (admitted != null && !admitted.tryAcquire()) {
+      throw new RejectedExecutionException("Too many asynchronous transfers in flight");
+    }
+    inFlight.incrementAndGet();
+    try {
+      executor.execute(() -> run(task));
+    } catch (RejectedExecutionException ex) {
+      release();
+      throw ex;
+    }
+  }
+
+  /** Transfers accepted and not yet finished, both running and waiting. */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+      log.warn("Asynchronous transfers did not finish in time");
+    }
+  }
+
+  private void run(Runnable task) {
+    try {
+      if (running != null) {
+        running.acquireUninterruptibly();
+      }
+      try {
+        task.run();
+      } finally {
+        if (running != null) {
+          running.release();
+        }
+      }
+    } finally {
+      release();
+    }
+  }
+
+  private void release() {
+    inFlight.decrementAndGet();
+    if (admitted != null) {
+      admitted.release();
+    }
+  }
+
+  /** {@code Executors.newVirtualThreadPerTaskExecutor()}, or null before Java 21. */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return null;
+    }
+  }
+}
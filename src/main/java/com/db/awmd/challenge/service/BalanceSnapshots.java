@@ -0,0 +1,268 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceSummary;
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.BalanceCut;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aggregates all balances as of one point in time while transfers keep running.
+ *
+ * <p>The cut holds every account lock, and keeps accounts from being created, just long enough
+ * to start a {@link BalanceCut}. From then on, whoever changes a balance under its lock saves
+ * the balance it had at the cut through {@link #beforeChange}, and {@link #createAccounts}
+ * marks accounts created after the cut, so the scan adds up exactly the balances at the cut no
+ * matter which transfers land while it runs.
+ *
+ * <p>The scan splits the repository's accounts over a fork-join pool, and each task adds up
+ * its share into counters of its own that are merged once at the end.
+ *
+ * <p>Only locking transfers allow the cut. Sharded transfers take no locks and hold amounts in
+ * flight between shards. Jdbc transfers lock rows in the database, and H2 offers no read of all
+ * of them as of one point in time short of locking every row, which would stop transfers.
+ */
+@Component
+public class BalanceSnapshots {
+
+  /** Accounts a task adds up itself rather than splitting them further. */
+  private static final int LEAF_SIZE = 1 << 14;
+
+  private final AccountsRepository accountsRepository;
+
+  private final AccountLockManager lockManager;
+
+  private final boolean supported;
+
+  private final ForkJoinPool pool;
+
+  /** Shared by account creations, taken exclusively by the cut. */
+  private final ReadWriteLock creations = new ReentrantReadWriteLock();
+
+  /** The cut of the summary being taken, if any. */
+  private volatile BalanceCut cut;
+
+  @Autowired
+  public BalanceSnapshots(AccountsRepository accountsRepository, AccountLockManager lockManager,
+                          @Value("${accounts.transfer.mode:locking}") String transferMode,
+                          @Value("${accounts.balances.parallelism:0}") int parallelism) {
+    this.accountsRepository = accountsRepository;
+    this.lockManager = lockManager;
+    this.supported = "locking".equals(transferMode);
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  /** Whether the transfer mode allows a consistent summary. */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * Called by whoever changes the balance of {@code account}, while holding its lock and right
+   * before the change.
+   */
+  public void beforeChange(Account account) {
+    BalanceCut current = cut;
+    if (current != null) {
+      current.beforeChange(account);
+    }
+  }
+
+  /**
+   * Creates {@code accounts} through {@code create}. While a summary is being taken, those that
+   * do not exist yet are marked as created after its cut first, so it leaves them out even when
+   * a transfer funds them from an account it counts.
+   */
+  public void createAccounts(Collection<Account> accounts, Runnable create) {
+    if (!supported) {
+      create.run();
+      return;
+    }
+    creations.readLock().lock();
+    try {
+      BalanceCut current = cut;
+      if (current != null) {
+        for (Account account : accounts) {
+          if (accountsRepository.getAccount(account.getAccountId()) == null) {
+            current.accountCreated(account.getAccountId());
+          }
+        }
+      }
+      create.run();
+    } finally {
+      creations.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts and adds up all balances as of now, in total and per bucket.
+   *
+   * @param upperBounds the largest balance of each bucket in minor units, ascending; balances
+   *     above the last bound fall into one more bucket
+   * @throws IllegalStateException if the transfer mode does not allow a consistent summary
+   */
+  public synchronized BalanceSummary summarize(long[] upperBounds) {
+    if (!supported) {
+      throw new IllegalStateException("Balances can only be summarized consistently in locking "
+        + "transfer mode");
+    }
+    for (int i = 1; i < upperBounds.length; i++) {
+      if (upperBounds[i] <= upperBounds[i - 1]) {
+        throw new IllegalArgumentException("Bucket bounds must be ascending");
+      }
+    }
+    long timestamp;
+    BalanceCut current = new BalanceCut();
+    creations.writeLock().lock();
+    try (AccountLockManager.Locks locks = lockManager.lockEverything()) {
+      timestamp = System.currentTimeMillis();
+      cut = current;
+    } finally {
+      creations.writeLock().unlock();
+    }
+    Totals totals;
+    try {
+      totals = pool.invoke(new Scan(accountsRepository.accountSpliterator(), current, upperBounds));
+    } finally {
+      cut = null;
+    }
+
+    List<BalanceSummary.Bucket> buckets = new ArrayList<>(upperBounds.length + 1);
+    for (int i = 0; i <= upperBounds.length; i++) {
+      buckets.add(new BalanceSummary.Bucket(
+        i < upperBounds.length ? MinorUnits.toDecimal(upperBounds[i]) : null,
+        totals.bucketCounts[i], decimal(totals.bucketHighs[i], totals.bucketLows[i])));
+    }
+    return new BalanceSummary(timestamp, totals.count, decimal(totals.high, totals.low), buckets);
+  }
+
+  /** The 128-bit amount {@code high * 2^64 + low}, where {@code low} is unsigned. */
+  private static BigDecimal decimal(long high, long low) {
+    BigInteger unsignedLow = BigInteger.valueOf(low & Long.MAX_VALUE);
+    if (low < 0) {
+      unsignedLow = unsignedLow.setBit(Long.SIZE - 1);
+    }
+    return new BigDecimal(BigInteger.valueOf(high).shiftLeft(Long.SIZE).add(unsignedLow),
+      MinorUnits.SCALE);
+  }
+
+  /**
+   * Count and sum of a share of the balances. Sums are kept in two words, as millions of
+   * balances near the maximum would overflow one.
+   */
+  private static final class Totals {
+
+    private final long[] upperBounds;
+
+    private long count;
+
+    private long low;
+
+    private long high;
+
+    private final long[] bucketCounts;
+
+    private final long[] bucketLows;
+
+    private final long[] bucketHighs;
+
+    private Totals(long[] upperBounds) {
+      this.upperBounds = upperBounds;
+      this.bucketCounts = new long[upperBounds.length + 1];
+      this.bucketLows = new long[upperBounds.length + 1];
+      this.bucketHighs = new long[upperBounds.length + 1];
+    }
+
+    private void add(long balance) {
+      count++;
+      long sum = low + balance;
+      if (Long.compareUnsigned(sum, low) < 0) {
+        high++;
+      }
+      low = sum;
+
+      int bucket = Arrays.binarySearch(upperBounds, balance);
+      if (bucket < 0) {
+        bucket = -bucket - 1;
+      }
+      bucketCounts[bucket]++;
+      long bucketSum = bucketLows[bucket] + balance;
+      if (Long.compareUnsigned(bucketSum, bucketLows[bucket]) < 0) {
+        bucketHighs[bucket]++;
+      }
+      bucketLows[bucket] = bucketSum;
+    }
+
+    private void merge(Totals other) {
+      count += other.count;
+      long sum = low + other.low;
+      high += other.high + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+      low = sum;
+      for (int i = 0; i < bucketCounts.length; i++) {
+        bucketCounts[i] += other.bucketCounts[i];
+        long bucketSum = bucketLows[i] + other.bucketLows[i];
+        bucketHighs[i] += other.bucketHighs[i]
+          + (Long.compareUnsigned(bucketSum, bucketLows[i]) < 0 ? 1 : 0);
+        bucketLows[i] = bucketSum;
+      }
+    }
+  }
+
+  /** Forks off halves of its accounts until a leaf is left, then adds that up itself. */
+  private static final class Scan extends RecursiveTask<Totals> {
+
+    private final Spliterator<Account> accounts;
+
+    private final BalanceCut cut;
+
+    private final long[] upperBounds;
+
+    private Scan(Spliterator<Account> accounts, BalanceCut cut, long[] upperBounds) {
+      this.accounts = accounts;
+      this.cut = cut;
+      this.upperBounds = upperBounds;
+    }
+
+    @Override
+    protected Totals compute() {
+      List<Scan> forked = new ArrayList<>();
+      Spliterator<Account> prefix;
+      while (accounts.estimateSize() > LEAF_SIZE && (prefix = accounts.trySplit()) != null) {
+        Scan task = new Scan(prefix, cut, upperBounds);
+        task.fork();
+        forked.add(task);
+      }
+      Totals totals = new Totals(upperBounds);
+      accounts.forEachRemaining(account -> {
+        long balance = cut.balanceAtCut(account);
+        if (balance != BalanceCut.CREATED_AFTER_CUT) {
+          totals.add(balance);
+        }
+      });
+      for (int i = forked.size() - 1; i >= 0; i--) {
+        totals.merge(forked.get(i).join());
+      }
+      return totals;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.repository.JdbcAccountsRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs transfers as database transactions against the {@link JdbcAccountsRepository}.
+ *
+ * <p>A transfer is two conditional updates: the debit only matches while the balance covers
+ * the amount and the credit only while it cannot overflow. Whichever account id sorts first is
+ * updated first, so two opposite transfers lock their rows in the same order. A batch locks all
+ * of its rows in id order, checks it against those balances and writes one net balance per
+ * account with a single JDBC batch.
+ */
+@Component
+@Qualifier(TransferEngine.ENGINE)
+@ConditionalOnProperty(name = "accounts.transfer.mode", havingValue = "jdbc")
+public class JdbcTransferEngine implements TransferEngine {
+
+  private final JdbcAccountsRepository accountsRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public JdbcTransferEngine(JdbcAccountsRepository accountsRepository,
+                            PlatformTransactionManager transactionManager) {
+    this.accountsRepository = accountsRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public boolean transfer(Account source, Account target, long amount) {
+    String sourceId = source.getAccountId();
+    String targetId = target.getAccountId();
+    return transactionTemplate.execute(status -> {
+      boolean applied = sourceId.compareTo(targetId) < 0
+        ? accountsRepository.debit(sourceId, amount) && accountsRepository.credit(targetId, amount)
+        : accountsRepository.credit(targetId, amount) && accountsRepository.debit(sourceId, amount);
+      if (!applied) {
+        status.setRollbackOnly();
+      }
+      return applied;
+    });
+  }
+
+  @Override
+  public TransferStatus[] transferBatch(List<Transfer> transfers, Map<String, Account> accounts,
+                                        boolean allOrNothing) {
+    TransferStatus[] statuses = new TransferStatus[transfers.size()];
+    transactionTemplate.execute(status -> {
+      Map<String, Account> locked = new HashMap<>(accounts.size() * 2);
+      for (Account account : accountsRepository.lockAccounts(accounts.keySet())) {
+        locked.put(account.getAccountId(), account);
+      }
+      if (locked.size() < accounts.size()) {
+        // An account was deleted since it was looked up; the batch can no longer be applied.
+        for (int i = 0; i < statuses.length; i++) {
+          statuses[i] = TransferStatus.NOT_APPLIED;
+        }
+        return null;
+      }
+      if (TransferBatches.check(transfers, locked, allOrNothing, statuses)) {
+        Map<String, Long> before = new HashMap<>(locked.size() * 2);
+        locked.values().forEach(account ->
+          before.put(account.getAccountId(), account.getBalanceInMinorUnits()));
+        TransferBatches.apply(transfers, locked, statuses);
+        List<Account> changed = new ArrayList<>();
+        for (Account account : locked.values()) {
+          if (account.getBalanceInMinorUnits() != before.get(account.getAccountId())) {
+            changed.add(account);
+          }
+        }
+        accountsRepository.updateBalances(changed);
+      }
+      return null;
+    });
+    return statuses;
+  }
+}
@@ -0,0 +1,191 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects single transfers for up to {@code window-micros}, or until {@code max-batch} of
+ * them are waiting, and hands them to the engine behind it as one batch. The batch locks each
+ * of its accounts once and writes one net change per account, so a stream of small transfers
+ * between the same few accounts costs one locked step per window instead of one per transfer.
+ *
+ * <p>Transfers are checked one by one in arrival order against the running balances before
+ * anything is written, so no account is ever overdrawn, not even between two transfers of a
+ * window, and each transfer is confirmed or rejected on its own. Transfers are spread over
+ * {@code lanes} collectors by their unordered pair of accounts, so the two directions of a
+ * pair always net against each other.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "accounts.transfer.netting.enabled", havingValue = "true")
+public class NettingTransferEngine implements TransferEngine {
+
+  private final TransferEngine delegate;
+
+  private final long windowNanos;
+
+  private final int maxBatch;
+
+  private final Lane[] lanes;
+
+  private volatile boolean running = true;
+
+  @Autowired
+  public NettingTransferEngine(@Qualifier(TransferEngine.ENGINE) TransferEngine delegate,
+                               @Value("${accounts.transfer.netting.window-micros:200}") long windowMicros,
+                               @Value("${accounts.transfer.netting.max-batch:256}") int maxBatch,
+                               @Value("${accounts.transfer.netting.lanes:1}") int lanes) {
+    if (windowMicros < 0 || maxBatch < 1 || lanes < 1) {
+      throw new IllegalArgumentException(
+        "The window must not be negative and the batch size and lanes must be positive");
+    }
+    this.delegate = delegate;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxBatch = maxBatch;
+    this.lanes = new Lane[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = new Lane("transfer-netting-" + i);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    for (Lane lane : lanes) {
+      lane.thread.join(TimeUnit.SECONDS.toMillis(5));
+      if (lane.thread.isAlive()) {
+        log.warn("Transfer netting lane did not finish its pending transfers in time");
+      }
+    }
+  }
+
+  @Override
+  public boolean transfer(Account source, Account target, long amount) {
+    return transferAsync(source, target, amount).join();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> transferAsync(Account source, Account target, long amount) {
+    if (!running) {
+      return delegate.transferAsync(source, target, amount);
+    }
+    Pending pending = new Pending(source, target, amount);
+    int pair = source.getAccountId().hashCode() ^ target.getAccountId().hashCode();
+    Lane lane = lanes[(pair & Integer.MAX_VALUE) % lanes.length];
+    lane.queue.add(pending);
+    if (!running && lane.queue.remove(pending)) {
+      // The lane may already have stopped after draining its queue.
+      return delegate.transferAsync(source, target, amount);
+    }
+    return pending.result;
+  }
+
+  /** Batches already net their transfers, so they go straight to the engine behind. */
+  @Override
+  public TransferStatus[] transferBatch(List<Transfer> transfers, Map<String, Account> accounts,
+                                        boolean allOrNothing) {
+    return delegate.transferBatch(transfers, accounts, allOrNothing);
+  }
+
+  private void apply(List<Pending> window) {
+    List<Transfer> transfers = new ArrayList<>(window.size());
+    Map<String, Account> accounts = new HashMap<>(window.size() * 2);
+    for (Pending pending : window) {
+      transfers.add(new Transfer(pending.source.getAccountId(), pending.target.getAccountId(),
+        pending.amount));
+      accounts.put(pending.source.getAccountId(), pending.source);
+      accounts.put(pending.target.getAccountId(), pending.target);
+    }
+    try {
+      TransferStatus[] statuses = delegate.transferBatch(transfers, accounts, false);
+      for (int i = 0; i < statuses.length; i++) {
+        window.get(i).result.complete(statuses[i] == TransferStatus.COMPLETED);
+      }
+    } catch (RuntimeException | Error ex) {
+      for (Pending pending : window) {
+        pending.result.completeExceptionally(ex);
+      }
+    }
+  }
+
+  private final class Lane implements Runnable {
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final Thread thread;
+
+    private Lane(String name) {
+      this.thread = new Thread(this, name);
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    @Override
+    public void run() {
+      List<Pending> window = new ArrayList<>(maxBatch);
+      while (running || !queue.isEmpty()) {
+        try {
+          Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          window.add(first);
+          long deadline = System.nanoTime() + windowNanos;
+          while (window.size() < maxBatch) {
+            if (queue.drainTo(window, maxBatch - window.size()) > 0) {
+              continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+              break;
+            }
+            window.add(next);
+          }
+        } catch (InterruptedException ex) {
+          // Stop collecting, but still apply what is already waiting.
+          running = false;
+        }
+        if (!window.isEmpty()) {
+          apply(window);
+          window.clear();
+        }
+      }
+    }
+  }
+
+  private static final class Pending {
+
+    private final Account source;
+
+    private final Account target;
+
+    private final long amount;
+
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private Pending(Account source, Account target, long amount) {
+      this.source = source;
+      this.target = target;
+      this.amount = amount;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.db.awmd.challenge.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications")
+public class NotificationProperties {
+
+  public enum OverflowPolicy {
+    /** The transfer thread waits until the queue has room. */
+    BLOCK,
+    /** The notification is discarded and counted. */
+    DROP,
+    /**
+     * The notification goes to an overflow queue of {@code spill-capacity}, and so do those after
+     * it until that queue is drained; when it is full too the notification is dropped.
+     */
+    SPILL
+  }
+
+  private int queueCapacity = 10_000;
+
+  private int spillCapacity = 100_000;
+
+  private int workers = 2;
+
+  private int batchSize = 256;
+
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+}
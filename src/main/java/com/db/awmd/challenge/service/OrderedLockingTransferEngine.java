@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes the locks of both accounts from the {@link AccountLockManager}, which acquires them in
+ * a global order so two opposite transfers can never deadlock, and applies the debit and the
+ * credit while holding them.
+ */
+@Component
+@Qualifier(TransferEngine.ENGINE)
+@ConditionalOnProperty(name = "accounts.transfer.mode", havingValue = "locking", matchIfMissing = true)
+public class OrderedLockingTransferEngine implements TransferEngine {
+
+  private final AccountLockManager lockManager;
+
+  private final AccountsRepository accountsRepository;
+
+  private final BalanceSnapshots balanceSnapshots;
+
+  @Autowired
+  public OrderedLockingTransferEngine(AccountLockManager lockManager,
+                                      AccountsRepository accountsRepository,
+                                      BalanceSnapshots balanceSnapshots) {
+    this.lockManager = lockManager;
+    this.accountsRepository = accountsRepository;
+    this.balanceSnapshots = balanceSnapshots;
+  }
+
+  @Override
+  public boolean transfer(Account source, Account target, long amount) {
+    long position;
+    try (AccountLockManager.Locks ignored =
+           lockManager.lock(source.getAccountId(), target.getAccountId())) {
+      if (!target.canDeposit(amount) || source.getBalanceInMinorUnits() < amount) {
+        return false;
+      }
+      position = accountsRepository.beforeTransfer(source, target, amount);
+      balanceSnapshots.beforeChange(source);
+      balanceSnapshots.beforeChange(target);
+      source.withdraw(amount);
+      target.deposit(amount);
+    }
+    accountsRepository.awaitDurable(position);
+    return true;
+  }
+
+  @Override
+  public TransferStatus[] transferBatch(List<Transfer> transfers, Map<String, Account> accounts,
+                                        boolean allOrNothing) {
+    TransferStatus[] statuses = new TransferStatus[transfers.size()];
+    long position = 0;
+    try (AccountLockManager.Locks ignored = lockManager.lockAll(accounts.keySet())) {
+      if (TransferBatches.check(transfers, accounts, allOrNothing, statuses)) {
+        for (int i = 0; i < statuses.length; i++) {
+          if (statuses[i] == TransferStatus.COMPLETED) {
+            Transfer transfer = transfers.get(i);
+            position = accountsRepository.beforeTransfer(accounts.get(transfer.getSourceAccountId()),
+              accounts.get(transfer.getTargetAccountId()), transfer.getAmount());
+          }
+        }
+        accounts.values().forEach(balanceSnapshots::beforeChange);
+        TransferBatches.apply(transfers, accounts, statuses);
+      }
+    }
+    accountsRepository.awaitDurable(position);
+    return statuses;
+  }
+}
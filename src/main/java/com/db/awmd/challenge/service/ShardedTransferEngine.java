@@ -0,0 +1,155 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitions accounts by id into shards that are each owned by a single thread, so balances
+ * are changed without taking any lock. A transfer within one shard runs as one task on that
+ * shard. A transfer across shards first reserves the amount by debiting the source on its
+ * shard, then hands the credit to the target shard as a message; if the credit cannot be
+ * applied, the reservation is released on the source shard. While the credit message is in
+ * flight, the reserved amount is on neither account.
+ */
+@Slf4j
+@Component
+@Qualifier(TransferEngine.ENGINE)
+@ConditionalOnProperty(name = "accounts.transfer.mode", havingValue = "sharded")
+public class ShardedTransferEngine implements TransferEngine {
+
+  private final ExecutorService[] shards;
+
+  /** Held while a batch queues its parking tasks, so that batches park the shards in one order. */
+  private final Object batchOrder = new Object();
+
+  @Autowired
+  public ShardedTransferEngine(@Value("${accounts.transfer.shards:4}") int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.shards = new ExecutorService[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      String name = "transfer-shard-" + i;
+      this.shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    for (ExecutorService shard : shards) {
+      shard.shutdown();
+    }
+    for (ExecutorService shard : shards) {
+      if (!shard.awaitTermination(5, TimeUnit.SECONDS)) {
+        log.warn("Transfer shard did not finish its pending transfers in time");
+      }
+    }
+  }
+
+  @Override
+  public boolean transfer(Account source, Account target, long amount) {
+    return transferAsync(source, target, amount).join();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> transferAsync(Account source, Account target, long amount) {
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    ExecutorService sourceShard = shardOf(source.getAccountId());
+    ExecutorService targetShard = shardOf(target.getAccountId());
+
+    if (sourceShard == targetShard) {
+      sourceShard.execute(() ->
+        result.complete(target.canDeposit(amount) && source.withdraw(amount) && target.deposit(amount)));
+      return result;
+    }
+
+    sourceShard.execute(() -> {
+      if (!source.withdraw(amount)) {
+        result.complete(false);
+        return;
+      }
+      targetShard.execute(() -> {
+        if (target.deposit(amount)) {
+          result.complete(true);
+        } else {
+          sourceShard.execute(() -> {
+            source.deposit(amount);
+            result.complete(false);
+          });
+        }
+      });
+    });
+    return result;
+  }
+
+  /**
+   * Parks every shard while the batch runs on the calling thread, so the batch sees and
+   * changes all of its accounts as one step. Concurrent batches queue their parking tasks one
+   * after the other, so every shard parks for them in the same order; otherwise one shard could
+   * park for one batch and another shard for the other, and both would wait forever.
+   */
+  @Override
+  public TransferStatus[] transferBatch(List<Transfer> transfers, Map<String, Account> accounts,
+                                        boolean allOrNothing) {
+    CountDownLatch parked = new CountDownLatch(shards.length);
+    CountDownLatch released = new CountDownLatch(1);
+    synchronized (batchOrder) {
+      for (ExecutorService shard : shards) {
+        shard.execute(() -> {
+          parked.countDown();
+          awaitUninterruptibly(released);
+        });
+      }
+    }
+
+    try {
+      awaitUninterruptibly(parked);
+      TransferStatus[] statuses = new TransferStatus[transfers.size()];
+      if (TransferBatches.check(transfers, accounts, allOrNothing, statuses)) {
+        TransferBatches.apply(transfers, accounts, statuses);
+      }
+      return statuses;
+    } finally {
+      released.countDown();
+    }
+  }
+
+  private ExecutorService shardOf(String accountId) {
+    int hash = accountId.hashCode();
+    return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
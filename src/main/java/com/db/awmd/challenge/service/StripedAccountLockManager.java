@@ -0,0 +1,146 @@
+package com.db.awmd.challenge.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps account ids onto a fixed, power-of-two number of {@link StampedLock} stripes. Stripes
+ * are always acquired in ascending index order, and ids that share a stripe lock it once.
+ */
+@Component
+public class StripedAccountLockManager implements AccountLockManager {
+
+  private final StampedLock[] stripes;
+
+  private final AtomicLongArray contention;
+
+  private final LongAdder waitNanos = new LongAdder();
+
+  private final int mask;
+
+  @Autowired
+  public StripedAccountLockManager(@Value("${accounts.locks.stripes:1024}") int stripes) {
+    int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new StampedLock[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new StampedLock();
+    }
+    this.contention = new AtomicLongArray(size);
+    this.mask = size - 1;
+  }
+
+  @Override
+  public Locks lock(String firstAccountId, String secondAccountId) {
+    int first = stripe(firstAccountId);
+    int second = stripe(secondAccountId);
+    if (first == second) {
+      return new Held(new int[] {first});
+    }
+    return new Held(first < second ? new int[] {first, second} : new int[] {second, first});
+  }
+
+  @Override
+  public Locks lockAll(Collection<String> accountIds) {
+    int[] indexes = new int[accountIds.size()];
+    int count = 0;
+    for (String accountId : accountIds) {
+      indexes[count++] = stripe(accountId);
+    }
+    Arrays.sort(indexes);
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || indexes[unique - 1] != indexes[i]) {
+        indexes[unique++] = indexes[i];
+      }
+    }
+    return new Held(Arrays.copyOf(indexes, unique));
+  }
+
+  @Override
+  public Locks lockEverything() {
+    int[] indexes = new int[stripes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = i;
+    }
+    return new Held(indexes);
+  }
+
+  @Override
+  public <T> T readOptimistically(String accountId, Supplier<T> reader) {
+    StampedLock lock = stripes[stripe(accountId)];
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      T value = reader.get();
+      if (lock.validate(stamp)) {
+        return value;
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return reader.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public long[] contentionHistogram() {
+    long[] histogram = new long[contention.length()];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = contention.get(i);
+    }
+    return histogram;
+  }
+
+  @Override
+  public long waitNanos() {
+    return waitNanos.sum();
+  }
+
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  private int stripe(String accountId) {
+    int hash = accountId.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private final class Held implements Locks {
+
+    private final int[] indexes;
+
+    private final long[] stamps;
+
+    private Held(int[] indexes) {
+      this.indexes = indexes;
+      this.stamps = new long[indexes.length];
+      for (int i = 0; i < indexes.length; i++) {
+        StampedLock lock = stripes[indexes[i]];
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+          // Only a contended acquisition reads the clock.
+          contention.incrementAndGet(indexes[i]);
+          long waitStart = System.nanoTime();
+          stamp = lock.writeLock();
+          waitNanos.add(System.nanoTime() - waitStart);
+        }
+        stamps[i] = stamp;
+      }
+    }
+
+    @Override
+    public void close() {
+      for (int i = indexes.length - 1; i >= 0; i--) {
+        stripes[indexes[i]].unlockWrite(stamps[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.db.awmd.challenge.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket kept as a single word, following the generic cell rate algorithm: instead of
+ * a token count it stores the time at which the bucket would be full again. Taking a token
+ * moves that time one interval ahead, unless it is already further ahead than the burst
+ * allows. Callers pass the current {@link System#nanoTime()} so that one clock read serves
+ * several buckets.
+ */
+public final class TokenBucket {
+
+  private final long intervalNanos;
+
+  private final long toleranceNanos;
+
+  private final AtomicLong fullAt;
+
+  public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+    if (permitsPerSecond <= 0 || burst < 1) {
+      throw new IllegalArgumentException("The rate and the burst must be positive");
+    }
+    this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+    this.toleranceNanos = intervalNanos * (burst - 1);
+    this.fullAt = new AtomicLong(nowNanos);
+  }
+
+  public boolean tryAcquire(long nowNanos) {
+    while (true) {
+      long current = fullAt.get();
+      long from = current - nowNanos > 0 ? current : nowNanos;
+      if (from - nowNanos > toleranceNanos) {
+        return false;
+      }
+      if (fullAt.compareAndSet(current, from + intervalNanos)) {
+        return true;
+      }
+    }
+  }
+
+  /** Gives back a token taken by {@link #tryAcquire} for a request that did not go ahead. */
+  public void release() {
+    fullAt.addAndGet(-intervalNanos);
+  }
+}
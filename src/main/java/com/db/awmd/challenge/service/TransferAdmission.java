@@ -0,0 +1,165 @@
+package com.db.awmd.challenge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether a transfer may run before it touches any account, so that a client flooding
+ * one account or the whole service is turned away cheaply instead of queueing on locks. A
+ * transfer must get a token from the global bucket if there is one, a place under the
+ * {@link AdaptiveConcurrencyLimit} and a token from the bucket of its source account, in that
+ * order.
+ *
+ * <p>Source account buckets live in a bounded map that drops the least recently used ones and
+ * those idle for {@code idle-seconds}; a bucket idle for longer than its burst takes to refill
+ * is full, so dropping it changes nothing.
+ */
+@Component
+public class TransferAdmission {
+
+  private static final Permit UNLIMITED = new Permit(null, 0, null);
+
+  private static final Permit ACCOUNT_RATE_EXCEEDED =
+    new Permit(null, 0, "Too many transfers from the source account");
+
+  private static final Permit RATE_EXCEEDED = new Permit(null, 0, "Too many transfers");
+
+  private static final Permit CONCURRENCY_EXCEEDED = new Permit(null, 0, "Too many transfers in flight");
+
+  private final boolean enabled;
+
+  private final double accountPerSecond;
+
+  private final int accountBurst;
+
+  private final Cache<String, TokenBucket> accountBuckets;
+
+  /** Null without a global rate. */
+  private final TokenBucket globalBucket;
+
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+  private final Counter accountRejections;
+
+  private final Counter rateRejections;
+
+  private final Counter concurrencyRejections;
+
+  @Autowired
+  public TransferAdmission(AdmissionProperties properties, MeterRegistry registry) {
+    long now = System.nanoTime();
+    AdmissionProperties.Concurrency concurrency = properties.getConcurrency();
+    this.enabled = properties.isEnabled();
+    this.accountPerSecond = properties.getAccountPerSecond();
+    this.accountBurst = properties.getAccountBurst();
+    // Fails fast on a rate or burst that no bucket could be built with.
+    new TokenBucket(accountPerSecond, accountBurst, now);
+    this.accountBuckets = Caffeine.newBuilder().executor(Runnable::run)
+      .maximumSize(properties.getMaxAccounts())
+      .expireAfterAccess(properties.getIdleSeconds(), TimeUnit.SECONDS)
+      .build();
+    this.globalBucket = properties.getGlobalPerSecond() > 0
+      ? new TokenBucket(properties.getGlobalPerSecond(), properties.getGlobalBurst(), now) : null;
+    this.concurrencyLimit = new AdaptiveConcurrencyLimit(concurrency.getInitialLimit(),
+      concurrency.getMinLimit(), concurrency.getMaxLimit(), concurrency.getTolerance(),
+      concurrency.getWindowMillis(), now);
+
+    this.accountRejections = rejections(registry, "account_rate");
+    this.rateRejections = rejections(registry, "rate");
+    this.concurrencyRejections = rejections(registry, "concurrency");
+    Gauge.builder("accounts.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+      .description("Transfers admitted at once")
+      .register(registry);
+    Gauge.builder("accounts.admission.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+      .description("Admitted transfers that have not finished")
+      .register(registry);
+  }
+
+  /**
+   * Admits a transfer from {@code sourceAccountId} or says why not. An admitted transfer must
+   * close its permit once it has finished, so that its latency is measured and its place freed.
+   */
+  public Permit admit(String sourceAccountId) {
+    if (!enabled) {
+      return UNLIMITED;
+    }
+    long now = System.nanoTime();
+    if (globalBucket != null && !globalBucket.tryAcquire(now)) {
+      rateRejections.increment();
+      return RATE_EXCEEDED;
+    }
+    if (!concurrencyLimit.tryAcquire()) {
+      concurrencyRejections.increment();
+      return CONCURRENCY_EXCEEDED;
+    }
+    // The account comes last, so that an overload turned away above does not spend the budget
+    // of every source account; a hot account turned away here gives back what it took above.
+    TokenBucket bucket = accountBuckets.getIfPresent(sourceAccountId);
+    if (bucket == null) {
+      bucket = accountBuckets.get(sourceAccountId,
+        accountId -> new TokenBucket(accountPerSecond, accountBurst, now));
+    }
+    if (!bucket.tryAcquire(now)) {
+      concurrencyLimit.cancel();
+      if (globalBucket != null) {
+        globalBucket.release();
+      }
+      accountRejections.increment();
+      return ACCOUNT_RATE_EXCEEDED;
+    }
+    return new Permit(this, now, null);
+  }
+
+  public int getConcurrencyLimit() {
+    return concurrencyLimit.getLimit();
+  }
+
+  private void release(long start) {
+    concurrencyLimit.release(start, System.nanoTime());
+  }
+
+  private static Counter rejections(MeterRegistry registry, String reason) {
+    return Counter.builder("accounts.admission.rejections")
+      .description("Transfers turned away before they ran, by reason")
+      .tag("reason", reason)
+      .register(registry);
+  }
+
+  /** The answer of {@link #admit}; closing it is a no-op unless the transfer was admitted. */
+  public static final class Permit implements AutoCloseable {
+
+    private final TransferAdmission admission;
+
+    private final long start;
+
+    private final String rejection;
+
+    private Permit(TransferAdmission admission, long start, String rejection) {
+      this.admission = admission;
+      this.start = start;
+      this.rejection = rejection;
+    }
+
+    public boolean isAdmitted() {
+      return rejection == null;
+    }
+
+    /** Why the transfer was turned away, or null if it was admitted. */
+    public String getRejection() {
+      return rejection;
+    }
+
+    @Override
+    public void close() {
+      if (admission != null) {
+        admission.release(start);
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a batch against a private copy of the balances first and then writes one net change
+ * per account, so a failed all-or-nothing batch never touches the accounts. Callers must keep
+ * every account of the batch from changing between {@link #check} and {@link #apply}.
+ */
+final class TransferBatches {
+
+  private TransferBatches() {
+  }
+
+  /**
+   * Fills in the status of every transfer.
+   *
+   * @return whether the completed transfers should be applied
+   */
+  static boolean check(List<Transfer> transfers, Map<String, Account> accounts,
+                       boolean allOrNothing, TransferStatus[] statuses) {
+    Map<String, long[]> balances = new HashMap<>(accounts.size() * 2);
+    for (Account account : accounts.values()) {
+      balances.put(account.getAccountId(), new long[] {account.getBalanceInMinorUnits()});
+    }
+
+    boolean failed = false;
+    for (int i = 0; i < statuses.length; i++) {
+      Transfer transfer = transfers.get(i);
+      long[] source = balances.get(transfer.getSourceAccountId());
+      long[] target = balances.get(transfer.getTargetAccountId());
+      long amount = transfer.getAmount();
+      if (source[0] < amount || target[0] > Long.MAX_VALUE - amount) {
+        statuses[i] = TransferStatus.INSUFFICIENT_FUNDS;
+        failed = true;
+      } else {
+        source[0] -= amount;
+        target[0] += amount;
+        statuses[i] = TransferStatus.COMPLETED;
+      }
+    }
+
+    if (failed && allOrNothing) {
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i] == TransferStatus.COMPLETED) {
+          statuses[i] = TransferStatus.NOT_APPLIED;
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /** Applies the net change of every {@link TransferStatus#COMPLETED} transfer. */
+  static void apply(List<Transfer> transfers, Map<String, Account> accounts,
+                    TransferStatus[] statuses) {
+    Map<String, long[]> deltas = new HashMap<>(accounts.size() * 2);
+    for (int i = 0; i < statuses.length; i++) {
+      if (statuses[i] == TransferStatus.COMPLETED) {
+        Transfer transfer = transfers.get(i);
+        deltas.computeIfAbsent(transfer.getSourceAccountId(), id -> new long[1])[0] -= transfer.getAmount();
+        deltas.computeIfAbsent(transfer.getTargetAccountId(), id -> new long[1])[0] += transfer.getAmount();
+      }
+    }
+
+    for (Map.Entry<String, long[]> delta : deltas.entrySet()) {
+      Account account = accounts.get(delta.getKey());
+      if (delta.getValue()[0] > 0) {
+        account.deposit(delta.getValue()[0]);
+      } else if (delta.getValue()[0] < 0) {
+        account.withdraw(-delta.getValue()[0]);
+      }
+    }
+  }
+}
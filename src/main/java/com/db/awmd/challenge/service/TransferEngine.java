@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface TransferEngine {
+
+  /** Qualifies the engine that actually applies transfers, as opposed to decorators of it. */
+  String ENGINE = "transferEngineDelegate";
+
+  /**
+   * Moves {@code amount} minor units from {@code source} to {@code target} as a single step.
+   *
+   * @return {@code false} if the source account does not hold enough funds or the target
+   *     balance would overflow, in which case neither balance is changed
+   */
+  boolean transfer(Account source, Account target, long amount);
+
+  /**
+   * Same as {@link #transfer(Account, Account, long)}, completing once the transfer has been
+   * applied or rejected.
+   */
+  default CompletableFuture<Boolean> transferAsync(Account source, Account target, long amount) {
+    return CompletableFuture.completedFuture(transfer(source, target, amount));
+  }
+
+  /**
+   * Applies {@code transfers} in order, locking every account of the batch only once.
+   *
+   * @param accounts every account referenced by {@code transfers}, keyed by id
+   * @param allOrNothing whether a single failed transfer leaves every balance untouched
+   * @return one of {@link TransferStatus#COMPLETED}, {@link TransferStatus#INSUFFICIENT_FUNDS}
+   *     or {@link TransferStatus#NOT_APPLIED} for each transfer
+   */
+  TransferStatus[] transferBatch(List<Transfer> transfers, Map<String, Account> accounts,
+                                 boolean allOrNothing);
+}
@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.csv.CsvFactory;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The formats accounts are streamed in: one {@code {"accountId":..,"balance":..}} object per
+ * line, or CSV with an {@code accountId,balance} header. Both are read and written as a
+ * sequence of objects, so one loop handles either.
+ */
+public enum AccountStreamFormat {
+
+  NDJSON("application/x-ndjson") {
+    @Override
+    public JsonParser parser(InputStream in) throws IOException {
+      return JSON.createParser(in);
+    }
+
+    @Override
+    public JsonGenerator generator(OutputStream out) throws IOException {
+      JsonGenerator generator = JSON.createGenerator(out);
+      generator.setRootValueSeparator(null);
+      return generator;
+    }
+
+    @Override
+    void endRow(JsonGenerator generator) throws IOException {
+      generator.writeRaw('\n');
+    }
+  },
+
+  CSV("text/csv") {
+    @Override
+    public JsonParser parser(InputStream in) throws IOException {
+      CsvParser parser = CSV_FACTORY.createParser(in);
+      parser.setSchema(CsvSchema.emptySchema().withHeader());
+      return parser;
+    }
+
+    @Override
+    public JsonGenerator generator(OutputStream out) throws IOException {
+      CsvGenerator generator = CSV_FACTORY.createGenerator(out);
+      generator.setSchema(CsvSchema.builder().addColumn("accountId").addColumn("balance")
+        .setUseHeader(true).build());
+      return generator;
+    }
+  };
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private static final CsvFactory CSV_FACTORY = new CsvFactory();
+
+  private final String mediaType;
+
+  AccountStreamFormat(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  public abstract JsonParser parser(InputStream in) throws IOException;
+
+  public abstract JsonGenerator generator(OutputStream out) throws IOException;
+
+  /** Called after each account is written. */
+  void endRow(JsonGenerator generator) throws IOException {
+  }
+}
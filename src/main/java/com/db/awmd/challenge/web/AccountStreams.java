@@ -0,0 +1,202 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.web.response.AccountImportResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams accounts in and out in an {@link AccountStreamFormat}, one row at a time.
+ *
+ * <p>An import parses rows with the Jackson streaming API and creates them a chunk at a time,
+ * so it holds one chunk in memory however large the upload is. Ids that already exist are
+ * counted and skipped. The first row that cannot be parsed or is not a valid account stops the
+ * import, and so does a chunk the store rejects as a whole; the rows before it stay imported,
+ * so a client can resume after them.
+ */
+@Slf4j
+@Component
+public class AccountStreams {
+
+  /** How many duplicate ids an import reports by name; the rest are only counted. */
+  static final int MAX_REPORTED_DUPLICATES = 1_000;
+
+  private final AccountsService accountsService;
+
+  private final int chunkSize;
+
+  @Autowired
+  public AccountStreams(AccountsService accountsService,
+                        @Value("${accounts.import.chunk-size:10000}") int chunkSize) {
+    this.accountsService = accountsService;
+    this.chunkSize = chunkSize;
+  }
+
+  public AccountImportResult importAccounts(AccountStreamFormat format, InputStream in)
+    throws IOException {
+    long start = System.nanoTime();
+    List<Account> chunk = new ArrayList<>(chunkSize);
+    Duplicates duplicates = new Duplicates();
+    long imported = 0;
+    String error = null;
+    try {
+      try (JsonParser parser = format.parser(in)) {
+        Account account;
+        while ((account = readAccount(parser)) != null) {
+          chunk.add(account);
+          if (chunk.size() == chunkSize) {
+            imported += createAccounts(chunk, duplicates);
+          }
+        }
+      } catch (JsonProcessingException ex) {
+        JsonLocation location = ex.getLocation();
+        error = (location == null ? "" : "Line " + location.getLineNr() + ": ") + ex.getOriginalMessage();
+      }
+      imported += createAccounts(chunk, duplicates);
+    } catch (DuplicateAccountIdException ex) {
+      // A store that creates a chunk in one batch fails it as a whole when an id is taken
+      // concurrently; the chunks before it stay imported.
+      error = ex.getMessage();
+    }
+
+    log.info("Imported {} accounts as {} in {} ms, {} duplicates{}", imported, format,
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), duplicates.count,
+      error == null ? "" : ", stopped at " + error);
+    return new AccountImportResult(imported, duplicates.count, duplicates.ids, error);
+  }
+
+  /**
+   * Writes every account to {@code out} while the store is scanned, without collecting them
+   * first. Balances are read one account at a time, so the output is not a point-in-time view.
+   *
+   * @return the number of accounts written
+   */
+  public long exportAccounts(AccountStreamFormat format, OutputStream out) throws IOException {
+    long[] exported = {0};
+    try (JsonGenerator generator = format.generator(out)) {
+      accountsService.getAccountsRepository().forEachAccount(account -> {
+        try {
+          generator.writeStartObject();
+          generator.writeStringField("accountId", account.getAccountId());
+          generator.writeFieldName("balance");
+          generator.writeNumber(account.getBalance());
+          generator.writeEndObject();
+          format.endRow(generator);
+          exported[0]++;
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    return exported[0];
+  }
+
+  private long createAccounts(List<Account> chunk, Duplicates duplicates) {
+    long before = duplicates.count;
+    accountsService.createAccounts(chunk, duplicates::add);
+    long created = chunk.size() - (duplicates.count - before);
+    chunk.clear();
+    return created;
+  }
+
+  private static Account readAccount(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      return null;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an account, found " + token);
+    }
+    // Errors found once the row has been read point at its first value, not at the next row;
+    // the CSV parser places the start of a row before the line break ending the previous one.
+    JsonLocation row = null;
+    String accountId = null;
+    BigDecimal balance = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (row == null) {
+        row = parser.getTokenLocation();
+      }
+      if ("accountId".equals(field)) {
+        accountId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+      } else if ("balance".equals(field)) {
+        balance = readDecimal(parser, value);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if (row == null) {
+      row = parser.getTokenLocation();
+    }
+    if (accountId == null || accountId.isEmpty()) {
+      throw new JsonParseException(parser, "accountId may not be empty", row);
+    }
+    if (balance == null) {
+      throw new JsonParseException(parser, "balance may not be null", row);
+    }
+    if (balance.signum() < 0) {
+      throw new JsonParseException(parser, "Initial balance must be positive.", row);
+    }
+    try {
+      return new Account(accountId, MinorUnits.fromDecimal(balance));
+    } catch (IllegalArgumentException ex) {
+      throw new JsonParseException(parser, ex.getMessage(), row);
+    }
+  }
+
+  private static BigDecimal readDecimal(JsonParser parser, JsonToken value) throws IOException {
+    switch (value) {
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDecimalValue();
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        // CSV values are always strings.
+        String text = parser.getText().trim();
+        try {
+          return text.isEmpty() ? null : new BigDecimal(text);
+        } catch (NumberFormatException ex) {
+          throw new JsonParseException(parser, "balance " + text + " is not a number");
+        }
+      default:
+        throw new JsonParseException(parser, "balance must be a number, found " + value);
+    }
+  }
+
+  private static final class Duplicates {
+
+    private final List<String> ids = new ArrayList<>();
+
+    private long count;
+
+    private void add(String accountId) {
+      if (ids.size() < MAX_REPORTED_DUPLICATES) {
+        ids.add(accountId);
+      }
+      count++;
+    }
+  }
+}
@@ -1,38 +1,105 @@
 package com.db.awmd.challenge.web;
 
+import com.db.awmd.challenge.cluster.AccountPartitions;
+import com.db.awmd.challenge.cluster.ClusterClient;
+import com.db.awmd.challenge.cluster.PartitionedTransfers;
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferEvent;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.exception.PartitionUnavailableException;
+import com.db.awmd.challenge.repository.TransferHistory;
 import com.db.awmd.challenge.service.AccountsService;
-import com.db.awmd.challenge.exception.TransferMoneyException;
+import com.db.awmd.challenge.service.TransferAdmission;
 import com.db.awmd.challenge.web.request.TransferMoneyRequest;
+import com.db.awmd.challenge.web.response.TransferBatchItemResult;
+import com.db.awmd.challenge.web.response.TransferHistoryPage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @RestController
 @RequestMapping("/v1/accounts")
 @Slf4j
 public class AccountsController {
 
+  static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+  private static final int MAX_HISTORY_PAGE_SIZE = 1000;
+
   private final AccountsService accountsService;
 
+  private final IdempotencyIndex idempotencyIndex;
+
+  private final TransferHistory transferHistory;
+
+  private final AccountPartitions partitions;
+
+  private final PartitionedTransfers partitionedTransfers;
+
+  private final ClusterClient clusterClient;
+
+  private final RequestLogSampler requestLog;
+
+  private final TransferAdmission admission;
+
+  private final int maxBatchSize;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, IdempotencyIndex idempotencyIndex,
+                            TransferHistory transferHistory, AccountPartitions partitions,
+                            PartitionedTransfers partitionedTransfers, ClusterClient clusterClient,
+                            RequestLogSampler requestLog, TransferAdmission admission,
+                            @Value("${accounts.transfer.batch.max-size:1000}") int maxBatchSize) {
     this.accountsService = accountsService;
+    this.idempotencyIndex = idempotencyIndex;
+    this.transferHistory = transferHistory;
+    this.partitions = partitions;
+    this.partitionedTransfers = partitionedTransfers;
+    this.clusterClient = clusterClient;
+    this.requestLog = requestLog;
+    this.admission = admission;
+    this.maxBatchSize = maxBatchSize;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
-    log.info("Creating account {}", account);
+  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account,
+                                              @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                required = false) String forwardedBy) {
+    if (log.isInfoEnabled() && requestLog.sample()) {
+      log.info("Creating account {}", account);
+    }
+    if (forwardedBy == null && !partitions.isLocal(account.getAccountId())) {
+      return clusterClient.forward(partitions.ownerOf(account.getAccountId()), HttpMethod.POST,
+        "/v1/accounts", account);
+    }
 
     try {
     this.accountsService.createAccount(account);
@@ -44,20 +111,240 @@ public class AccountsController {
   }
 
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
-    log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+  public ResponseEntity<Object> getAccount(@PathVariable String accountId,
+                                           @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                             required = false) String forwardedBy) {
+    if (log.isInfoEnabled() && requestLog.sample()) {
+      log.info("Retrieving account for id {}", accountId);
+    }
+    if (forwardedBy == null && !partitions.isLocal(accountId)) {
+      return clusterClient.forward(partitions.ownerOf(accountId), HttpMethod.GET,
+        UriComponentsBuilder.fromPath("/v1/accounts/{accountId}").buildAndExpand(accountId)
+          .encode().toUriString(), null);
+    }
+    return new ResponseEntity<>(this.accountsService.getAccount(accountId), HttpStatus.OK);
+  }
+
+  /**
+   * Pages through the transfers of an account, newest first. {@code from} is the {@code next}
+   * cursor of the previous page; without it the page starts at the newest transfer.
+   */
+  @GetMapping(path = "/{accountId}/transfers")
+  public ResponseEntity<Object> getTransfers(@PathVariable String accountId,
+                                             @RequestParam(required = false) Long from,
+                                             @RequestParam(defaultValue = "50") int limit,
+                                             @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                               required = false) String forwardedBy) {
+    if (forwardedBy == null && !partitions.isLocal(accountId)) {
+      UriComponentsBuilder uri = UriComponentsBuilder.fromPath("/v1/accounts/{accountId}/transfers")
+        .queryParam("limit", limit);
+      if (from != null) {
+        uri.queryParam("from", from);
+      }
+      return clusterClient.forward(partitions.ownerOf(accountId), HttpMethod.GET,
+        uri.buildAndExpand(accountId).encode().toUriString(), null);
+    }
+    if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+      return new ResponseEntity<>("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE,
+        HttpStatus.BAD_REQUEST);
+    }
+    if (from != null && from < 0) {
+      return new ResponseEntity<>("from must not be negative", HttpStatus.BAD_REQUEST);
+    }
+    long end = Math.min(from == null ? Long.MAX_VALUE : from, transferHistory.count(accountId));
+    List<TransferEvent> transfers = transferHistory.read(accountId, end, limit);
+    long next = end - transfers.size();
+    return new ResponseEntity<>(new TransferHistoryPage(transfers, next > 0 ? next : null),
+      HttpStatus.OK);
   }
 
   @PostMapping(value = "/transfer")
-  public ResponseEntity<Object> transfer(@RequestBody @Valid TransferMoneyRequest request) {
-    log.info("Transfer money details: {}", request);
+  public ResponseEntity<Object> transfer(@RequestBody TransferMoneyRequest request,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                           String idempotencyKey) {
+    if (log.isInfoEnabled() && requestLog.sample()) {
+      log.info("Transfer money details: {}, idempotency key {}", request, idempotencyKey);
+    }
+    String violation = request.findViolation();
+    if (violation != null) {
+      return new ResponseEntity<>(violation, HttpStatus.BAD_REQUEST);
+    }
+    Transfer transfer = new Transfer(request.getSourceAccountId(), request.getTargetAccountId(),
+      request.getAmountInMinorUnits());
+    try (TransferAdmission.Permit permit = admission.admit(transfer.getSourceAccountId())) {
+      if (!permit.isAdmitted()) {
+        return tooManyRequests(permit);
+      }
+      return transfer(transfer, idempotencyKey);
+    }
+  }
+
+  /**
+   * Same as {@link #transfer(TransferMoneyRequest, String)}, but the transfer runs on the
+   * asynchronous transfer executor and the request thread is released until it completes.
+   * Answers {@code SERVICE_UNAVAILABLE} when the executor admits no more transfers, or when
+   * another node the transfer needs is unavailable. Both endpoints answer
+   * {@code TOO_MANY_REQUESTS} when {@link TransferAdmission} turns the transfer away.
+   */
+  @PostMapping(value = "/transfer/async")
+  public CompletableFuture<ResponseEntity<Object>> transferAsync(
+    @RequestBody TransferMoneyRequest request,
+    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    if (log.isInfoEnabled() && requestLog.sample()) {
+      log.info("Async transfer money details: {}, idempotency key {}", request, idempotencyKey);
+    }
+    String violation = request.findViolation();
+    if (violation != null) {
+      return CompletableFuture.completedFuture(new ResponseEntity<>(violation, HttpStatus.BAD_REQUEST));
+    }
+    Transfer transfer = new Transfer(request.getSourceAccountId(), request.getTargetAccountId(),
+      request.getAmountInMinorUnits());
+    TransferAdmission.Permit permit = admission.admit(transfer.getSourceAccountId());
+    if (!permit.isAdmitted()) {
+      return CompletableFuture.completedFuture(tooManyRequests(permit));
+    }
+    CompletableFuture<ResponseEntity<Object>> response;
     try {
-      accountsService.transfer(request.getSourceAccountId(), request.getTargetAccountId(), request.getAmount());
-    } catch (TransferMoneyException ex) {
-      return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+      if (idempotencyKey == null) {
+        response = partitionedTransfers.tryTransferAsync(transfer.getSourceAccountId(),
+          transfer.getTargetAccountId(), transfer.getAmount())
+          .thenApply(outcome -> response(transfer, outcome));
+      } else {
+        // A duplicate waits for the first response, so the whole lookup runs off the request thread.
+        response = accountsService.supplyAsync(() -> transfer(transfer, idempotencyKey));
+      }
+    } catch (RejectedExecutionException ex) {
+      permit.close();
+      return CompletableFuture.completedFuture(
+        new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+    return response.whenComplete((result, failure) -> permit.close())
+      .exceptionally(AccountsController::unavailable);
+  }
+
+  private static ResponseEntity<Object> tooManyRequests(TransferAdmission.Permit permit) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return new ResponseEntity<>(permit.getRejection(), headers, HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  private ResponseEntity<Object> transfer(Transfer transfer, String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return transfer(transfer);
+    }
+    if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+      return new ResponseEntity<>(IDEMPOTENCY_KEY + " must have between 1 and "
+        + MAX_IDEMPOTENCY_KEY_LENGTH + " characters", HttpStatus.BAD_REQUEST);
+    }
+    try {
+      return idempotencyIndex.execute(idempotencyKey, transfer, () -> transfer(transfer));
+    } catch (IdempotencyKeyReusedException ex) {
+      return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+  }
+
+  private ResponseEntity<Object> transfer(Transfer transfer) {
+    TransferOutcome outcome = partitionedTransfers.tryTransfer(transfer.getSourceAccountId(),
+      transfer.getTargetAccountId(), transfer.getAmount());
+    return response(transfer, outcome);
+  }
+
+  private static ResponseEntity<Object> response(Transfer transfer, TransferOutcome outcome) {
+    if (outcome != TransferOutcome.COMPLETED) {
+      return new ResponseEntity<>(
+        outcome.describe(transfer.getSourceAccountId(), transfer.getTargetAccountId()),
+        HttpStatus.NOT_ACCEPTABLE);
     }
     return new ResponseEntity<>(HttpStatus.OK);
   }
 
+  private static ResponseEntity<Object> unavailable(Throwable failure) {
+    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+    if (cause instanceof PartitionUnavailableException) {
+      return new ResponseEntity<>(cause.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    throw failure instanceof CompletionException
+      ? (CompletionException) failure : new CompletionException(failure);
+  }
+
+  @ExceptionHandler(PartitionUnavailableException.class)
+  public ResponseEntity<Object> partitionUnavailable(PartitionUnavailableException ex) {
+    return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  /**
+   * In a cluster every transfer of a batch must be between accounts of the same node, since
+   * the batch is applied by that node under its locks.
+   */
+  @PostMapping(value = "/transfers/batch")
+  public ResponseEntity<Object> transferBatch(@RequestBody List<TransferMoneyRequest> requests,
+                                              @RequestParam(defaultValue = "false") boolean allOrNothing,
+                                              @RequestHeader(value = ClusterClient.FORWARDED_HEADER,
+                                                required = false) String forwardedBy) {
+    if (log.isInfoEnabled() && requestLog.sample()) {
+      log.info("Transfer money batch of {} transfers, allOrNothing = {}", requests.size(), allOrNothing);
+    }
+    if (requests.isEmpty() || requests.size() > maxBatchSize) {
+      return new ResponseEntity<>("Batch must contain between 1 and " + maxBatchSize + " transfers",
+        HttpStatus.BAD_REQUEST);
+    }
+
+    TransferBatchItemResult[] results = new TransferBatchItemResult[requests.size()];
+    List<Transfer> transfers = new ArrayList<>(requests.size());
+    int[] positions = new int[requests.size()];
+    for (int i = 0; i < requests.size(); i++) {
+      String violation = requests.get(i) == null
+        ? "Transfer must not be null" : requests.get(i).findViolation();
+      if (violation != null) {
+        results[i] = new TransferBatchItemResult(i, TransferStatus.INVALID_REQUEST, violation);
+      } else {
+        TransferMoneyRequest request = requests.get(i);
+        positions[transfers.size()] = i;
+        transfers.add(new Transfer(request.getSourceAccountId(), request.getTargetAccountId(),
+          request.getAmountInMinorUnits()));
+      }
+    }
+
+    if (allOrNothing && transfers.size() < requests.size()) {
+      for (int i = 0; i < transfers.size(); i++) {
+        results[positions[i]] = new TransferBatchItemResult(positions[i], TransferStatus.NOT_APPLIED, null);
+      }
+      return new ResponseEntity<>(Arrays.asList(results), HttpStatus.BAD_REQUEST);
+    }
+
+    if (forwardedBy == null && partitions.isEnabled()) {
+      int owner = ownerOf(transfers);
+      if (owner < 0) {
+        return new ResponseEntity<>("Transfers of a batch must all be between accounts of one node",
+          HttpStatus.BAD_REQUEST);
+      }
+      if (owner != partitions.self()) {
+        return clusterClient.forward(owner, HttpMethod.POST,
+          "/v1/accounts/transfers/batch?allOrNothing=" + allOrNothing, requests);
+      }
+    }
+
+    List<TransferStatus> statuses = accountsService.transferBatch(transfers, allOrNothing);
+    for (int i = 0; i < statuses.size(); i++) {
+      results[positions[i]] = new TransferBatchItemResult(positions[i], statuses.get(i), null);
+    }
+    return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+  }
+
+  /** The node that owns every account of {@code transfers}, or -1 if there is none. */
+  private int ownerOf(List<Transfer> transfers) {
+    int owner = partitions.self();
+    for (int i = 0; i < transfers.size(); i++) {
+      Transfer transfer = transfers.get(i);
+      int source = partitions.ownerOf(transfer.getSourceAccountId());
+      if (i == 0) {
+        owner = source;
+      }
+      if (source != owner || partitions.ownerOf(transfer.getTargetAccountId()) != owner) {
+        return -1;
+      }
+    }
+    return owner;
+  }
+
 }
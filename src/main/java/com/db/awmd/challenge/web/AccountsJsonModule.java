@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.web.request.TransferMoneyRequest;
+import com.db.awmd.challenge.web.request.TransferMoneyRequestDeserializer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.io.IOException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hand-written JSON mapping for the types on the transfer and balance paths, so they are not
+ * bound through bean introspection on each request. Spring registers it with the application's
+ * {@code ObjectMapper}.
+ */
+@Component
+public class AccountsJsonModule extends SimpleModule {
+
+  public AccountsJsonModule() {
+    super("AccountsJsonModule");
+    addSerializer(Account.class, new AccountSerializer());
+    addDeserializer(TransferMoneyRequest.class, new TransferMoneyRequestDeserializer());
+  }
+
+  /** Writes the balance from its minor units, with the digits {@code BigDecimal} would print. */
+  static final class AccountSerializer extends JsonSerializer<Account> {
+
+    @Override
+    public void serialize(Account account, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("accountId", account.getAccountId());
+      generator.writeFieldName("balance");
+      generator.writeNumber(MinorUnits.toPlainString(account.getBalanceInMinorUnits()));
+      generator.writeEndObject();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.cluster.AccountPartitions;
+import com.db.awmd.challenge.web.response.AccountImportResult;
+import java.io.IOException;
+import java.util.Locale;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Bulk loads and dumps of accounts, streamed as NDJSON or CSV instead of one request per account.
+ * In a cluster an import is refused, as it would store accounts on a node that may not own
+ * them, and an export dumps the accounts of the node it is sent to.
+ */
+@RestController
+@RequestMapping("/v1/accounts")
+public class AccountsStreamController {
+
+  static final String NDJSON = "application/x-ndjson";
+
+  static final String CSV = "text/csv";
+
+  private final AccountStreams accountStreams;
+
+  private final AccountPartitions partitions;
+
+  @Autowired
+  public AccountsStreamController(AccountStreams accountStreams, AccountPartitions partitions) {
+    this.accountStreams = accountStreams;
+    this.partitions = partitions;
+  }
+
+  @PostMapping(path = "/import", consumes = NDJSON)
+  public ResponseEntity<Object> importNdjson(HttpServletRequest request)
+    throws IOException {
+    return importAccounts(AccountStreamFormat.NDJSON, request);
+  }
+
+  @PostMapping(path = "/import", consumes = CSV)
+  public ResponseEntity<Object> importCsv(HttpServletRequest request)
+    throws IOException {
+    return importAccounts(AccountStreamFormat.CSV, request);
+  }
+
+  @GetMapping(path = "/export")
+  public void exportAccounts(@RequestParam(defaultValue = "ndjson") String format,
+                             HttpServletResponse response) throws IOException {
+    AccountStreamFormat streamFormat;
+    try {
+      streamFormat = AccountStreamFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException ex) {
+      response.sendError(HttpStatus.BAD_REQUEST.value(), "format must be ndjson or csv");
+      return;
+    }
+    response.setContentType(streamFormat.getMediaType());
+    response.setCharacterEncoding("UTF-8");
+    accountStreams.exportAccounts(streamFormat, response.getOutputStream());
+  }
+
+  private ResponseEntity<Object> importAccounts(AccountStreamFormat format,
+                                                HttpServletRequest request) throws IOException {
+    if (partitions.isEnabled()) {
+      return new ResponseEntity<>("Accounts cannot be imported in a cluster; create them one by "
+        + "one so that each is stored on its owner", HttpStatus.NOT_IMPLEMENTED);
+    }
+    AccountImportResult result = accountStreams.importAccounts(format, request.getInputStream());
+    return new ResponseEntity<>(result,
+      result.getError() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+  }
+}
@@ -0,0 +1,74 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Aggregates over all balances for reconciliation, consistent as of one point in time; see
+ * {@link BalanceSnapshots}. In a cluster each node answers for its own partition.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/balances")
+public class BalancesController {
+
+  private static final int MAX_BUCKETS = 64;
+
+  private final BalanceSnapshots balanceSnapshots;
+
+  private final long[] defaultBounds;
+
+  @Autowired
+  public BalancesController(BalanceSnapshots balanceSnapshots,
+                            @Value("${accounts.balances.bucket-bounds:0,100,1000,10000,100000,1000000}")
+                              BigDecimal[] defaultBounds) {
+    this.balanceSnapshots = balanceSnapshots;
+    this.defaultBounds = new long[defaultBounds.length];
+    for (int i = 0; i < defaultBounds.length; i++) {
+      this.defaultBounds[i] = MinorUnits.fromDecimal(defaultBounds[i]);
+    }
+  }
+
+  /**
+   * Counts and adds up all balances, in total and per bucket. {@code bounds} are the ascending
+   * upper bounds of the buckets; balances above the last one fall into a bucket without one.
+   */
+  @GetMapping(path = "/summary")
+  public ResponseEntity<Object> getSummary(@RequestParam(required = false) List<BigDecimal> bounds) {
+    if (!balanceSnapshots.isSupported()) {
+      return new ResponseEntity<>("Balances can only be summarized consistently in locking "
+        + "transfer mode", HttpStatus.NOT_IMPLEMENTED);
+    }
+    long[] upperBounds = defaultBounds;
+    if (bounds != null) {
+      if (bounds.size() > MAX_BUCKETS) {
+        return new ResponseEntity<>("At most " + MAX_BUCKETS + " bounds are allowed",
+          HttpStatus.BAD_REQUEST);
+      }
+      upperBounds = new long[bounds.size()];
+      try {
+        for (int i = 0; i < upperBounds.length; i++) {
+          upperBounds[i] = MinorUnits.fromDecimal(bounds.get(i));
+          if (i > 0 && upperBounds[i] <= upperBounds[i - 1]) {
+            return new ResponseEntity<>("bounds must be ascending", HttpStatus.BAD_REQUEST);
+          }
+        }
+      } catch (IllegalArgumentException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+      }
+    }
+    log.info("Summarizing balances");
+    return new ResponseEntity<>(balanceSnapshots.summarize(upperBounds), HttpStatus.OK);
+  }
+}
@@ -0,0 +1,69 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.cluster.ClusterAuthenticationFilter;
+import com.db.awmd.challenge.cluster.ClusterClient;
+import com.db.awmd.challenge.cluster.ReservationLedger;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.web.request.PartitionRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The endpoints the nodes of a cluster call on each other; see {@link ClusterClient}. They
+ * act on the accounts of this node only, and {@link ClusterAuthenticationFilter} refuses callers
+ * that do not present the cluster secret.
+ */
+@RestController
+@RequestMapping(ClusterClient.INTERNAL_PATH)
+@ConditionalOnProperty(name = "accounts.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+  private final AccountsService accountsService;
+
+  private final ReservationLedger ledger;
+
+  @Autowired
+  public ClusterController(AccountsService accountsService, ReservationLedger ledger) {
+    this.accountsService = accountsService;
+    this.ledger = ledger;
+  }
+
+  @PostMapping("/transfers")
+  public TransferOutcome transfer(@RequestBody PartitionRequest request) {
+    return accountsService.tryTransfer(request.getSourceAccountId(), request.getTargetAccountId(),
+      request.getAmount());
+  }
+
+  @PostMapping("/reservations")
+  public TransferOutcome reserve(@RequestBody PartitionRequest request) {
+    return ledger.reserve(request.getTransferId(), request.getSourceAccountId(),
+      request.getTargetAccountId(), request.getAmount());
+  }
+
+  @PostMapping("/reservations/{transferId}/commit")
+  public boolean commit(@PathVariable String transferId) {
+    return ledger.commit(transferId);
+  }
+
+  @PostMapping("/reservations/{transferId}/cancel")
+  public void cancel(@PathVariable String transferId) {
+    ledger.cancel(transferId);
+  }
+
+  @PostMapping("/credits/prepare")
+  public TransferOutcome prepareCredit(@RequestBody PartitionRequest request) {
+    return ledger.prepareCredit(request.getTargetAccountId(), request.getAmount());
+  }
+
+  @PostMapping("/credits")
+  public TransferOutcome credit(@RequestBody PartitionRequest request) {
+    return ledger.credit(request.getTransferId(), request.getSourceAccountId(),
+      request.getTargetAccountId(), request.getAmount());
+  }
+}
@@ -0,0 +1,210 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the response to each {@code Idempotency-Key}, so a client that retries a request
+ * gets the first response back instead of running the request again.
+ *
+ * <p>Keys live in one concurrent map, so a lookup is a single hash probe. Each key is also
+ * appended to the bucket of the time slice it arrived in; the TTL spans {@value #BUCKETS}
+ * slices. Expiry drops a whole bucket once every key in it is older than the TTL, and when the
+ * index holds more than the maximum number of keys the oldest bucket is dropped early. Only
+ * the thread that opens or drops a bucket takes a lock, and others never wait for it.
+ *
+ * <p>A duplicate that arrives while the first request is still running waits for its response.
+ * A key reused for a different request is rejected. A request that throws records nothing.
+ */
+@Component
+public class IdempotencyIndex {
+
+  static final int BUCKETS = 16;
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong size = new AtomicLong();
+
+  private final long ttlMillis;
+
+  private final long bucketMillis;
+
+  private final long maxKeys;
+
+  private final LongSupplier clock;
+
+  private final ReentrantLock rotationLock = new ReentrantLock();
+
+  /** Oldest first; guarded by the rotation lock. */
+  private final ArrayDeque<Bucket> buckets = new ArrayDeque<>();
+
+  private volatile Bucket current;
+
+  @Autowired
+  public IdempotencyIndex(@Value("${accounts.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                          @Value("${accounts.idempotency.max-keys:1000000}") long maxKeys) {
+    this(TimeUnit.SECONDS.toMillis(ttlSeconds), maxKeys, System::currentTimeMillis);
+  }
+
+  public IdempotencyIndex(long ttlMillis, long maxKeys, LongSupplier clock) {
+    if (ttlMillis <= 0 || maxKeys <= 0) {
+      throw new IllegalArgumentException("The TTL and the maximum number of keys must be positive");
+    }
+    this.ttlMillis = ttlMillis;
+    this.bucketMillis = Math.max(1, ttlMillis / BUCKETS);
+    this.maxKeys = maxKeys;
+    this.clock = clock;
+    this.current = new Bucket(clock.getAsLong());
+    buckets.addLast(current);
+  }
+
+  /**
+   * Returns the response recorded for {@code key}, or runs {@code action} and records its
+   * response. {@code request} identifies what the key was first used for.
+   *
+   * @throws IdempotencyKeyReusedException if {@code key} was recorded for another request
+   */
+  public ResponseEntity<Object> execute(String key, Object request,
+                                        Supplier<ResponseEntity<Object>> action) {
+    long now = clock.getAsLong();
+    rotateIfDue(now);
+
+    Entry entry = new Entry(key, request, now);
+    Entry recorded = entries.putIfAbsent(key, entry);
+    boolean replaced = false;
+    while (recorded != null && !replaced) {
+      if (now - recorded.createdAt < ttlMillis) {
+        return replay(recorded, request);
+      }
+      // Expired, but its bucket has not been dropped yet.
+      replaced = entries.replace(key, recorded, entry);
+      if (!replaced) {
+        recorded = entries.putIfAbsent(key, entry);
+      }
+    }
+    if (!replaced) {
+      size.incrementAndGet();
+    }
+    Bucket bucket = current;
+    bucket.entries.add(entry);
+    if (bucket.dropped) {
+      forget(entry);
+    }
+
+    try {
+      ResponseEntity<Object> response = action.get();
+      entry.response.complete(response);
+      return response;
+    } catch (RuntimeException | Error ex) {
+      forget(entry);
+      entry.response.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  public long getSize() {
+    return size.get();
+  }
+
+  private ResponseEntity<Object> replay(Entry recorded, Object request) {
+    if (!recorded.request.equals(request)) {
+      throw new IdempotencyKeyReusedException(
+        "Idempotency-Key " + recorded.key + " was already used for a different request");
+    }
+    try {
+      return recorded.response.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  private void rotateIfDue(long now) {
+    if (now - current.start < bucketMillis && size.get() <= maxKeys) {
+      return;
+    }
+    if (!rotationLock.tryLock()) {
+      return;
+    }
+    try {
+      if (now - current.start >= bucketMillis) {
+        open(now);
+      }
+      while (buckets.size() > 1 && buckets.peekFirst().start + bucketMillis + ttlMillis <= now) {
+        drop(buckets.pollFirst());
+      }
+      while (size.get() > maxKeys) {
+        if (buckets.size() == 1) {
+          open(now);
+        }
+        drop(buckets.pollFirst());
+      }
+    } finally {
+      rotationLock.unlock();
+    }
+  }
+
+  private void open(long now) {
+    current = new Bucket(now);
+    buckets.addLast(current);
+  }
+
+  private void drop(Bucket bucket) {
+    // Appends racing with this see the flag and forget their own entry.
+    bucket.dropped = true;
+    for (Entry entry : bucket.entries) {
+      forget(entry);
+    }
+  }
+
+  private void forget(Entry entry) {
+    if (entries.remove(entry.key, entry)) {
+      size.decrementAndGet();
+    }
+  }
+
+  private static final class Entry {
+
+    private final String key;
+
+    private final Object request;
+
+    private final long createdAt;
+
+    private final CompletableFuture<ResponseEntity<Object>> response = new CompletableFuture<>();
+
+    private Entry(String key, Object request, long createdAt) {
+      this.key = key;
+      this.request = request;
+      this.createdAt = createdAt;
+    }
+  }
+
+  private static final class Bucket {
+
+    private final long start;
+
+    private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean dropped;
+
+    private Bucket(long start) {
+      this.start = start;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.db.awmd.challenge.web;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which requests get an INFO log line, so that logging stays cheap under load: one
+ * request in {@code sample-interval} is picked at random, and of those at most
+ * {@code max-per-second} are logged per second. Callers check it before logging, so the
+ * arguments of a skipped line are never formatted.
+ *
+ * <p>The per-second budget is one atomic word holding the current second and the lines logged
+ * in it; a request that finds the budget spent reads it once and takes no lock.
+ */
+@Component
+public class RequestLogSampler {
+
+  private static final int COUNT_BITS = 32;
+
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  private final int sampleInterval;
+
+  private final long maxPerSecond;
+
+  /** Second since an arbitrary origin in the high bits, lines logged in it in the low bits. */
+  private final AtomicLong budget = new AtomicLong();
+
+  private final LongAdder skipped = new LongAdder();
+
+  @Autowired
+  public RequestLogSampler(@Value("${accounts.request-log.sample-interval:1}") int sampleInterval,
+                           @Value("${accounts.request-log.max-per-second:1000}") long maxPerSecond) {
+    if (sampleInterval < 1 || maxPerSecond < 0 || maxPerSecond > COUNT_MASK) {
+      throw new IllegalArgumentException("The sample interval must be positive and the maximum "
+        + "per second between 0 and " + COUNT_MASK);
+    }
+    this.sampleInterval = sampleInterval;
+    this.maxPerSecond = maxPerSecond;
+  }
+
+  /** Whether the current request should be logged. */
+  public boolean sample() {
+    if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+      skipped.increment();
+      return false;
+    }
+    if (maxPerSecond == 0) {
+      return true;
+    }
+    // 2^30 ns is close enough to a second, and cheaper to get to.
+    long second = (System.nanoTime() >>> 30) & COUNT_MASK;
+    while (true) {
+      long current = budget.get();
+      long count = current >>> COUNT_BITS == second ? current & COUNT_MASK : 0;
+      if (count >= maxPerSecond) {
+        skipped.increment();
+        return false;
+      }
+      if (budget.compareAndSet(current, second << COUNT_BITS | (count + 1))) {
+        return true;
+      }
+    }
+  }
+
+  /** Requests that were not logged since the start. */
+  public long skipped() {
+    return skipped.sum();
+  }
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.web.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One step of a transfer between partitions, as one node sends it to another. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartitionRequest {
+
+    private String transferId;
+
+    private String sourceAccountId;
+
+    private String targetAccountId;
+
+    private long amount;
+}
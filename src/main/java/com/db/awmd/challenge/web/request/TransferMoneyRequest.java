@@ -1,5 +1,7 @@
 package com.db.awmd.challenge.web.request;
 
+import com.db.awmd.challenge.domain.MinorUnits;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.hibernate.validator.constraints.NotEmpty;
 
@@ -11,6 +13,10 @@ import java.math.BigDecimal;
 @Data
 public class TransferMoneyRequest {
 
+    static final int AMOUNT_INTEGER_DIGITS = 9;
+
+    static final int AMOUNT_FRACTION_DIGITS = 2;
+
     @NotNull
     @NotEmpty
     private String sourceAccountId;
@@ -21,7 +27,43 @@ public class TransferMoneyRequest {
 
     @NotNull
     @Min(value = 0)
-    @Digits(integer = 9, fraction = 2)
+    @Digits(integer = AMOUNT_INTEGER_DIGITS, fraction = AMOUNT_FRACTION_DIGITS)
     private BigDecimal amount;
 
+    @JsonIgnore
+    public long getAmountInMinorUnits() {
+        return MinorUnits.fromDecimal(amount);
+    }
+
+    /**
+     * Checks the constraints declared on the fields without going through a
+     * {@link javax.validation.Validator}, with the same messages.
+     *
+     * @return the first violation as {@code "<field> <message>"}, or null if there is none
+     */
+    @JsonIgnore
+    public String findViolation() {
+        if (sourceAccountId == null || sourceAccountId.isEmpty()) {
+            return "sourceAccountId may not be empty";
+        }
+        if (targetAccountId == null || targetAccountId.isEmpty()) {
+            return "targetAccountId may not be empty";
+        }
+        if (amount == null) {
+            return "amount may not be null";
+        }
+        if (amount.signum() < 0) {
+            return "amount must be greater than or equal to 0";
+        }
+        // Like the Digits validator, trailing zeros of the fraction do not count.
+        BigDecimal digits = amount.scale() > AMOUNT_FRACTION_DIGITS ? amount.stripTrailingZeros() : amount;
+        int fraction = Math.max(digits.scale(), 0);
+        int integer = Math.max(digits.precision() - digits.scale(), 0);
+        if (integer > AMOUNT_INTEGER_DIGITS || fraction > AMOUNT_FRACTION_DIGITS) {
+            return "amount numeric value out of bounds (<" + AMOUNT_INTEGER_DIGITS + " digits>.<"
+                + AMOUNT_FRACTION_DIGITS + " digits> expected)";
+        }
+        return null;
+    }
+
 }
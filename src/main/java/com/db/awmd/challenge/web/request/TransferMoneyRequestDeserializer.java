@@ -0,0 +1,111 @@
+package com.db.awmd.challenge.web.request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads a {@link TransferMoneyRequest} straight off the token stream. A plain decimal amount
+ * such as {@code 150.55} is turned into its unscaled value and scale without parsing a
+ * {@code BigDecimal} from text; anything else, like an exponent, takes the regular path.
+ */
+public class TransferMoneyRequestDeserializer extends JsonDeserializer<TransferMoneyRequest> {
+
+    /** Digits a long holds whatever they are. */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    @Override
+    public TransferMoneyRequest deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        }
+        TransferMoneyRequest request = new TransferMoneyRequest();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "sourceAccountId":
+                    request.setSourceAccountId(readString(parser, context, value));
+                    break;
+                case "targetAccountId":
+                    request.setTargetAccountId(readString(parser, context, value));
+                    break;
+                case "amount":
+                    request.setAmount(readAmount(parser, context, value));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            return (TransferMoneyRequest) context.handleUnexpectedToken(TransferMoneyRequest.class, parser);
+        }
+        return request;
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context,
+                                     JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!value.isScalarValue()) {
+            return (String) context.handleUnexpectedToken(String.class, parser);
+        }
+        return parser.getText();
+    }
+
+    private static BigDecimal readAmount(JsonParser parser, DeserializationContext context,
+                                         JsonToken value) throws IOException {
+        switch (value) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                    ? parser.getDecimalValue() : BigDecimal.valueOf(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT:
+                BigDecimal plain = parsePlain(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength());
+                return plain != null ? plain : parser.getDecimalValue();
+            case VALUE_STRING:
+                return context.readValue(parser, BigDecimal.class);
+            default:
+                return (BigDecimal) context.handleUnexpectedToken(BigDecimal.class, parser);
+        }
+    }
+
+    /** Parses {@code [-]digits.digits}, or returns null for anything else. */
+    static BigDecimal parsePlain(char[] text, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = i < end && text[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c >= '0' && c <= '9' && digits < MAX_LONG_DIGITS) {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+}
@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.web.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.Value;
+
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountImportResult {
+
+    private final long imported;
+
+    private final long duplicates;
+
+    /** The ids of the first duplicates; the rest are only counted. */
+    private final List<String> duplicateIds;
+
+    /** Why the import stopped early; the accounts before that row were imported. */
+    private final String error;
+
+}
@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.web.response;
+
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferBatchItemResult {
+
+    private final int index;
+
+    private final TransferStatus status;
+
+    private final String message;
+
+}
@@ -0,0 +1,18 @@
+package com.db.awmd.challenge.web.response;
+
+import com.db.awmd.challenge.domain.TransferEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.Value;
+
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferHistoryPage {
+
+    /** Newest first. */
+    private final List<TransferEvent> transfers;
+
+    /** The {@code from} cursor of the next, older page; absent on the last page. */
+    private final Long next;
+
+}
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS account (
+  account_id VARCHAR(255) NOT NULL PRIMARY KEY,
+  balance BIGINT NOT NULL,
+  CONSTRAINT account_balance_not_negative CHECK (balance >= 0)
+);
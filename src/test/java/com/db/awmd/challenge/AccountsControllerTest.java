@@ -1,9 +1,12 @@
 package com.db.awmd.challenge;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -24,6 +27,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 @RunWith(SpringRunner.class)
@@ -96,6 +100,12 @@ public class AccountsControllerTest {
       .content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void createAccountTooManyFractionDigits() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":10.555}")).andExpect(status().isBadRequest());
+  }
+
   @Test
   public void getAccount() throws Exception {
     String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -125,6 +135,76 @@ public class AccountsControllerTest {
     assertThat(targetAccount.getBalance()).isEqualTo(new BigDecimal("550.80"));
   }
 
+  @Test
+  public void retriedTransferWithIdempotencyKeyMovesMoneyOnce() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    for (int i = 0; i < 3; i++) {
+      this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+              .header("Idempotency-Key", "retried-transfer")
+              .content(transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "150.55")))
+              .andExpect(status().isOk());
+    }
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("400.00"));
+    assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("550.80"));
+  }
+
+  @Test
+  public void transferWithReusedIdempotencyKey() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+            .header("Idempotency-Key", "reused-key")
+            .content(transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "1")))
+            .andExpect(status().isOk());
+    this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+            .header("Idempotency-Key", "reused-key")
+            .content(transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "2")))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(content().string("Idempotency-Key reused-key was already used for a different request"));
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("549.55"));
+  }
+
+  @Test
+  public void transferAsync() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    MvcResult result = this.mockMvc.perform(post("/v1/accounts/transfer/async")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "150.55")))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("400.00"));
+    assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("550.80"));
+  }
+
+  @Test
+  public void transferAsyncNotEnoughBalanceAccount() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    for (int i = 0; i < 2; i++) {
+      MvcResult result = this.mockMvc.perform(post("/v1/accounts/transfer/async")
+              .contentType(MediaType.APPLICATION_JSON)
+              .header("Idempotency-Key", "async-rejected")
+              .content(transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "750.34")))
+              .andExpect(request().asyncStarted())
+              .andReturn();
+      this.mockMvc.perform(asyncDispatch(result))
+              .andExpect(status().isNotAcceptable())
+              .andExpect(content().string("Failed to transfer money between accounts: " +
+                      "sourceAccountId = " + SOURCE_ACCOUNT_ID + ", " +
+                      "targetAccountId = " + TARGET_ACCOUNT_ID));
+    }
+  }
+
   @Test
   public void transferNegativeAmount() throws Exception {
     this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
@@ -213,6 +293,116 @@ public class AccountsControllerTest {
                     "targetAccountId = " + TARGET_ACCOUNT_ID));
   }
 
+  @Test
+  public void getTransfersPagesNewestFirst() throws Exception {
+    String sourceAccountId = "Id-history-" + System.nanoTime();
+    createAccount(sourceAccountId, new BigDecimal("100.00"));
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+    for (String amount : new String[] {"1.00", "2.00", "3.00"}) {
+      accountsService.transfer(sourceAccountId, TARGET_ACCOUNT_ID, new BigDecimal(amount));
+    }
+
+    this.mockMvc.perform(get("/v1/accounts/" + sourceAccountId + "/transfers?limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(content().json("{\"transfers\":[" +
+                    "{\"sourceAccountId\":\"" + sourceAccountId + "\",\"amount\":3.00}," +
+                    "{\"sourceAccountId\":\"" + sourceAccountId + "\",\"amount\":2.00}]," +
+                    "\"next\":1}"));
+    this.mockMvc.perform(get("/v1/accounts/" + sourceAccountId + "/transfers?from=1&limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(content().json("{\"transfers\":[{\"amount\":1.00}]}"))
+            .andExpect(jsonPath("$.next").doesNotExist());
+    this.mockMvc.perform(get("/v1/accounts/" + sourceAccountId + "/transfers?limit=0"))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void transferBatch() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    this.mockMvc.perform(post("/v1/accounts/transfers/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("[" + transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "150.55") + "," +
+                    transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "1000") + "," +
+                    transferJson(SOURCE_ACCOUNT_ID, "ID-3", "1") + "," +
+                    transferJson(TARGET_ACCOUNT_ID, SOURCE_ACCOUNT_ID, "0.001") + "]"))
+            .andExpect(status().isOk())
+            .andExpect(content().json("[{\"index\":0,\"status\":\"COMPLETED\"}," +
+                    "{\"index\":1,\"status\":\"INSUFFICIENT_FUNDS\"}," +
+                    "{\"index\":2,\"status\":\"ACCOUNT_NOT_FOUND\"}," +
+                    "{\"index\":3,\"status\":\"INVALID_REQUEST\"}]"));
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("400.00"));
+    assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("550.80"));
+  }
+
+  @Test
+  public void transferBatchAllOrNothing() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    this.mockMvc.perform(post("/v1/accounts/transfers/batch?allOrNothing=true")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "150.55") + "," +
+                    transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "1000") + "]"))
+            .andExpect(status().isOk())
+            .andExpect(content().json("[{\"index\":0,\"status\":\"NOT_APPLIED\"}," +
+                    "{\"index\":1,\"status\":\"INSUFFICIENT_FUNDS\"}]"));
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
+    assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(TARGET_ACCOUNT_BALANCE);
+  }
+
+  @Test
+  public void transferBatchAllOrNothingInvalidTransfer() throws Exception {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    this.mockMvc.perform(post("/v1/accounts/transfers/batch?allOrNothing=true")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "150.55") + "," +
+                    transferJson(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, "-1") + "]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().json("[{\"index\":0,\"status\":\"NOT_APPLIED\"}," +
+                    "{\"index\":1,\"status\":\"INVALID_REQUEST\"}]"));
+
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
+  }
+
+  @Test
+  public void transferBatchEmpty() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/transfers/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void summarizeBalances() throws Exception {
+    createAccount("Id-1", new BigDecimal("0"));
+    createAccount("Id-2", new BigDecimal("50.25"));
+    createAccount("Id-3", new BigDecimal("100"));
+    createAccount("Id-4", new BigDecimal("2500"));
+
+    this.mockMvc.perform(get("/v1/balances/summary?bounds=0,100"))
+      .andExpect(status().isOk())
+      .andExpect(content().json("{\"accounts\":4,\"total\":2650.25,\"buckets\":["
+        + "{\"upperBound\":0,\"accounts\":1,\"total\":0},"
+        + "{\"upperBound\":100,\"accounts\":2,\"total\":150.25},"
+        + "{\"accounts\":1,\"total\":2500}]}"));
+  }
+
+  @Test
+  public void summarizeBalancesWithDescendingBounds() throws Exception {
+    this.mockMvc.perform(get("/v1/balances/summary?bounds=100,0"))
+      .andExpect(status().isBadRequest());
+  }
+
+  private String transferJson(String sourceAccountId, String targetAccountId, String amount) {
+    return "{\"sourceAccountId\":\"" + sourceAccountId + "\"," +
+            "\"targetAccountId\":\"" + targetAccountId + "\"," +
+            "\"amount\":" + amount + "}";
+  }
+
   private void createAccount(String accountId, BigDecimal balance){
     Account sourceAccount = new Account(accountId);
     sourceAccount.setBalance(balance);
@@ -0,0 +1,62 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.web.AccountsJsonModule;
+import com.db.awmd.challenge.web.request.TransferMoneyRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import org.junit.Test;
+
+public class AccountsJsonModuleTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new AccountsJsonModule());
+
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Test
+  public void readsAmountsLikeBigDecimal() throws Exception {
+    for (String amount : new String[] {"150.55", "150", "0.5", "-10.50", "1.000", "1e3", "\"12.34\"",
+      "123456789012345678901234.5"}) {
+      TransferMoneyRequest request = read("{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\","
+        + "\"ignored\":{\"a\":[1]},\"amount\":" + amount + "}");
+
+      assertThat(request.getSourceAccountId()).isEqualTo("Id-1");
+      assertThat(request.getTargetAccountId()).isEqualTo("Id-2");
+      assertThat(request.getAmount()).isEqualTo(new BigDecimal(amount.replace("\"", "")));
+    }
+  }
+
+  @Test
+  public void findsTheViolationsTheValidatorFinds() throws Exception {
+    for (String body : new String[] {
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":1.5}",
+      "{\"sourceAccountId\":\"\",\"targetAccountId\":\"Id-2\",\"amount\":1.5}",
+      "{\"sourceAccountId\":\"Id-1\",\"amount\":1.5}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\"}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":-0.01}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":0.001}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":1.000}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":999999999.99}",
+      "{\"sourceAccountId\":\"Id-1\",\"targetAccountId\":\"Id-2\",\"amount\":1000000000}"}) {
+      TransferMoneyRequest request = read(body);
+
+      assertThat(request.findViolation() == null).as(body).isEqualTo(validator.validate(request).isEmpty());
+    }
+  }
+
+  @Test
+  public void writesAccountLikeBigDecimal() throws Exception {
+    for (long balance : new long[] {0, 5, 12_345, 100_000, Long.MAX_VALUE}) {
+      assertThat(objectMapper.writeValueAsString(new Account("Id-1", balance)))
+        .isEqualTo("{\"accountId\":\"Id-1\",\"balance\":" + BigDecimal.valueOf(balance, 2) + "}");
+    }
+  }
+
+  private TransferMoneyRequest read(String json) throws Exception {
+    return objectMapper.readValue(json, TransferMoneyRequest.class);
+  }
+}
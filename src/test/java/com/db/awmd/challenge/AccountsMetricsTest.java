@@ -0,0 +1,122 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.TransferMoneyException;
+import com.db.awmd.challenge.service.AccountsMetrics;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "accounts.metrics.latency-sample-interval=1")
+@WebAppConfiguration
+public class AccountsMetricsTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+    accountsService.getAccountsRepository().clearAccounts();
+  }
+
+  @Test
+  public void countsTransfersByOutcomeAndFailuresByCause() {
+    accountsService.createAccount(new Account("Id-1", 100));
+    accountsService.createAccount(new Account("Id-2", 0));
+    double completed = meterRegistry.get("accounts.transfers.completed").counter().count();
+    double timedCompleted = timedTransfers("completed");
+    double timedFailed = timedTransfers("failed");
+    double sameAccount = failures("same_account");
+    double notFound = failures("account_not_found");
+    double insufficientFunds = failures("insufficient_funds");
+
+    accountsService.transfer("Id-1", "Id-2", 60);
+    attemptTransfer("Id-1", "Id-1", 1);
+    attemptTransfer("Id-1", "Id-3", 1);
+    attemptTransfer("Id-1", "Id-2", 60);
+
+    assertThat(meterRegistry.get("accounts.transfers.completed").counter().count() - completed)
+      .isEqualTo(1);
+    assertThat(timedTransfers("completed") - timedCompleted).isEqualTo(1);
+    assertThat(timedTransfers("failed") - timedFailed).isEqualTo(3);
+    assertThat(failures("same_account") - sameAccount).isEqualTo(1);
+    assertThat(failures("account_not_found") - notFound).isEqualTo(1);
+    assertThat(failures("insufficient_funds") - insufficientFunds).isEqualTo(1);
+    assertThat(meterRegistry.get("accounts.count").gauge().value()).isEqualTo(2);
+  }
+
+  @Test
+  public void publishesInPrometheusFormat() throws Exception {
+    accountsService.createAccount(new Account("Id-1", 100));
+    accountsService.createAccount(new Account("Id-2", 0));
+    accountsService.transfer("Id-1", "Id-2", 1);
+
+    String body = this.mockMvc.perform(get("/prometheus"))
+      .andExpect(status().isOk())
+      .andReturn().getResponse().getContentAsString();
+
+    assertThat(body)
+      .contains("accounts_transfers_completed_total")
+      .contains("accounts_transfer_seconds_count{outcome=\"completed\",}")
+      .contains("accounts_transfer_seconds_bucket{outcome=\"completed\",le=")
+      .contains("accounts_transfer_failures_total{cause=\"insufficient_funds\",}")
+      .contains("accounts_count 2.0")
+      .contains("accounts_lock_wait_seconds_count");
+  }
+
+  @Test
+  public void timesOneTransferInTheSampleInterval() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    AccountsMetrics metrics = new AccountsMetrics(registry,
+      accountsService.getAccountsRepository(), new StripedAccountLockManager(16), 10);
+
+    for (int i = 0; i < 100_000; i++) {
+      metrics.endTransfer(metrics.startTransfer(), TransferOutcome.COMPLETED);
+    }
+
+    assertThat(registry.get("accounts.transfer").tag("outcome", "completed").timer().count())
+      .isBetween(8_500L, 11_500L);
+  }
+
+  private void attemptTransfer(String sourceAccountId, String targetAccountId, long amount) {
+    try {
+      accountsService.transfer(sourceAccountId, targetAccountId, amount);
+    } catch (TransferMoneyException expected) {
+      // Counted as a failure.
+    }
+  }
+
+  private double timedTransfers(String outcome) {
+    return meterRegistry.get("accounts.transfer").tag("outcome", outcome).timer().count();
+  }
+
+  private double failures(String cause) {
+    return meterRegistry.get("accounts.transfer.failures").tag("cause", cause).counter().count();
+  }
+}
@@ -2,24 +2,30 @@ package com.db.awmd.challenge;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.when;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.TransferMoneyException;
 import java.math.BigDecimal;
+import com.db.awmd.challenge.service.AccountLockManager;
 import com.db.awmd.challenge.service.AccountsService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import javax.sql.DataSource;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -28,6 +34,12 @@ public class AccountsServiceTest {
   @Autowired
   private AccountsService accountsService;
 
+  @Autowired
+  private AccountLockManager lockManager;
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
   public static String SOURCE_ACCOUNT_ID = "ID-1";
   public static BigDecimal SOURCE_ACCOUNT_BALANCE = new BigDecimal("550.55");
 
@@ -39,6 +51,11 @@ public class AccountsServiceTest {
     this.accountsService.getAccountsRepository().clearAccounts();
   }
 
+  @Test
+  public void startsNoDatasourceForTheInMemoryStore() {
+    assertThat(applicationContext.getBeanNamesForType(DataSource.class)).isEmpty();
+  }
+
   @Test
   public void addAccount() throws Exception {
     Account account = new Account("Id-123");
@@ -116,29 +133,119 @@ public class AccountsServiceTest {
     }
   }
 
-  @Test(expected = TransferMoneyException.class)
-  public void testTransferFailsOnDepositTargetAccount() {
+  @Test
+  public void testTryTransferReturnsRejectionWithoutThrowing() {
     createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
     createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
 
-    AccountsService spyAccountService = spy(accountsService);
-    Account targetAccount = spy(accountsService.getAccount(TARGET_ACCOUNT_ID));
+    assertThat(accountsService.tryTransfer(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_ID, 100))
+            .isEqualTo(TransferOutcome.SAME_ACCOUNT);
+    assertThat(accountsService.tryTransfer("ID-missing", TARGET_ACCOUNT_ID, 100))
+            .isEqualTo(TransferOutcome.SOURCE_NOT_FOUND);
+    assertThat(accountsService.tryTransfer(SOURCE_ACCOUNT_ID, "ID-missing", 100))
+            .isEqualTo(TransferOutcome.TARGET_NOT_FOUND);
+    assertThat(accountsService.tryTransfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, 55056))
+            .isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
+
+    assertThat(accountsService.tryTransfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, 55055))
+            .isEqualTo(TransferOutcome.COMPLETED);
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("0.00"));
+  }
+
+  @Test
+  public void testTransferFailureLeavesBalancesUntouched() {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
 
-    when(spyAccountService.getAccount(TARGET_ACCOUNT_ID)).thenReturn(targetAccount);
-    when(targetAccount.deposit(new BigDecimal("100.75"))).thenReturn(false);
     try {
-      spyAccountService.transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, new BigDecimal("100.75"));
-      fail("Should have failed when deposit to target account return false");
+      accountsService.transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, new BigDecimal("550.56"));
+      fail("Should have failed when there are not enough funds in the account");
     } catch (TransferMoneyException ex) {
       assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
       assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(TARGET_ACCOUNT_BALANCE);
       assertThat(ex.getMessage()).isEqualTo("Failed to transfer money between accounts: " +
               "sourceAccountId = " + SOURCE_ACCOUNT_ID + ", " +
               "targetAccountId = " + TARGET_ACCOUNT_ID);
-      throw ex;
     }
   }
 
+  @Test
+  public void testTransferKeepsPairTotalForLockedReaders() throws InterruptedException {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+    Account sourceAccount = accountsService.getAccountsRepository().getAccount(SOURCE_ACCOUNT_ID);
+    Account targetAccount = accountsService.getAccountsRepository().getAccount(TARGET_ACCOUNT_ID);
+    BigDecimal expectedTotal = SOURCE_ACCOUNT_BALANCE.add(TARGET_ACCOUNT_BALANCE);
+
+    int numberOfTransfers = 2000;
+    ExecutorService service = Executors.newFixedThreadPool(4);
+    CountDownLatch latch = new CountDownLatch(numberOfTransfers);
+    for (int i = 0; i < numberOfTransfers; i++) {
+      boolean forward = i % 2 == 0;
+      service.execute(() -> {
+        if (forward) {
+          accountsService.transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, new BigDecimal("0.25"));
+        } else {
+          accountsService.transfer(TARGET_ACCOUNT_ID, SOURCE_ACCOUNT_ID, new BigDecimal("0.25"));
+        }
+        latch.countDown();
+      });
+    }
+
+    while (latch.getCount() > 0) {
+      try (AccountLockManager.Locks ignored = lockManager.lock(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID)) {
+        assertThat(sourceAccount.getBalance().add(targetAccount.getBalance()))
+                .isEqualByComparingTo(expectedTotal);
+      }
+    }
+    latch.await();
+    service.shutdown();
+  }
+
+  @Test
+  public void testGetAccountReturnsSnapshot() {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+    Account snapshot = accountsService.getAccount(SOURCE_ACCOUNT_ID);
+
+    accountsService.transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, new BigDecimal("0.55"));
+
+    assertThat(snapshot.getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("550.00"));
+  }
+
+  @Test
+  public void testTransferFailsOnTargetBalanceOverflow() {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    this.accountsService.createAccount(new Account(TARGET_ACCOUNT_ID, Long.MAX_VALUE - 10));
+
+    try {
+      accountsService.transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, new BigDecimal("0.11"));
+      fail("Should have failed when the target balance would overflow");
+    } catch (TransferMoneyException ex) {
+      assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(SOURCE_ACCOUNT_BALANCE);
+      assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalanceInMinorUnits()).isEqualTo(Long.MAX_VALUE - 10);
+    }
+  }
+
+  @Test
+  public void testTransferBatchNetsChangesPerAccount() {
+    createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
+    createAccount(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_BALANCE);
+
+    // The second transfer only succeeds because the first one has already credited ID-2.
+    List<TransferStatus> statuses = accountsService.transferBatch(Arrays.asList(
+            new Transfer(SOURCE_ACCOUNT_ID, TARGET_ACCOUNT_ID, 55055),
+            new Transfer(TARGET_ACCOUNT_ID, SOURCE_ACCOUNT_ID, 95080),
+            new Transfer(TARGET_ACCOUNT_ID, TARGET_ACCOUNT_ID, 1)), false);
+
+    assertThat(statuses).containsExactly(TransferStatus.COMPLETED, TransferStatus.COMPLETED,
+            TransferStatus.SAME_ACCOUNT);
+    assertThat(accountsService.getAccount(SOURCE_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("950.80"));
+    assertThat(accountsService.getAccount(TARGET_ACCOUNT_ID).getBalance()).isEqualTo(new BigDecimal("0.00"));
+  }
+
   @Test
   public void testTransferWithConcurrency() throws InterruptedException {
     createAccount(SOURCE_ACCOUNT_ID, SOURCE_ACCOUNT_BALANCE);
@@ -0,0 +1,146 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "accounts.import.chunk-size=2")
+@WebAppConfiguration
+public class AccountsStreamControllerTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+    accountsService.getAccountsRepository().clearAccounts();
+  }
+
+  @Test
+  public void importNdjsonInChunksAndReportDuplicates() throws Exception {
+    accountsService.createAccount(new Account("Id-2", 100));
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson")
+      .content("{\"accountId\":\"Id-1\",\"balance\":10.5}\n"
+        + "{\"accountId\":\"Id-2\",\"balance\":20}\n"
+        + "{\"balance\":\"30.25\",\"accountId\":\"Id-3\",\"note\":{\"ignored\":true}}\n"
+        + "{\"accountId\":\"Id-1\",\"balance\":40}\n"
+        + "{\"accountId\":\"Id-4\",\"balance\":0}\n"))
+      .andExpect(status().isOk())
+      .andExpect(content().json("{\"imported\":3,\"duplicates\":2,\"duplicateIds\":[\"Id-2\",\"Id-1\"]}"));
+
+    assertThat(accountsService.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(1050);
+    assertThat(accountsService.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(100);
+    assertThat(accountsService.getAccount("Id-3").getBalanceInMinorUnits()).isEqualTo(3025);
+    assertThat(accountsService.getAccount("Id-4").getBalanceInMinorUnits()).isZero();
+  }
+
+  @Test
+  public void importCsv() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv")
+      .content("accountId,balance\nId-1,10.50\n\"Id,2\",7\n"))
+      .andExpect(status().isOk())
+      .andExpect(content().json("{\"imported\":2,\"duplicates\":0}"));
+
+    assertThat(accountsService.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(1050);
+    assertThat(accountsService.getAccount("Id,2").getBalanceInMinorUnits()).isEqualTo(700);
+  }
+
+  @Test
+  public void importStopsAtTheFirstInvalidRow() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson")
+      .content("{\"accountId\":\"Id-1\",\"balance\":1}\n"
+        + "{\"accountId\":\"Id-2\",\"balance\":2}\n"
+        + "{\"accountId\":\"Id-3\",\"balance\":3}\n"
+        + "{\"accountId\":\"Id-4\",\"balance\":-1}\n"
+        + "{\"accountId\":\"Id-5\",\"balance\":5}\n"))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().json("{\"imported\":3,\"duplicates\":0,"
+        + "\"error\":\"Line 4: Initial balance must be positive.\"}"));
+
+    assertThat(accountsService.getAccount("Id-3")).isNotNull();
+    assertThat(accountsService.getAccount("Id-5")).isNull();
+  }
+
+  @Test
+  public void importRejectsMalformedRows() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv")
+      .content("accountId,balance\nId-1,1.001\n"))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().json("{\"imported\":0,"
+        + "\"error\":\"Line 2: Amount 1.001 cannot be represented with 2 fraction digits\"}"));
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson")
+      .content("{\"accountId\":\"Id-1\",\"balance\":1}\n{\"accountId\":"))
+      .andExpect(status().isBadRequest())
+      .andExpect(content().json("{\"imported\":1}"));
+  }
+
+  @Test
+  public void exportNdjson() throws Exception {
+    accountsService.createAccount(new Account("Id-1", 1050));
+    accountsService.createAccount(new Account("Id-2", 0));
+
+    String body = this.mockMvc.perform(get("/v1/accounts/export"))
+      .andExpect(status().isOk())
+      .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+      .andReturn().getResponse().getContentAsString();
+
+    assertThat(lines(body)).containsOnly(
+      "{\"accountId\":\"Id-1\",\"balance\":10.50}",
+      "{\"accountId\":\"Id-2\",\"balance\":0.00}");
+    assertThat(body).endsWith("\n");
+  }
+
+  @Test
+  public void exportCsvCanBeImportedAgain() throws Exception {
+    accountsService.createAccount(new Account("Id-1", 1050));
+    accountsService.createAccount(new Account("Id,2", 7));
+
+    String body = this.mockMvc.perform(get("/v1/accounts/export?format=csv"))
+      .andExpect(status().isOk())
+      .andReturn().getResponse().getContentAsString();
+    assertThat(body).startsWith("accountId,balance\n");
+    assertThat(lines(body)).contains("Id-1,10.50", "\"Id,2\",0.07");
+
+    accountsService.getAccountsRepository().clearAccounts();
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv").content(body))
+      .andExpect(status().isOk())
+      .andExpect(content().json("{\"imported\":2}"));
+    assertThat(accountsService.getAccount("Id,2").getBalanceInMinorUnits()).isEqualTo(7);
+  }
+
+  @Test
+  public void exportUnknownFormat() throws Exception {
+    this.mockMvc.perform(get("/v1/accounts/export?format=xml")).andExpect(status().isBadRequest());
+  }
+
+  private static Set<String> lines(String body) {
+    return new HashSet<>(Arrays.asList(body.split("\n")));
+  }
+}
@@ -0,0 +1,112 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.NotificationProperties;
+import com.db.awmd.challenge.service.NotificationProperties.OverflowPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncNotificationServiceTest {
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+
+  private AsyncNotificationService notificationService;
+
+  @After
+  public void stop() throws InterruptedException {
+    notificationService.stop();
+  }
+
+  @Test
+  public void coalescesNotificationsPerAccount() throws InterruptedException {
+    notificationService = new AsyncNotificationService(new RecordingNotificationService(),
+      properties(10, OverflowPolicy.BLOCK));
+    Account first = new Account("Id-1");
+    Account second = new Account("Id-2");
+
+    notificationService.notifyAboutTransfer(first, "Withdrawing 1.00 from the account");
+    notificationService.notifyAboutTransfer(second, "Depositing 1.00 to the account");
+    notificationService.notifyAboutTransfer(first, "Withdrawing 2.00 from the account");
+    notificationService.start();
+    awaitDispatched(3);
+
+    assertThat(sent).containsExactly(
+      "Id-1: Withdrawing 1.00 from the account; Withdrawing 2.00 from the account",
+      "Id-2: Depositing 1.00 to the account");
+    assertThat(notificationService.getQueueDepth()).isZero();
+  }
+
+  @Test
+  public void dropsNotificationsWhenQueueIsFull() throws InterruptedException {
+    notificationService = new AsyncNotificationService(new RecordingNotificationService(),
+      properties(2, OverflowPolicy.DROP));
+    Account account = new Account("Id-1");
+
+    for (int i = 0; i < 5; i++) {
+      notificationService.notifyAboutTransfer(account, "Transfer " + i);
+    }
+
+    assertThat(notificationService.getQueueDepth()).isEqualTo(2);
+    assertThat(notificationService.getDroppedCount()).isEqualTo(3);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    notificationService.bindTo(registry);
+    assertThat(registry.get("notifications.queue.depth").gauge().value()).isEqualTo(2);
+    assertThat(registry.get("notifications.dropped").functionCounter().count()).isEqualTo(3);
+    notificationService.start();
+    awaitDispatched(2);
+    assertThat(sent).containsExactly("Id-1: Transfer 0; Transfer 1");
+  }
+
+  @Test
+  public void spillsNotificationsWhenQueueIsFull() throws InterruptedException {
+    NotificationProperties properties = properties(2, OverflowPolicy.SPILL);
+    properties.setSpillCapacity(3);
+    notificationService = new AsyncNotificationService(new RecordingNotificationService(),
+      properties);
+    Account account = new Account("Id-1");
+
+    for (int i = 0; i < 6; i++) {
+      notificationService.notifyAboutTransfer(account, "Transfer " + i);
+    }
+
+    assertThat(notificationService.getQueueDepth()).isEqualTo(5);
+    assertThat(notificationService.getDroppedCount()).isEqualTo(1);
+    notificationService.start();
+    awaitDispatched(5);
+    assertThat(sent).containsExactly(
+      "Id-1: Transfer 0; Transfer 1; Transfer 2; Transfer 3; Transfer 4");
+  }
+
+  private NotificationProperties properties(int queueCapacity, OverflowPolicy overflowPolicy) {
+    NotificationProperties properties = new NotificationProperties();
+    properties.setQueueCapacity(queueCapacity);
+    properties.setWorkers(1);
+    properties.setBatchSize(100);
+    properties.setOverflowPolicy(overflowPolicy);
+    return properties;
+  }
+
+  private void awaitDispatched(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (notificationService.getDispatchedCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(notificationService.getDispatchedCount()).isEqualTo(count);
+  }
+
+  private class RecordingNotificationService extends EmailNotificationService {
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+      sent.add(account.getAccountId() + ": " + transferDescription);
+    }
+  }
+}
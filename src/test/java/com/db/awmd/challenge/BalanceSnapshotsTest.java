@@ -0,0 +1,161 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BalanceSummary;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.PrimitiveAccountsRepository;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class BalanceSnapshotsTest {
+
+  private static final int ACCOUNTS = 50_000;
+
+  private static final long BALANCE = 1_000;
+
+  private final StripedAccountLockManager lockManager = new StripedAccountLockManager(64);
+
+  @Test
+  public void summarizesEveryAccountIntoItsBucket() {
+    for (AccountsRepository repository : repositories()) {
+      BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 4);
+      for (int i = 0; i < 30_000; i++) {
+        repository.createAccount(new Account("Id-" + i, i % 3 * 100));
+      }
+
+      BalanceSummary summary = snapshots.summarize(new long[] {0, 100});
+      snapshots.shutdown();
+
+      int third = 10_000;
+      assertThat(summary.getAccounts()).isEqualTo(3 * third);
+      assertThat(summary.getTotal()).isEqualByComparingTo(BigDecimal.valueOf(third * 3L, 0));
+      assertThat(summary.getBuckets()).extracting(BalanceSummary.Bucket::getAccounts)
+        .containsExactly((long) third, (long) third, (long) third);
+      assertThat(summary.getBuckets().get(2).getUpperBound()).isNull();
+      assertThat(summary.getBuckets().get(2).getTotal())
+        .isEqualByComparingTo(BigDecimal.valueOf(third * 2L, 0));
+    }
+  }
+
+  @Test
+  public void addsUpBalancesBeyondTheRangeOfALong() {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 2);
+    repository.createAccount(new Account("Id-1", Long.MAX_VALUE));
+    repository.createAccount(new Account("Id-2", Long.MAX_VALUE));
+    repository.createAccount(new Account("Id-3", 2));
+
+    BalanceSummary summary = snapshots.summarize(new long[0]);
+    snapshots.shutdown();
+
+    assertThat(summary.getTotal()).isEqualByComparingTo(
+      BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)).add(BigDecimal.valueOf(2))
+        .movePointLeft(2));
+  }
+
+  @Test
+  public void seesTheBalancesOfOnePointInTimeWhileTransfersRun() throws InterruptedException {
+    for (AccountsRepository repository : repositories()) {
+      BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 4);
+      OrderedLockingTransferEngine engine =
+        new OrderedLockingTransferEngine(lockManager, repository, snapshots);
+      for (int i = 0; i < ACCOUNTS; i++) {
+        repository.createAccount(new Account("Id-" + i, BALANCE));
+      }
+
+      AtomicBoolean running = new AtomicBoolean(true);
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        Thread thread = new Thread(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          while (running.get()) {
+            Account source = repository.getAccount("Id-" + random.nextInt(ACCOUNTS));
+            Account target = repository.getAccount("Id-" + random.nextInt(ACCOUNTS));
+            if (source.getAccountId().equals(target.getAccountId())) {
+              continue;
+            }
+            if (random.nextInt(16) == 0) {
+              Map<String, Account> accounts = new HashMap<>();
+              accounts.put(source.getAccountId(), source);
+              accounts.put(target.getAccountId(), target);
+              engine.transferBatch(Collections.singletonList(new Transfer(source.getAccountId(),
+                target.getAccountId(), 1 + random.nextInt(100))), accounts, true);
+            } else {
+              engine.transfer(source, target, random.nextInt((int) BALANCE));
+            }
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+
+      try {
+        for (int i = 0; i < 20; i++) {
+          BalanceSummary summary = snapshots.summarize(new long[] {BALANCE});
+          assertThat(summary.getAccounts()).isEqualTo(ACCOUNTS);
+          assertThat(summary.getTotal())
+            .isEqualByComparingTo(BigDecimal.valueOf(ACCOUNTS * BALANCE, 2));
+        }
+      } finally {
+        running.set(false);
+        for (Thread thread : threads) {
+          thread.join();
+        }
+        snapshots.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void leavesOutAccountsCreatedAfterTheCut() {
+    AtomicReference<Runnable> duringScan = new AtomicReference<>();
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory() {
+      @Override
+      public Spliterator<Account> accountSpliterator() {
+        duringScan.getAndSet(() -> { }).run();
+        return super.accountSpliterator();
+      }
+    };
+    BalanceSnapshots snapshots = new BalanceSnapshots(repository, lockManager, "locking", 2);
+    OrderedLockingTransferEngine engine =
+      new OrderedLockingTransferEngine(lockManager, repository, snapshots);
+    repository.createAccount(new Account("Id-1", BALANCE));
+    repository.createAccount(new Account("Id-2", BALANCE));
+    Account created = new Account("Id-3", 0);
+    duringScan.set(() -> {
+      snapshots.createAccounts(Collections.singletonList(created),
+        () -> repository.createAccount(created));
+      engine.transfer(repository.getAccount("Id-1"), created, BALANCE);
+    });
+
+    BalanceSummary summary = snapshots.summarize(new long[0]);
+    snapshots.shutdown();
+
+    assertThat(repository.getAccount("Id-3").getBalanceInMinorUnits()).isEqualTo(BALANCE);
+    assertThat(summary.getAccounts()).isEqualTo(2);
+    assertThat(summary.getTotal()).isEqualByComparingTo(BigDecimal.valueOf(2 * BALANCE, 2));
+  }
+
+  private static List<AccountsRepository> repositories() {
+    List<AccountsRepository> repositories = new ArrayList<>();
+    repositories.add(new AccountsRepositoryInMemory());
+    repositories.add(new PrimitiveAccountsRepository());
+    return repositories;
+  }
+}
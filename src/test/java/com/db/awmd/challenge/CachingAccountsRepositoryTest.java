@@ -0,0 +1,142 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.CachingAccountsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+public class CachingAccountsRepositoryTest {
+
+  private final SlowRepository store = new SlowRepository();
+
+  @Test
+  public void servesRepeatedReadsFromTheCache() {
+    CachingAccountsRepository repository = new CachingAccountsRepository(store, 100, false);
+    repository.createAccount(new Account("Id-1", 100));
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(100);
+    }
+
+    assertThat(store.loads.get()).isEqualTo(1);
+    assertThat(repository.getStats().hitCount()).isEqualTo(9);
+    assertThat(repository.getStats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void publishesItsStatsAsMeters() {
+    CachingAccountsRepository repository = new CachingAccountsRepository(store, 100, false);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    repository.bindTo(registry);
+    repository.createAccount(new Account("Id-1", 100));
+
+    repository.getAccount("Id-1");
+    repository.getAccount("Id-1");
+
+    assertThat(registry.get("cache.gets").tag("cache", "accounts.cache").tag("result", "hit")
+      .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("cache.gets").tag("cache", "accounts.cache").tag("result", "miss")
+      .functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void loadsConcurrentMissesOnlyOnce() throws InterruptedException {
+    CachingAccountsRepository repository = new CachingAccountsRepository(store, 100, false);
+    repository.createAccount(new Account("Id-1", 100));
+    store.gate = new CountDownLatch(1);
+
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread reader = new Thread(() -> repository.getAccount("Id-1"));
+      readers.add(reader);
+      reader.start();
+    }
+    Thread.sleep(100);
+    store.gate.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertThat(store.loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void reloadsAccountsTheStoreReportsAsChanged() {
+    CachingAccountsRepository repository = new CachingAccountsRepository(store, 100, false);
+    repository.createAccount(new Account("Id-1", 100));
+    assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(100);
+
+    store.replace(new Account("Id-1", 40));
+    assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(40);
+
+    store.replaceAll(new Account("Id-1", 10));
+    assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(10);
+    assertThat(store.loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void staysWithinItsMaximumSize() throws InterruptedException {
+    CachingAccountsRepository repository = new CachingAccountsRepository(store, 100, false);
+    for (int i = 0; i < 1_000; i++) {
+      repository.createAccount(new Account("Id-" + i, i));
+      repository.getAccount("Id-" + i);
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (repository.getSize() > 100 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(repository.getSize()).isLessThanOrEqualTo(100);
+    assertThat(repository.getStats().evictionCount()).isGreaterThanOrEqualTo(900);
+  }
+
+  /** A store whose accounts are copies, like a database-backed one. */
+  private static final class SlowRepository extends AccountsRepositoryInMemory {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final List<Consumer<String>> listeners = new ArrayList<>();
+
+    private volatile CountDownLatch gate;
+
+    @Override
+    public Account getAccount(String accountId) {
+      loads.incrementAndGet();
+      CountDownLatch current = gate;
+      if (current != null) {
+        try {
+          current.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      Account account = super.getAccount(accountId);
+      return account == null ? null : new Account(accountId, account.getBalanceInMinorUnits());
+    }
+
+    @Override
+    public void addChangeListener(Consumer<String> listener) {
+      listeners.add(listener);
+    }
+
+    private void replace(Account account) {
+      super.getAccount(account.getAccountId()).setBalance(account.getBalance());
+      listeners.forEach(listener -> listener.accept(account.getAccountId()));
+    }
+
+    private void replaceAll(Account account) {
+      super.getAccount(account.getAccountId()).setBalance(account.getBalance());
+      listeners.forEach(listener -> listener.accept(null));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.web.IdempotencyIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class IdempotencyIndexTest {
+
+  private final AtomicLong now = new AtomicLong(1_000_000);
+
+  private final AtomicInteger runs = new AtomicInteger();
+
+  @Test
+  public void replaysTheFirstResponse() {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 100, now::get);
+
+    ResponseEntity<Object> first = index.execute("key-1", "request", this::run);
+    ResponseEntity<Object> second = index.execute("key-1", "request", this::run);
+
+    assertThat(second).isSameAs(first);
+    assertThat(runs.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsKeyReusedForAnotherRequest() {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 100, now::get);
+    index.execute("key-1", "request", this::run);
+
+    try {
+      index.execute("key-1", "other request", this::run);
+      fail("Should have failed because the key was used for another request");
+    } catch (IdempotencyKeyReusedException ex) {
+      assertThat(ex.getMessage()).isEqualTo(
+        "Idempotency-Key key-1 was already used for a different request");
+    }
+    assertThat(runs.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void runsAgainOnceTheKeyHasExpired() {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 100, now::get);
+    index.execute("key-1", "request", this::run);
+
+    now.addAndGet(59_999);
+    index.execute("key-1", "request", this::run);
+    assertThat(runs.get()).isEqualTo(1);
+
+    now.addAndGet(1);
+    index.execute("key-1", "request", this::run);
+    assertThat(runs.get()).isEqualTo(2);
+
+    now.addAndGet(60_000 + 60_000 / 16);
+    index.execute("key-2", "request", this::run);
+    assertThat(index.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void dropsTheOldestKeysBeyondTheMaximum() {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 4, now::get);
+    for (int i = 0; i < 4; i++) {
+      index.execute("old-" + i, "request", this::run);
+    }
+    now.addAndGet(60_000 / 16);
+    for (int i = 0; i < 4; i++) {
+      index.execute("new-" + i, "request", this::run);
+    }
+    index.execute("new-0", "request", this::run);
+
+    assertThat(index.getSize()).isLessThanOrEqualTo(4);
+    assertThat(runs.get()).isEqualTo(8);
+    index.execute("old-0", "request", this::run);
+    assertThat(runs.get()).isEqualTo(9);
+  }
+
+  @Test
+  public void forgetsRequestsThatThrew() {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 100, now::get);
+    try {
+      index.execute("key-1", "request", () -> {
+        throw new IllegalStateException("Store unavailable");
+      });
+      fail("Should have rethrown the failure");
+    } catch (IllegalStateException ex) {
+      assertThat(ex.getMessage()).isEqualTo("Store unavailable");
+    }
+
+    index.execute("key-1", "request", this::run);
+    assertThat(runs.get()).isEqualTo(1);
+    assertThat(index.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrentDuplicatesRunOnce() throws Exception {
+    IdempotencyIndex index = new IdempotencyIndex(60_000, 100_000, System::currentTimeMillis);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<ResponseEntity<Object>>> futures = new ArrayList<>();
+    for (int i = 0; i < 8_000; i++) {
+      String key = "key-" + (i % 1_000);
+      futures.add(executor.submit(() -> {
+        start.await();
+        return index.execute(key, "request", this::run);
+      }));
+    }
+    start.countDown();
+    for (Future<ResponseEntity<Object>> future : futures) {
+      assertThat(future.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+    executor.shutdown();
+
+    assertThat(runs.get()).isEqualTo(1_000);
+    assertThat(index.getSize()).isEqualTo(1_000);
+  }
+
+  private ResponseEntity<Object> run() {
+    return new ResponseEntity<>("run " + runs.incrementAndGet(), HttpStatus.OK);
+  }
+}
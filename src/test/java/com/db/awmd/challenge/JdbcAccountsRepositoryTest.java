@@ -0,0 +1,170 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.TransferMoneyException;
+import com.db.awmd.challenge.repository.JdbcAccountsRepository;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+  "accounts.repository.store=jdbc",
+  "accounts.transfer.mode=jdbc",
+  "accounts.cache.enabled=true"
+})
+public class JdbcAccountsRepositoryTest {
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private JdbcAccountsRepository repository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private BalanceSnapshots balanceSnapshots;
+
+  @Before
+  public void clearAccounts() {
+    accountsService.getAccountsRepository().clearAccounts();
+  }
+
+  @Test
+  public void transfersWithConditionalUpdates() {
+    repository.createAccounts(Arrays.asList(new Account("Id-1", 1_000), new Account("Id-2", 0)),
+      accountId -> fail("Duplicate " + accountId));
+
+    accountsService.transfer("Id-1", "Id-2", 400);
+    try {
+      accountsService.transfer("Id-1", "Id-2", 601);
+      fail("Should have failed because of insufficient funds");
+    } catch (TransferMoneyException ex) {
+      assertThat(ex.getMessage()).startsWith("Failed to transfer money between accounts");
+    }
+
+    assertThat(accountsService.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(600);
+    assertThat(accountsService.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(400);
+  }
+
+  @Test
+  public void rollsBackDebitWhenCreditWouldOverflow() {
+    repository.createAccount(new Account("Id-1", 1_000));
+    repository.createAccount(new Account("Id-2", Long.MAX_VALUE));
+
+    try {
+      accountsService.transfer("Id-1", "Id-2", 1);
+      fail("Should have failed because the target balance would overflow");
+    } catch (TransferMoneyException ex) {
+      assertThat(ex.getMessage()).startsWith("Failed to transfer money between accounts");
+    }
+
+    assertThat(balanceInTable("Id-1")).isEqualTo(1_000);
+  }
+
+  @Test
+  public void rejectsDuplicateIds() {
+    repository.createAccount(new Account("Id-1", 1));
+    try {
+      repository.createAccount(new Account("Id-1", 2));
+      fail("Should have failed when adding duplicate account");
+    } catch (DuplicateAccountIdException ex) {
+      assertThat(ex.getMessage()).isEqualTo("Account id Id-1 already exists!");
+    }
+  }
+
+  @Test
+  public void bulkCreateSkipsAndReportsDuplicates() {
+    repository.createAccount(new Account("Id-2", 5));
+    List<String> duplicates = new ArrayList<>();
+
+    accountsService.createAccounts(Arrays.asList(new Account("Id-1", 1), new Account("Id-2", 2),
+      new Account("Id-3", 3), new Account("Id-1", 4)), duplicates::add);
+
+    assertThat(duplicates).containsExactly("Id-2", "Id-1");
+    assertThat(balanceInTable("Id-1")).isEqualTo(1);
+    assertThat(balanceInTable("Id-2")).isEqualTo(5);
+    assertThat(balanceInTable("Id-3")).isEqualTo(3);
+  }
+
+  @Test
+  public void writesOneNetBalancePerAccountForBatches() {
+    repository.createAccounts(Arrays.asList(new Account("Id-1", 100), new Account("Id-2", 0),
+      new Account("Id-3", 0)), accountId -> fail("Duplicate " + accountId));
+
+    List<TransferStatus> statuses = accountsService.transferBatch(Arrays.asList(
+      new Transfer("Id-1", "Id-2", 100),
+      new Transfer("Id-2", "Id-3", 60),
+      new Transfer("Id-2", "Id-3", 60)), false);
+
+    assertThat(statuses).containsExactly(TransferStatus.COMPLETED, TransferStatus.COMPLETED,
+      TransferStatus.INSUFFICIENT_FUNDS);
+    assertThat(balanceInTable("Id-1")).isZero();
+    assertThat(balanceInTable("Id-2")).isEqualTo(40);
+    assertThat(balanceInTable("Id-3")).isEqualTo(60);
+  }
+
+  @Test
+  public void oppositeTransfersNeitherDeadlockNorLoseMoney() throws Exception {
+    repository.createAccounts(Arrays.asList(new Account("Id-1", 100_000),
+      new Account("Id-2", 100_000)), accountId -> fail("Duplicate " + accountId));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      boolean forward = i % 2 == 0;
+      futures.add(executor.submit(() -> accountsService.transfer(
+        forward ? "Id-1" : "Id-2", forward ? "Id-2" : "Id-1", 7)));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertThat(balanceInTable("Id-1")).isEqualTo(100_000);
+    assertThat(balanceInTable("Id-2")).isEqualTo(100_000);
+  }
+
+  @Test
+  public void cachedBalancesAreDroppedOnceTransferCommits() {
+    repository.createAccounts(Arrays.asList(new Account("Id-1", 500), new Account("Id-2", 0)),
+      accountId -> fail("Duplicate " + accountId));
+    assertThat(accountsService.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(500);
+    assertThat(accountsService.getAccount("Id-2").getBalanceInMinorUnits()).isZero();
+
+    accountsService.transfer("Id-1", "Id-2", 200);
+
+    assertThat(accountsService.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(300);
+    assertThat(accountsService.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(200);
+  }
+
+  @Test
+  public void refusesToSummarizeBalances() {
+    assertThat(balanceSnapshots.isSupported()).isFalse();
+  }
+
+  private long balanceInTable(String accountId) {
+    return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE account_id = ?",
+      Long.class, accountId);
+  }
+}
@@ -0,0 +1,55 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.JournalProperties;
+import com.db.awmd.challenge.repository.JournalingAccountsRepository;
+import com.db.awmd.challenge.repository.TransferJournal.Durability;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Transfers money between journaled accounts until it is killed, printing a line for every
+ * transfer the engine has acknowledged. Used by {@link JournalingAccountsRepositoryTest}.
+ */
+public class JournalCrashWorker {
+
+  static final int ACCOUNTS = 10;
+
+  static final long INITIAL_BALANCE = 1_000_000;
+
+  public static void main(String[] args) {
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(16);
+    JournalingAccountsRepository repository = JournalingAccountsRepositoryTest.open(args[0],
+      Durability.valueOf(args[1]), lockManager);
+    OrderedLockingTransferEngine transferEngine =
+      new OrderedLockingTransferEngine(lockManager, repository,
+        new BalanceSnapshots(repository, lockManager, "locking", 1));
+    for (int i = 0; i < ACCOUNTS; i++) {
+      repository.createAccount(new Account("ACC-" + i, INITIAL_BALANCE));
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (long acknowledged = 1; ; acknowledged++) {
+      int source = random.nextInt(ACCOUNTS);
+      int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+      transferEngine.transfer(repository.getAccount("ACC-" + source),
+        repository.getAccount("ACC-" + target), 1 + random.nextInt(100));
+      System.out.println("ACK " + acknowledged);
+    }
+  }
+
+  private JournalCrashWorker() {
+  }
+
+  static JournalProperties properties(String directory, Durability durability) {
+    JournalProperties properties = new JournalProperties();
+    properties.setEnabled(true);
+    properties.setDirectory(directory);
+    properties.setSegmentSize(64 * 1024);
+    properties.setDurability(durability);
+    properties.setSnapshotIntervalSeconds(0);
+    return properties;
+  }
+}
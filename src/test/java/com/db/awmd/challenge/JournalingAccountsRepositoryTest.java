@@ -0,0 +1,295 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.JournalingAccountsRepository;
+import com.db.awmd.challenge.repository.TransferJournal.Durability;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalingAccountsRepositoryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AccountLockManager lockManager = new StripedAccountLockManager(16);
+
+  @Test
+  public void replaysAccountsAndTransfersAfterRestart() throws IOException {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.PER_BATCH, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    repository.createAccount(new Account("Id-1", 10_000));
+    repository.createAccount(new Account("Id-2", 500));
+    assertThat(transferEngine.transfer(repository.getAccount("Id-1"), repository.getAccount("Id-2"), 2_500)).isTrue();
+    assertThat(transferEngine.transfer(repository.getAccount("Id-2"), repository.getAccount("Id-1"), 1_000)).isTrue();
+    assertThat(transferEngine.transfer(repository.getAccount("Id-2"), repository.getAccount("Id-1"), 5_000)).isFalse();
+    repository.close();
+
+    JournalingAccountsRepository restarted = open(directory, Durability.PER_BATCH, lockManager);
+
+    assertThat(restarted.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(8_500);
+    assertThat(restarted.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(2_000);
+    restarted.close();
+  }
+
+  @Test
+  public void rollsSegmentsAndReplaysAllOfThem() throws IOException {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.ASYNC, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    repository.createAccount(new Account("Id-1", 1_000_000));
+    repository.createAccount(new Account("Id-2", 0));
+    for (int i = 0; i < 10_000; i++) {
+      transferEngine.transfer(repository.getAccount("Id-1"), repository.getAccount("Id-2"), 1);
+    }
+    repository.close();
+
+    assertThat(new File(directory).list()).hasSize(5);
+    JournalingAccountsRepository restarted = open(directory, Durability.ASYNC, lockManager);
+    assertThat(restarted.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(990_000);
+    assertThat(restarted.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(10_000);
+    restarted.close();
+  }
+
+  @Test
+  public void ignoresTornRecordAndAppendsAfterLastIntactOne() throws IOException {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.PER_OP, lockManager);
+    repository.createAccount(new Account("Id-1", 100));
+    repository.createAccount(new Account("Id-2", 200));
+
+    // Simulate a crash in the middle of the next append: a length and checksum, but no payload.
+    File segment = new File(directory).listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      long end = 0;
+      while (true) {
+        file.seek(end);
+        int length = file.readInt();
+        if (length == 0) {
+          break;
+        }
+        end += 8 + length;
+      }
+      file.seek(end);
+      file.writeInt(40);
+      file.writeInt(0xCAFEBABE);
+      file.write(new byte[] {2, 0, 4});
+    }
+
+    JournalingAccountsRepository restarted = open(directory, Durability.PER_OP, lockManager);
+    assertThat(restarted.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(200);
+    restarted.createAccount(new Account("Id-3", 300));
+    restarted.close();
+
+    JournalingAccountsRepository again = open(directory, Durability.PER_OP, lockManager);
+    assertThat(again.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(100);
+    assertThat(again.getAccount("Id-3").getBalanceInMinorUnits()).isEqualTo(300);
+    again.close();
+  }
+
+  @Test
+  public void keepsEveryAcknowledgedTransferWhenProcessIsKilled() throws Exception {
+    String directory = folder.newFolder().getPath();
+    Process worker = new ProcessBuilder(
+      new File(System.getProperty("java.home"), "bin/java").getPath(),
+      "-cp", System.getProperty("java.class.path"),
+      JournalCrashWorker.class.getName(), directory, Durability.PER_BATCH.name())
+      .redirectErrorStream(true)
+      .start();
+
+    long acknowledged = 0;
+    try (BufferedReader output = new BufferedReader(
+      new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while (acknowledged < 5_000 && (line = output.readLine()) != null) {
+        if (line.startsWith("ACK ")) {
+          acknowledged = Long.parseLong(line.substring(4));
+        }
+      }
+      worker.destroyForcibly();
+      assertThat(worker.waitFor(30, TimeUnit.SECONDS)).isTrue();
+    }
+    assertThat(acknowledged).isEqualTo(5_000);
+
+    JournalingAccountsRepository restarted = open(directory, Durability.PER_BATCH, lockManager);
+    long total = 0;
+    for (int i = 0; i < JournalCrashWorker.ACCOUNTS; i++) {
+      Account account = restarted.getAccount("ACC-" + i);
+      assertThat(account.getBalanceInMinorUnits()).isNotNegative();
+      total += account.getBalanceInMinorUnits();
+    }
+    assertThat(total).isEqualTo(JournalCrashWorker.ACCOUNTS * JournalCrashWorker.INITIAL_BALANCE);
+    restarted.close();
+  }
+
+  @Test
+  public void recoversFromSnapshotAndReplaysOnlyTheJournalAfterIt() throws IOException {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.ASYNC, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    repository.createAccount(new Account("Id-1", 1_000_000));
+    repository.createAccount(new Account("Id-2", 0));
+    for (int i = 0; i < 10_000; i++) {
+      transferEngine.transfer(repository.getAccount("Id-1"), repository.getAccount("Id-2"), 1);
+    }
+    assertThat(repository.takeSnapshot()).isPositive();
+    repository.createAccount(new Account("Id-3", 50));
+    transferEngine.transfer(repository.getAccount("Id-2"), repository.getAccount("Id-3"), 25);
+    repository.close();
+
+    // The segments filled before the snapshot are gone, so the snapshot has to be used.
+    assertThat(new File(directory).list()).hasSize(2);
+    JournalingAccountsRepository restarted = open(directory, Durability.ASYNC, lockManager);
+    assertThat(restarted.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(990_000);
+    assertThat(restarted.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(9_975);
+    assertThat(restarted.getAccount("Id-3").getBalanceInMinorUnits()).isEqualTo(75);
+    restarted.close();
+  }
+
+  @Test
+  public void snapshotsTakenDuringTransfersRecoverTheExactBalances() throws Exception {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.ASYNC, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    int accounts = 100;
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account("Id-" + i, 10_000));
+    }
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int thread = t;
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int created = 0; running.get(); created++) {
+          int source = random.nextInt(accounts);
+          int target = (source + 1 + random.nextInt(accounts - 1)) % accounts;
+          transferEngine.transfer(repository.getAccount("Id-" + source),
+            repository.getAccount("Id-" + target), 1 + random.nextInt(100));
+          if (created % 100 == 0) {
+            repository.createAccount(new Account("New-" + thread + "-" + created, 1));
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (int i = 0; i < 5; i++) {
+      assertThat(repository.takeSnapshot()).isPositive();
+    }
+    running.set(false);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    List<Account> live = new ArrayList<>();
+    for (int i = 0; i < accounts; i++) {
+      live.add(repository.getAccount("Id-" + i));
+    }
+    repository.close();
+
+    JournalingAccountsRepository restarted = open(directory, Durability.ASYNC, lockManager);
+    for (Account account : live) {
+      assertThat(restarted.getAccount(account.getAccountId()).getBalanceInMinorUnits())
+        .isEqualTo(account.getBalanceInMinorUnits());
+    }
+    restarted.close();
+  }
+
+  @Test
+  public void replaysTransfersToAccountsCreatedWhileTheyRun() throws Exception {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.ASYNC, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    repository.createAccount(new Account("Source", 1_000_000));
+    int accounts = 2_000;
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    Thread transfers = new Thread(() -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while (running.get()) {
+        // Aims at accounts that are being created right now.
+        Account target = repository.getAccount("Id-" + random.nextInt(accounts));
+        if (target != null) {
+          transferEngine.transfer(repository.getAccount("Source"), target, 1);
+        }
+      }
+    });
+    transfers.start();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account("Id-" + i, 100));
+    }
+    running.set(false);
+    transfers.join();
+    List<Account> live = new ArrayList<>();
+    live.add(repository.getAccount("Source"));
+    for (int i = 0; i < accounts; i++) {
+      live.add(repository.getAccount("Id-" + i));
+    }
+    repository.close();
+
+    JournalingAccountsRepository restarted = open(directory, Durability.ASYNC, lockManager);
+    for (Account account : live) {
+      assertThat(restarted.getAccount(account.getAccountId()).getBalanceInMinorUnits())
+        .isEqualTo(account.getBalanceInMinorUnits());
+    }
+    restarted.close();
+  }
+
+  @Test
+  public void fallsBackToOlderSnapshotWhenNewestIsDamaged() throws IOException {
+    String directory = folder.newFolder().getPath();
+    JournalingAccountsRepository repository = open(directory, Durability.PER_OP, lockManager);
+    OrderedLockingTransferEngine transferEngine = transferEngine(repository);
+    repository.createAccount(new Account("Id-1", 1_000));
+    repository.createAccount(new Account("Id-2", 0));
+    repository.takeSnapshot();
+    transferEngine.transfer(repository.getAccount("Id-1"), repository.getAccount("Id-2"), 100);
+    repository.takeSnapshot();
+    transferEngine.transfer(repository.getAccount("Id-1"), repository.getAccount("Id-2"), 10);
+    repository.close();
+
+    File[] snapshots = new File(directory).listFiles((dir, name) -> name.startsWith("snapshot-"));
+    assertThat(snapshots).hasSize(2);
+    Arrays.sort(snapshots);
+    try (RandomAccessFile file = new RandomAccessFile(snapshots[1], "rw")) {
+      file.seek(file.length() - 12);
+      file.writeLong(42);
+    }
+
+    JournalingAccountsRepository restarted = open(directory, Durability.PER_OP, lockManager);
+    assertThat(restarted.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(890);
+    assertThat(restarted.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(110);
+    restarted.close();
+  }
+
+  static JournalingAccountsRepository open(String directory, Durability durability,
+                                           AccountLockManager lockManager) {
+    return new JournalingAccountsRepository(new AccountsRepositoryInMemory(), lockManager,
+      JournalCrashWorker.properties(directory, durability), "locking");
+  }
+
+  private OrderedLockingTransferEngine transferEngine(JournalingAccountsRepository repository) {
+    return new OrderedLockingTransferEngine(lockManager, repository,
+      new BalanceSnapshots(repository, lockManager, "locking", 1));
+  }
+}
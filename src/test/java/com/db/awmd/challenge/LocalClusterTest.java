@@ -0,0 +1,199 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.cluster.AccountPartitions;
+import com.db.awmd.challenge.cluster.ClusterClient;
+import com.db.awmd.challenge.cluster.LocalCluster;
+import com.db.awmd.challenge.cluster.ReservationLedger;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.service.AccountsService;
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+public class LocalClusterTest {
+
+  private static final int ACCOUNTS = 20;
+
+  private static LocalCluster cluster;
+
+  private final TestRestTemplate restTemplate = new TestRestTemplate();
+
+  @BeforeClass
+  public static void startCluster() {
+    cluster = LocalCluster.start(3, "accounts.cluster.reservation-timeout-millis=300",
+      "logging.level.com.db.awmd.challenge=WARN");
+  }
+
+  @AfterClass
+  public static void stopCluster() {
+    cluster.close();
+  }
+
+  @Before
+  public void clearAccounts() {
+    for (int node = 0; node < cluster.size(); node++) {
+      service(node).getAccountsRepository().clearAccounts();
+    }
+  }
+
+  @Test
+  public void storesEachAccountOnItsOwner() {
+    for (int i = 0; i < ACCOUNTS; i++) {
+      assertThat(createAccount(i % cluster.size(), "Id-" + i, "100.00").getStatusCode())
+        .isEqualTo(HttpStatus.CREATED);
+    }
+
+    AccountPartitions partitions = cluster.node(0).getBean(AccountPartitions.class);
+    for (int i = 0; i < ACCOUNTS; i++) {
+      int owner = partitions.ownerOf("Id-" + i);
+      for (int node = 0; node < cluster.size(); node++) {
+        assertThat(service(node).getAccountsRepository().getAccount("Id-" + i) != null)
+          .isEqualTo(node == owner);
+        assertThat(restTemplate.getForObject(cluster.url(node) + "/v1/accounts/Id-" + i, String.class))
+          .isEqualTo("{\"accountId\":\"Id-" + i + "\",\"balance\":100.00}");
+      }
+    }
+  }
+
+  @Test
+  public void keepsTheTotalAcrossPartitions() {
+    for (int i = 0; i < ACCOUNTS; i++) {
+      createAccount(0, "Id-" + i, "100.00");
+    }
+
+    Random random = new Random(42);
+    int completed = 0;
+    for (int i = 0; i < 200; i++) {
+      int source = random.nextInt(ACCOUNTS);
+      int target = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+      ResponseEntity<String> response = transfer(random.nextInt(cluster.size()), "Id-" + source,
+        "Id-" + target, "7.50");
+      assertThat(response.getStatusCode()).isIn(HttpStatus.OK, HttpStatus.NOT_ACCEPTABLE);
+      if (response.getStatusCode() == HttpStatus.OK) {
+        completed++;
+      }
+    }
+
+    assertThat(completed).isGreaterThan(0);
+    long total = 0;
+    for (int node = 0; node < cluster.size(); node++) {
+      long[] balances = new long[1];
+      service(node).getAccountsRepository().forEachAccount(account ->
+        balances[0] += account.getBalanceInMinorUnits());
+      total += balances[0];
+      assertThat(cluster.node(node).getBean(ReservationLedger.class).reservations()).isZero();
+    }
+    assertThat(total).isEqualTo(ACCOUNTS * 10_000L);
+  }
+
+  @Test
+  public void rejectsATransferToAMissingAccountOnAnotherNode() {
+    AccountPartitions partitions = cluster.node(0).getBean(AccountPartitions.class);
+    String source = accountOwnedBy(partitions, 0);
+    String missing = accountOwnedBy(partitions, 1);
+    createAccount(0, source, "100.00");
+
+    ResponseEntity<String> response = transfer(2, source, missing, "10.00");
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+    assertThat(response.getBody()).isEqualTo("Account id = " + missing + " not found!");
+    assertThat(service(0).getAccount(source).getBalance()).isEqualByComparingTo("100.00");
+  }
+
+  @Test
+  public void releasesAReservationThatIsNeverCommitted() throws InterruptedException {
+    AccountPartitions partitions = cluster.node(0).getBean(AccountPartitions.class);
+    String source = accountOwnedBy(partitions, 1);
+    createAccount(1, source, "100.00");
+
+    assertThat(cluster.node(1).getBean(ReservationLedger.class)
+      .reserve("transfer-1", source, "Id-elsewhere", 4_000)).isEqualTo(TransferOutcome.COMPLETED);
+    assertThat(service(1).getAccount(source).getBalance()).isEqualByComparingTo("60.00");
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (service(1).getAccount(source).getBalanceInMinorUnits() != 10_000
+      && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(service(1).getAccount(source).getBalance()).isEqualByComparingTo("100.00");
+    assertThat(cluster.node(1).getBean(ReservationLedger.class).commit("transfer-1")).isFalse();
+  }
+
+  @Test
+  public void refusesNodeRequestsWithoutTheClusterSecret() {
+    AccountPartitions partitions = cluster.node(0).getBean(AccountPartitions.class);
+    String target = accountOwnedBy(partitions, 1);
+    String elsewhere = accountOwnedBy(partitions, 0);
+    createAccount(1, target, "100.00");
+
+    ResponseEntity<String> credit = post(1, ClusterClient.INTERNAL_PATH + "/credits",
+      "{\"transferId\":\"t-1\",\"sourceAccountId\":\"" + elsewhere + "\","
+        + "\"targetAccountId\":\"" + target + "\",\"amount\":100000}");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set(ClusterClient.FORWARDED_HEADER, cluster.url(0));
+    ResponseEntity<String> forwarded = restTemplate.postForEntity(cluster.url(1) + "/v1/accounts",
+      new HttpEntity<>("{\"accountId\":\"" + elsewhere + "\",\"balance\":100}", headers),
+      String.class);
+
+    assertThat(credit.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(forwarded.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    assertThat(service(1).getAccount(target).getBalance()).isEqualByComparingTo("100.00");
+    assertThat(service(1).getAccountsRepository().getAccount(elsewhere)).isNull();
+  }
+
+  @Test
+  public void refusesABulkImport() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+
+    ResponseEntity<String> response = restTemplate.postForEntity(cluster.url(0)
+      + "/v1/accounts/import", new HttpEntity<>("{\"accountId\":\"Id-1\",\"balance\":100}\n",
+      headers), String.class);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_IMPLEMENTED);
+    for (int node = 0; node < cluster.size(); node++) {
+      assertThat(service(node).getAccountsRepository().getAccount("Id-1")).isNull();
+    }
+  }
+
+  private static AccountsService service(int node) {
+    return cluster.node(node).getBean(AccountsService.class);
+  }
+
+  private static String accountOwnedBy(AccountPartitions partitions, int node) {
+    for (int i = 0; ; i++) {
+      if (partitions.ownerOf("Id-" + i) == node) {
+        return "Id-" + i;
+      }
+    }
+  }
+
+  private ResponseEntity<String> createAccount(int node, String accountId, String balance) {
+    return post(node, "/v1/accounts",
+      "{\"accountId\":\"" + accountId + "\",\"balance\":" + balance + "}");
+  }
+
+  private ResponseEntity<String> transfer(int node, String source, String target, String amount) {
+    return post(node, "/v1/accounts/transfer", "{\"sourceAccountId\":\"" + source + "\","
+      + "\"targetAccountId\":\"" + target + "\",\"amount\":" + amount + "}");
+  }
+
+  private ResponseEntity<String> post(int node, String path, String body) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    return restTemplate.postForEntity(cluster.url(node) + path, new HttpEntity<>(body, headers),
+      String.class);
+  }
+}
@@ -0,0 +1,84 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.BalanceSnapshots;
+import com.db.awmd.challenge.service.NettingTransferEngine;
+import com.db.awmd.challenge.service.OrderedLockingTransferEngine;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Test;
+
+public class NettingTransferEngineTest {
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+
+  private final StripedAccountLockManager lockManager = new StripedAccountLockManager(64);
+
+  private final NettingTransferEngine transferEngine = new NettingTransferEngine(
+    new OrderedLockingTransferEngine(lockManager, repository,
+      new BalanceSnapshots(repository, lockManager, "locking", 1)), 1_000, 64, 2);
+
+  @After
+  public void shutdown() throws InterruptedException {
+    transferEngine.shutdown();
+  }
+
+  @Test
+  public void confirmsEachTransferOfAWindow() {
+    Account source = new Account("Id-1", 1_000);
+    Account target = new Account("Id-2", 0);
+    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+    for (int i = 0; i < 100; i++) {
+      results.add(transferEngine.transferAsync(source, target, 10));
+    }
+
+    for (CompletableFuture<Boolean> result : results) {
+      assertThat(result.join()).isTrue();
+    }
+    assertThat(source.getBalanceInMinorUnits()).isEqualTo(0);
+    assertThat(target.getBalanceInMinorUnits()).isEqualTo(1_000);
+  }
+
+  @Test
+  public void rejectsOnlyTheTransfersThatWouldOverdraw() {
+    Account source = new Account("Id-1", 55);
+    Account target = new Account("Id-2", 0);
+    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+    for (int i = 0; i < 10; i++) {
+      results.add(transferEngine.transferAsync(source, target, 10));
+    }
+
+    long completed = results.stream().filter(CompletableFuture::join).count();
+    assertThat(completed).isEqualTo(5);
+    assertThat(source.getBalanceInMinorUnits()).isEqualTo(5);
+    assertThat(target.getBalanceInMinorUnits()).isEqualTo(50);
+  }
+
+  @Test
+  public void neverOverdrawsWhileNettingOppositeTransfers() {
+    Account first = new Account("Id-1", 10);
+    Account second = new Account("Id-2", 0);
+    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+    // Netted blindly the 40 transfers would move nothing; in arrival order only 10 of each fit.
+    for (int i = 0; i < 20; i++) {
+      results.add(transferEngine.transferAsync(first, second, 1));
+    }
+    for (int i = 0; i < 20; i++) {
+      results.add(transferEngine.transferAsync(second, first, 1));
+    }
+
+    long completed = results.stream().filter(CompletableFuture::join).count();
+    assertThat(completed).isEqualTo(20);
+    assertThat(first.getBalanceInMinorUnits()).isEqualTo(10);
+    assertThat(second.getBalanceInMinorUnits()).isEqualTo(0);
+  }
+}
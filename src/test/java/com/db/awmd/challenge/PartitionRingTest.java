@@ -0,0 +1,42 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.cluster.PartitionRing;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class PartitionRingTest {
+
+  private static final int ACCOUNTS = 30_000;
+
+  @Test
+  public void spreadsAccountsEvenly() {
+    PartitionRing ring = new PartitionRing(Arrays.asList("http://a:1", "http://b:2", "http://c:3"), 256);
+    int[] counts = new int[3];
+    for (int i = 0; i < ACCOUNTS; i++) {
+      counts[ring.ownerOf("Id-" + i)]++;
+    }
+
+    for (int count : counts) {
+      assertThat(count).isBetween(ACCOUNTS / 3 * 85 / 100, ACCOUNTS / 3 * 115 / 100);
+    }
+  }
+
+  @Test
+  public void movesOnlyTheAccountsOfAnAddedNode() {
+    PartitionRing before = new PartitionRing(Arrays.asList("http://a:1", "http://b:2", "http://c:3"), 256);
+    PartitionRing after = new PartitionRing(
+      Arrays.asList("http://a:1", "http://b:2", "http://c:3", "http://d:4"), 256);
+    int moved = 0;
+    for (int i = 0; i < ACCOUNTS; i++) {
+      int owner = after.ownerOf("Id-" + i);
+      if (owner != before.ownerOf("Id-" + i)) {
+        assertThat(owner).isEqualTo(3);
+        moved++;
+      }
+    }
+
+    assertThat(moved).isBetween(ACCOUNTS / 4 * 85 / 100, ACCOUNTS / 4 * 115 / 100);
+  }
+}
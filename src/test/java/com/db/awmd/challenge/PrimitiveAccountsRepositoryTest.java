@@ -0,0 +1,91 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.repository.PrimitiveAccountsRepository;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class PrimitiveAccountsRepositoryTest {
+
+  private final PrimitiveAccountsRepository repository = new PrimitiveAccountsRepository();
+
+  @Test
+  public void storesBalancesThatAccountsUpdateInPlace() {
+    repository.createAccount(new Account("Id-1", 1_000));
+    repository.createAccount(new Account("Id-2", 0));
+
+    Account source = repository.getAccount("Id-1");
+    assertThat(source.withdraw(400)).isTrue();
+    assertThat(source.withdraw(700)).isFalse();
+    assertThat(repository.getAccount("Id-2").deposit(400)).isTrue();
+
+    assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(600);
+    assertThat(repository.getAccount("Id-2").getBalanceInMinorUnits()).isEqualTo(400);
+    assertThat(repository.getAccount("Id-3")).isNull();
+  }
+
+  @Test
+  public void rejectsDuplicateIds() {
+    repository.createAccount(new Account("Id-1", 1));
+    try {
+      repository.createAccount(new Account("Id-1", 2));
+      fail("Should have failed when adding duplicate account");
+    } catch (DuplicateAccountIdException ex) {
+      assertThat(ex.getMessage()).isEqualTo("Account id Id-1 already exists!");
+    }
+    assertThat(repository.getAccount("Id-1").getBalanceInMinorUnits()).isEqualTo(1);
+  }
+
+  @Test
+  public void keepsIdsThatAreNotLatin1() {
+    repository.createAccount(new Account("Konto-\u00c4", 1));
+    repository.createAccount(new Account("\u0421\u0447\u0451\u0442-1", 2));
+
+    assertThat(repository.getAccount("Konto-\u00c4").getBalanceInMinorUnits()).isEqualTo(1);
+    assertThat(repository.getAccount("\u0421\u0447\u0451\u0442-1").getBalanceInMinorUnits()).isEqualTo(2);
+    assertThat(repository.getAccount("\u0421\u0447\u0451\u0442-2")).isNull();
+
+    Map<String, Long> visited = new HashMap<>();
+    repository.forEachAccount(account -> visited.put(account.getAccountId(), account.getBalanceInMinorUnits()));
+    assertThat(visited).containsEntry("Konto-\u00c4", 1L).containsEntry("\u0421\u0447\u0451\u0442-1", 2L).hasSize(2);
+  }
+
+  @Test
+  public void growsAcrossPagesAndFindsEveryAccountDuringCreation() throws InterruptedException {
+    int accounts = 300_000;
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger missing = new AtomicInteger();
+    Thread reader = new Thread(() -> {
+      while (created.get() < accounts) {
+        int known = created.get();
+        for (int i = Math.max(0, known - 1_000); i < known; i++) {
+          Account account = repository.getAccount("ACC-" + i);
+          if (account == null || account.getBalanceInMinorUnits() != i) {
+            missing.incrementAndGet();
+          }
+        }
+      }
+    });
+    reader.start();
+    for (int i = 0; i < accounts; i++) {
+      repository.createAccount(new Account("ACC-" + i, i));
+      created.set(i + 1);
+    }
+    reader.join();
+
+    assertThat(missing.get()).isZero();
+    assertThat(repository.countAccounts()).isEqualTo(accounts);
+    assertThat(repository.getAccount("ACC-" + (accounts - 1)).getBalanceInMinorUnits())
+      .isEqualTo(accounts - 1);
+
+    repository.clearAccounts();
+    assertThat(repository.getAccount("ACC-0")).isNull();
+    assertThat(repository.countAccounts()).isZero();
+  }
+}
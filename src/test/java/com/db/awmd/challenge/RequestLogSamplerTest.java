@@ -0,0 +1,63 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.web.RequestLogSampler;
+import org.junit.Test;
+
+public class RequestLogSamplerTest {
+
+  @Test
+  public void logsEveryRequestWithoutLimits() {
+    RequestLogSampler sampler = new RequestLogSampler(1, 0);
+
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(sampler.sample()).isTrue();
+    }
+    assertThat(sampler.skipped()).isZero();
+  }
+
+  @Test
+  public void stopsAtTheBudgetOfTheSecond() {
+    RequestLogSampler sampler = new RequestLogSampler(1, 100);
+    int logged = 0;
+
+    for (int i = 0; i < 10_000; i++) {
+      if (sampler.sample()) {
+        logged++;
+      }
+    }
+
+    // The loop may straddle the start of a new second, which brings a new budget.
+    assertThat(logged).isBetween(100, 200);
+    assertThat(sampler.skipped()).isEqualTo(10_000 - logged);
+  }
+
+  @Test
+  public void samplesOneRequestInTheInterval() {
+    RequestLogSampler sampler = new RequestLogSampler(16, 0);
+    int logged = 0;
+
+    for (int i = 0; i < 160_000; i++) {
+      if (sampler.sample()) {
+        logged++;
+      }
+    }
+
+    assertThat(logged).isBetween(8_000, 12_000);
+  }
+
+  @Test
+  public void samplesOneRequestInAnIntervalThatIsNotAPowerOfTwo() {
+    RequestLogSampler sampler = new RequestLogSampler(10, 0);
+    int logged = 0;
+
+    for (int i = 0; i < 100_000; i++) {
+      if (sampler.sample()) {
+        logged++;
+      }
+    }
+
+    assertThat(logged).isBetween(8_500, 11_500);
+  }
+}
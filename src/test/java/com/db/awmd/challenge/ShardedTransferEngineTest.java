@@ -0,0 +1,150 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.service.ShardedTransferEngine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class ShardedTransferEngineTest {
+
+  private final ShardedTransferEngine transferEngine = new ShardedTransferEngine(4);
+
+  @After
+  public void shutdown() throws InterruptedException {
+    transferEngine.shutdown();
+  }
+
+  @Test
+  public void transfersWithinAndAcrossShards() {
+    Account[] accounts = accounts(8, 10_000);
+
+    for (int i = 0; i < accounts.length; i++) {
+      assertThat(transferEngine.transfer(accounts[i], accounts[(i + 1) % accounts.length], 2_500)).isTrue();
+    }
+
+    for (Account account : accounts) {
+      assertThat(account.getBalanceInMinorUnits()).isEqualTo(10_000);
+    }
+  }
+
+  @Test
+  public void rejectsTransferWithoutFunds() {
+    Account[] accounts = accounts(2, 100);
+
+    assertThat(transferEngine.transfer(accounts[0], accounts[1], 101)).isFalse();
+
+    assertThat(accounts[0].getBalanceInMinorUnits()).isEqualTo(100);
+    assertThat(accounts[1].getBalanceInMinorUnits()).isEqualTo(100);
+  }
+
+  @Test
+  public void releasesReservationWhenCreditOverflows() {
+    Account source = new Account("Id-1", 100);
+    Account target = new Account("Id-2", Long.MAX_VALUE);
+
+    assertThat(transferEngine.transfer(source, target, 1)).isFalse();
+
+    assertThat(source.getBalanceInMinorUnits()).isEqualTo(100);
+    assertThat(target.getBalanceInMinorUnits()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void keepsTotalUnderConcurrentAsyncTransfers() {
+    Account[] accounts = accounts(16, 1_000);
+    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+    for (int i = 0; i < 20_000; i++) {
+      Account source = accounts[i % accounts.length];
+      Account target = accounts[(i * 7 + 3) % accounts.length];
+      if (source != target) {
+        results.add(transferEngine.transferAsync(source, target, 10));
+      }
+    }
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+    long total = 0;
+    for (Account account : accounts) {
+      assertThat(account.getBalanceInMinorUnits()).isNotNegative();
+      total += account.getBalanceInMinorUnits();
+    }
+    assertThat(total).isEqualTo(16 * 1_000);
+  }
+
+  @Test
+  public void appliesAllOrNothingBatchWhileShardsAreParked() {
+    Account[] accounts = accounts(3, 100);
+    Map<String, Account> byId = new HashMap<>();
+    for (Account account : accounts) {
+      byId.put(account.getAccountId(), account);
+    }
+
+    TransferStatus[] statuses = transferEngine.transferBatch(Arrays.asList(
+      new Transfer("Id-0", "Id-1", 100),
+      new Transfer("Id-2", "Id-0", 101)), byId, true);
+
+    assertThat(statuses).containsExactly(TransferStatus.NOT_APPLIED, TransferStatus.INSUFFICIENT_FUNDS);
+    assertThat(accounts[0].getBalanceInMinorUnits()).isEqualTo(100);
+    assertThat(transferEngine.transfer(accounts[0], accounts[1], 100)).isTrue();
+  }
+
+  @Test(timeout = 30_000)
+  public void runsConcurrentBatchesWithoutDeadlock() throws Exception {
+    Account[] accounts = accounts(16, 1_000_000);
+    Map<String, Account> byId = new HashMap<>();
+    for (Account account : accounts) {
+      byId.put(account.getAccountId(), account);
+    }
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> batches = new ArrayList<>();
+
+    for (int c = 0; c < 4; c++) {
+      int offset = c;
+      batches.add(callers.submit(() -> {
+        start.await();
+        for (int i = 0; i < 500; i++) {
+          transferEngine.transferBatch(Arrays.asList(
+            new Transfer("Id-" + (i + offset) % 16, "Id-" + (i + offset + 1) % 16, 1),
+            new Transfer("Id-" + (i + offset + 5) % 16, "Id-" + (i + offset + 9) % 16, 1)),
+            byId, true);
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> batch : batches) {
+      batch.get(20, TimeUnit.SECONDS);
+    }
+    callers.shutdown();
+
+    long total = 0;
+    for (Account account : accounts) {
+      total += account.getBalanceInMinorUnits();
+    }
+    assertThat(total).isEqualTo(16 * 1_000_000L);
+    assertThat(transferEngine.transfer(accounts[0], accounts[1], 1)).isTrue();
+  }
+
+  private Account[] accounts(int count, long balance) {
+    Account[] accounts = new Account[count];
+    for (int i = 0; i < count; i++) {
+      accounts[i] = new Account("Id-" + i, balance);
+    }
+    return accounts;
+  }
+}
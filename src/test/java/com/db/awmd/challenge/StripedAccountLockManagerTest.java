@@ -0,0 +1,51 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.StripedAccountLockManager;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.Test;
+
+public class StripedAccountLockManagerTest {
+
+  @Test
+  public void roundsStripesUpToPowerOfTwo() {
+    assertThat(new StripedAccountLockManager(1000).getStripeCount()).isEqualTo(1024);
+    assertThat(new StripedAccountLockManager(1).getStripeCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void locksSharedStripeOnlyOnce() {
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1);
+
+    try (AccountLockManager.Locks ignored = lockManager.lockAll(Arrays.asList("Id-1", "Id-2", "Id-3"))) {
+      assertThat(lockManager.contentionHistogram()).containsExactly(0L);
+    }
+    assertThat(lockManager.readOptimistically("Id-1", () -> "released")).isEqualTo("released");
+  }
+
+  @Test
+  public void countsContendedAcquisitions() throws InterruptedException {
+    StripedAccountLockManager lockManager = new StripedAccountLockManager(1);
+    CountDownLatch acquired = new CountDownLatch(1);
+
+    Thread contender;
+    try (AccountLockManager.Locks ignored = lockManager.lock("Id-1", "Id-2")) {
+      contender = new Thread(() -> {
+        try (AccountLockManager.Locks inner = lockManager.lock("Id-2", "Id-1")) {
+          acquired.countDown();
+        }
+      });
+      contender.start();
+      assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    }
+    contender.join();
+
+    assertThat(LongStream.of(lockManager.contentionHistogram()).sum()).isEqualTo(1);
+    assertThat(lockManager.waitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+}
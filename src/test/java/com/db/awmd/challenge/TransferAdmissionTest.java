@@ -0,0 +1,145 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.service.AdaptiveConcurrencyLimit;
+import com.db.awmd.challenge.service.AdmissionProperties;
+import com.db.awmd.challenge.service.TokenBucket;
+import com.db.awmd.challenge.service.TransferAdmission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TransferAdmissionTest {
+
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void refillsTheBucketAtItsRate() {
+    TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+    assertThat(bucket.tryAcquire(0)).isTrue();
+    assertThat(bucket.tryAcquire(0)).isTrue();
+    assertThat(bucket.tryAcquire(0)).isTrue();
+    assertThat(bucket.tryAcquire(0)).isFalse();
+    assertThat(bucket.tryAcquire(99 * MILLI)).isFalse();
+    assertThat(bucket.tryAcquire(100 * MILLI)).isTrue();
+    assertThat(bucket.tryAcquire(100 * MILLI)).isFalse();
+  }
+
+  @Test
+  public void limitsEachSourceAccountOnItsOwn() {
+    AdmissionProperties properties = new AdmissionProperties();
+    properties.setEnabled(true);
+    properties.setAccountPerSecond(0.001);
+    properties.setAccountBurst(5);
+    TransferAdmission admission = new TransferAdmission(properties, new SimpleMeterRegistry());
+
+    for (int i = 0; i < 5; i++) {
+      try (TransferAdmission.Permit permit = admission.admit("Id-hot")) {
+        assertThat(permit.isAdmitted()).isTrue();
+      }
+    }
+    try (TransferAdmission.Permit permit = admission.admit("Id-hot")) {
+      assertThat(permit.isAdmitted()).isFalse();
+      assertThat(permit.getRejection()).isEqualTo("Too many transfers from the source account");
+    }
+    try (TransferAdmission.Permit permit = admission.admit("Id-quiet")) {
+      assertThat(permit.isAdmitted()).isTrue();
+    }
+  }
+
+  @Test
+  public void spendsTheAccountBudgetOnlyOnAdmittedTransfers() {
+    AdmissionProperties properties = new AdmissionProperties();
+    properties.setEnabled(true);
+    properties.setAccountPerSecond(0.001);
+    properties.setAccountBurst(2);
+    properties.getConcurrency().setInitialLimit(8);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TransferAdmission admission = new TransferAdmission(properties, registry);
+    List<TransferAdmission.Permit> running = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      running.add(admission.admit("Id-" + i));
+    }
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(admission.admit("Id-hot").getRejection()).isEqualTo("Too many transfers in flight");
+    }
+    running.forEach(TransferAdmission.Permit::close);
+
+    assertThat(admission.admit("Id-hot").isAdmitted()).isTrue();
+    assertThat(admission.admit("Id-hot").isAdmitted()).isTrue();
+    TransferAdmission.Permit hot = admission.admit("Id-hot");
+    assertThat(hot.getRejection()).isEqualTo("Too many transfers from the source account");
+    hot.close();
+    assertThat(registry.get("accounts.admission.in.flight").gauge().value()).isEqualTo(2);
+  }
+
+  @Test
+  public void rejectsTransfersBeyondTheConcurrencyLimit() {
+    AdmissionProperties properties = new AdmissionProperties();
+    properties.setEnabled(true);
+    properties.getConcurrency().setInitialLimit(8);
+    TransferAdmission admission = new TransferAdmission(properties, new SimpleMeterRegistry());
+    List<TransferAdmission.Permit> running = new ArrayList<>();
+
+    for (int i = 0; i < 8; i++) {
+      running.add(admission.admit("Id-" + i));
+    }
+    TransferAdmission.Permit rejected = admission.admit("Id-8");
+    running.get(0).close();
+
+    assertThat(running).allSatisfy(permit -> assertThat(permit.isAdmitted()).isTrue());
+    assertThat(rejected.getRejection()).isEqualTo("Too many transfers in flight");
+    assertThat(admission.admit("Id-9").isAdmitted()).isTrue();
+  }
+
+  @Test
+  public void isOpenWhenDisabled() {
+    TransferAdmission admission = new TransferAdmission(new AdmissionProperties(), new SimpleMeterRegistry());
+
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(admission.admit("Id-hot").isAdmitted()).isTrue();
+    }
+  }
+
+  @Test
+  public void shrinksTheLimitWhenLatencyGrowsAndGrowsItBackUnderLoad() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(64, 8, 1024, 2.0, 100, 0);
+    long now = 0;
+
+    now = runWindow(limit, now, 32, MILLI);
+    assertThat(limit.getLimit()).isGreaterThanOrEqualTo(64);
+
+    int before = limit.getLimit();
+    for (int i = 0; i < 10; i++) {
+      now = runWindow(limit, now, 32, 10 * MILLI);
+    }
+    int shrunk = limit.getLimit();
+    assertThat(shrunk).isLessThan(before);
+
+    for (int i = 0; i < 10; i++) {
+      now = runWindow(limit, now, shrunk, MILLI);
+    }
+    assertThat(limit.getLimit()).isGreaterThan(shrunk);
+  }
+
+  /** Runs {@code concurrent} transfers of the given latency, and closes the window. */
+  private static long runWindow(AdaptiveConcurrencyLimit limit, long now, int concurrent,
+                                long latency) {
+    int admitted = 0;
+    for (int i = 0; i < concurrent; i++) {
+      if (limit.tryAcquire()) {
+        admitted++;
+      }
+    }
+    long end = now + 100 * MILLI;
+    for (int i = 0; i < admitted; i++) {
+      limit.release(end - latency, end);
+    }
+    return end;
+  }
+}
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.TransferEvent;
+import com.db.awmd.challenge.repository.TransferHistory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TransferHistoryTest {
+
+  @Test
+  public void pagesThroughAccountNewestFirst() {
+    TransferHistory history = new TransferHistory(true, 1_000);
+    for (int i = 1; i <= 5; i++) {
+      history.record("Id-1", "Id-2", i);
+    }
+    history.record("Id-3", "Id-4", 100);
+
+    assertThat(history.count("Id-1")).isEqualTo(5);
+    List<TransferEvent> newest = history.read("Id-2", Long.MAX_VALUE, 2);
+    assertThat(newest).extracting(TransferEvent::getAmountInMinorUnits).containsExactly(5L, 4L);
+    assertThat(newest.get(0).getSourceAccountId()).isEqualTo("Id-1");
+    assertThat(newest.get(0).getTargetAccountId()).isEqualTo("Id-2");
+    assertThat(history.read("Id-2", 3, 2)).extracting(TransferEvent::getAmountInMinorUnits)
+      .containsExactly(3L, 2L);
+    assertThat(history.read("Id-2", 1, 2)).extracting(TransferEvent::getAmountInMinorUnits)
+      .containsExactly(1L);
+    assertThat(history.read("Id-5", Long.MAX_VALUE, 2)).isEmpty();
+  }
+
+  @Test
+  public void stopsRecordingWhenFull() {
+    TransferHistory history = new TransferHistory(true, 3);
+    for (int i = 0; i < 5; i++) {
+      history.record("Id-1", "Id-2", i);
+    }
+
+    assertThat(history.count("Id-1")).isEqualTo(3);
+  }
+
+  @Test
+  public void indexesEveryConcurrentTransfer() throws InterruptedException {
+    TransferHistory history = new TransferHistory(true, 1_000_000);
+    int threads = 4;
+    int perThread = 20_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      String source = "Id-" + t;
+      executor.execute(() -> {
+        for (int i = 0; i < perThread; i++) {
+          history.record(source, "Id-hot", 1);
+        }
+        done.countDown();
+      });
+    }
+    assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+    executor.shutdown();
+
+    assertThat(history.count("Id-hot")).isEqualTo(threads * perThread);
+    Set<Long> sequences = new HashSet<>();
+    List<TransferEvent> page;
+    long end = Long.MAX_VALUE;
+    do {
+      page = history.read("Id-hot", end, 1_000);
+      for (TransferEvent event : page) {
+        sequences.add(event.getSequence());
+      }
+      end = Math.min(end, history.count("Id-hot")) - page.size();
+    } while (!page.isEmpty());
+    assertThat(sequences).hasSize(threads * perThread);
+    for (TransferEvent event : history.read("Id-0", Long.MAX_VALUE, 10)) {
+      assertThat(event.getSourceAccountId()).isEqualTo("Id-0");
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.db.awmd.challenge.cluster;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs a cluster of several nodes of the application in this JVM, each on its own localhost
+ * port, for tests and benchmarks. {@link #main} starts one until the JVM is stopped:
+ * {@code LocalCluster 3 [property=value ...]}.
+ */
+public final class LocalCluster implements AutoCloseable {
+
+  private final List<String> urls;
+
+  private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+  private LocalCluster(List<String> urls) {
+    this.urls = urls;
+  }
+
+  /**
+   * Starts {@code size} nodes and returns once all of them serve requests.
+   *
+   * @param properties extra application properties of every node, as {@code name=value}
+   */
+  public static LocalCluster start(int size, String... properties) {
+    List<String> urls = new ArrayList<>(size);
+    for (int port : freePorts(size)) {
+      urls.add("http://localhost:" + port);
+    }
+    LocalCluster cluster = new LocalCluster(urls);
+    String secret = UUID.randomUUID().toString();
+    try {
+      for (int node = 0; node < size; node++) {
+        cluster.nodes.add(new SpringApplicationBuilder(DevChallengeApplication.class)
+          .properties("server.port=" + urls.get(node).substring(urls.get(node).lastIndexOf(':') + 1),
+            "accounts.cluster.enabled=true",
+            "accounts.cluster.nodes=" + String.join(",", urls),
+            "accounts.cluster.self=" + node,
+            "accounts.cluster.secret=" + secret,
+            "spring.jmx.enabled=false",
+            "endpoints.jmx.enabled=false")
+          .properties(properties)
+          .run());
+      }
+    } catch (RuntimeException ex) {
+      cluster.close();
+      throw ex;
+    }
+    return cluster;
+  }
+
+  public int size() {
+    return urls.size();
+  }
+
+  /** Base URL of the node at {@code node}. */
+  public String url(int node) {
+    return urls.get(node);
+  }
+
+  public ConfigurableApplicationContext node(int node) {
+    return nodes.get(node);
+  }
+
+  @Override
+  public void close() {
+    for (ConfigurableApplicationContext node : nodes) {
+      node.close();
+    }
+  }
+
+  /** Ports that were free a moment ago; another process may still take one first. */
+  private static int[] freePorts(int count) {
+    ServerSocket[] sockets = new ServerSocket[count];
+    int[] ports = new int[count];
+    try {
+      for (int i = 0; i < count; i++) {
+        sockets[i] = new ServerSocket(0);
+        ports[i] = sockets[i].getLocalPort();
+      }
+      for (ServerSocket socket : sockets) {
+        socket.close();
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return ports;
+  }
+
+  public static void main(String[] args) {
+    LocalCluster cluster = start(Integer.parseInt(args[0]), Arrays.copyOfRange(args, 1, args.length));
+    Runtime.getRuntime().addShutdownHook(new Thread(cluster::close));
+    for (int node = 0; node < cluster.size(); node++) {
+      System.out.println("Node " + node + " at " + cluster.url(node));
+    }
+  }
+}